@@ -0,0 +1,131 @@
+package com.example.android.newsapp;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests of the SQLite {@link ArticleStore}, which need the database of a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ArticleStoreTest {
+
+    private ArticleStore mStore;
+
+    @Before
+    public void setUp() {
+        // A null name keeps the database in memory.
+        mStore = new ArticleStore(InstrumentationRegistry.getTargetContext(), null);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+    }
+
+    @Test
+    public void getPage_returnsNewestFirst_perSection() {
+        mStore.put("sport", createNewsList("sport", 0, 25));
+        mStore.put("culture", createNewsList("culture", 0, 5));
+
+        List<News> firstPage = mStore.getPage("sport", 1, 10);
+        List<News> lastPage = mStore.getPage("sport", 3, 10);
+
+        assertEquals(10, firstPage.size());
+        assertEquals(createNews("sport", 24), firstPage.get(0));
+        assertEquals(5, lastPage.size());
+        assertEquals(createNews("sport", 0), lastPage.get(4));
+        assertEquals(0, mStore.getPage("sport", 4, 10).size());
+        assertEquals(5, mStore.count("culture"));
+        assertEquals(0, mStore.count(null));
+    }
+
+    @Test
+    public void getPage_readsTheSameNews_withOrWithoutThePreviousPage() {
+        mStore.put(null, createNewsList("overview", 0, 30));
+
+        List<News> pages = new ArrayList<>();
+        for (int page = 1; page <= 3; page++) {
+            pages.addAll(mStore.getPage(null, page, 10));
+        }
+        // A new store didn't read the previous pages, so it skips the rows instead.
+        ArticleStore otherStore = new ArticleStore(InstrumentationRegistry.getTargetContext(), null);
+        otherStore.put(null, createNewsList("overview", 0, 30));
+
+        assertEquals(pages.subList(20, 30), otherStore.getPage(null, 3, 10));
+        otherStore.close();
+    }
+
+    @Test
+    public void put_replacesNewsWithTheSameUrl() {
+        mStore.put("news", createNewsList("news", 0, 10));
+        mStore.put("news", createNewsList("news", 5, 10));
+
+        assertEquals(15, mStore.count("news"));
+    }
+
+    @Test
+    public void getByUrls_keepsTheOrderOfTheUrls_andSkipsUnknownOnes() {
+        mStore.put("sport", createNewsList("sport", 0, 5));
+        mStore.put(null, createNewsList("sport", 3, 5));
+
+        List<News> newsList = mStore.getByUrls(Arrays.asList(
+                createNews("sport", 4).getUrl(), "https://www.theguardian.com/unknown",
+                createNews("sport", 1).getUrl()));
+
+        assertEquals(Arrays.asList(createNews("sport", 4), createNews("sport", 1)), newsList);
+        assertTrue(mStore.getByUrls(Collections.<String>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void getPage_staysFast_deepIntoALargeSection() {
+        List<News> newsList = createNewsList("news", 0, 20000);
+        Collections.shuffle(newsList);
+        mStore.put("news", newsList);
+
+        for (int page = 1; page < 2000; page++) {
+            assertEquals(10, mStore.getPage("news", page, 10).size());
+        }
+        long start = System.nanoTime();
+        List<News> lastPage = mStore.getPage("news", 2000, 10);
+        long lastPageNanos = System.nanoTime() - start;
+
+        // The last page starts from the end of the previous one, without skipping 19990 rows.
+        assertEquals(createNews("news", 0), lastPage.get(9));
+        assertTrue(lastPageNanos < TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    private static List<News> createNewsList(String section, int from, int to) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            newsList.add(createNews(section, i));
+        }
+        return newsList;
+    }
+
+    /**
+     * Return a news published i minutes after midnight, so the ones with larger i are newer.
+     * Every other news has a thumbnail.
+     */
+    private static News createNews(String section, int i) {
+        String time = String.format(Locale.US, "2018-01-%02dT%02d:%02d:00Z",
+                1 + i / 1440, i / 60 % 24, i % 60);
+        String thumbnailUrl = i % 2 == 0 ? "https://media.guim.co.uk/" + i + "/500.jpg" : null;
+        return new News("Title " + i, time, "https://www.theguardian.com/" + section + "/" + i,
+                thumbnailUrl);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.ImageView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Instrumented tests of the {@link ImageLoader}, which need the bitmaps and the views of a
+ * device. The images are in the disk cache already, nothing is downloaded.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageLoaderInstrumentedTest {
+
+    private static final String FIRST_URL = "https://media.guim.co.uk/first/500.jpg";
+    private static final String SECOND_URL = "https://media.guim.co.uk/second/500.jpg";
+
+    /**
+     * Size in pixels of the images and of their views, so they are not downsampled.
+     */
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 60;
+
+    private Context mContext;
+    private ImageLoader mImageLoader;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        File directory = new File(mContext.getCacheDir(), "image_loader_test");
+        ImageDiskCache diskCache = new ImageDiskCache(directory, 1024 * 1024);
+        diskCache.put(FIRST_URL, createImage());
+        diskCache.put(SECOND_URL, createImage());
+        // Room for a single decoded image, two bytes per pixel.
+        mImageLoader = new ImageLoader(diskCache, WIDTH * HEIGHT * 2 * 3 / 2);
+    }
+
+    @Test
+    public void load_sharesOneLoad_betweenTheViewsOfTheSameImage() throws Exception {
+        final ImageView firstView = createImageView();
+        final ImageView secondView = createImageView();
+
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mImageLoader.load(FIRST_URL, firstView, WIDTH, HEIGHT);
+                mImageLoader.load(FIRST_URL, secondView, WIDTH, HEIGHT);
+                assertEquals(1, mImageLoader.getLoadCount());
+            }
+        });
+
+        assertSame(awaitBitmap(firstView), awaitBitmap(secondView));
+        assertEquals(0, getLoadCount());
+    }
+
+    @Test
+    public void cancel_cancelsTheLoad_onceNoViewWaitsForIt() throws Exception {
+        final ImageView firstView = createImageView();
+        final ImageView secondView = createImageView();
+
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mImageLoader.load(FIRST_URL, firstView, WIDTH, HEIGHT);
+                mImageLoader.load(FIRST_URL, secondView, WIDTH, HEIGHT);
+                mImageLoader.cancel(firstView);
+                assertEquals(1, mImageLoader.getLoadCount());
+                mImageLoader.cancel(secondView);
+                assertEquals(0, mImageLoader.getLoadCount());
+            }
+        });
+
+        // The load that already started doesn't show its image in the views.
+        Thread.sleep(500);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertNull(getBitmap(firstView));
+        assertNull(getBitmap(secondView));
+    }
+
+    @Test
+    public void cancel_givesAnEvictedBitmapBack_onceNoViewShowsIt() throws Exception {
+        final ImageView firstView = createImageView();
+        final ImageView secondView = createImageView();
+
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mImageLoader.load(FIRST_URL, firstView, WIDTH, HEIGHT);
+            }
+        });
+        Bitmap firstBitmap = awaitBitmap(firstView);
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mImageLoader.load(SECOND_URL, secondView, WIDTH, HEIGHT);
+            }
+        });
+        Bitmap secondBitmap = awaitBitmap(secondView);
+
+        // The second image evicted the first one, which its view still shows.
+        assertNotSame(firstBitmap, secondBitmap);
+        assertEquals(1, mImageLoader.getEvictedShownCount());
+        assertEquals(0, mImageLoader.getReusableCount());
+
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                // Like the list being released with its rows still on screen.
+                mImageLoader.cancel(firstView);
+                mImageLoader.cancel(secondView);
+            }
+        });
+
+        assertEquals(0, mImageLoader.getEvictedShownCount());
+        assertEquals(1, mImageLoader.getReusableCount());
+    }
+
+    private ImageView createImageView() {
+        final ImageView[] imageView = new ImageView[1];
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                imageView[0] = new ImageView(mContext);
+            }
+        });
+        return imageView[0];
+    }
+
+    private int getLoadCount() {
+        final int[] loadCount = new int[1];
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                loadCount[0] = mImageLoader.getLoadCount();
+            }
+        });
+        return loadCount[0];
+    }
+
+    /**
+     * Wait for the view to show a bitmap, and return it.
+     */
+    private static Bitmap awaitBitmap(ImageView imageView) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Bitmap bitmap = getBitmap(imageView);
+            if (bitmap != null) {
+                return bitmap;
+            }
+            Thread.sleep(10);
+        }
+        Bitmap bitmap = getBitmap(imageView);
+        assertNotNull(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Return the bitmap the view shows, or null when it shows none.
+     */
+    private static Bitmap getBitmap(final ImageView imageView) {
+        final Bitmap[] bitmap = new Bitmap[1];
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                Drawable drawable = imageView.getDrawable();
+                if (drawable instanceof BitmapDrawable) {
+                    bitmap[0] = ((BitmapDrawable) drawable).getBitmap();
+                }
+            }
+        });
+        return bitmap[0];
+    }
+
+    private static void runOnMainThread(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    /**
+     * Return a PNG image of the size of the views.
+     */
+    private static byte[] createImage() {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.RGB_565);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        bitmap.recycle();
+        return out.toByteArray();
+    }
+}
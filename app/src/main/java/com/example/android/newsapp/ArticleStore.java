@@ -0,0 +1,322 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A local database of every {@link News} the app has fetched, so the sections can still
+ * be read without an Internet connection.
+ * <p>
+ * The news of a section are indexed by publication time, newest first. A page that follows
+ * the one read before starts right after the last news of that page, instead of skipping
+ * rows, so reading deep into a section of tens of thousands of news stays as fast as
+ * reading its first page.
+ */
+public class ArticleStore extends SQLiteOpenHelper {
+    /**
+     * Name of the database file.
+     */
+    private static final String DATABASE_NAME = "articles.db";
+
+    /**
+     * Version 2 adds the thumbnail of the news.
+     */
+    private static final int DATABASE_VERSION = 2;
+
+    /**
+     * Maximum number of stored news, the oldest saved ones are deleted first.
+     */
+    private static final int MAX_ARTICLES = 50000;
+
+    /**
+     * Name of the section when the overview, which has no section, is stored.
+     */
+    private static final String OVERVIEW_SECTION = "overview";
+
+    private static final String TABLE_ARTICLES = "articles";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_TIME = "time";
+    private static final String COLUMN_TIME_MILLIS = "time_millis";
+    private static final String COLUMN_THUMBNAIL = "thumbnail";
+    private static final String COLUMN_SAVED_AT = "saved_at";
+
+    /**
+     * Store shared by the whole app.
+     */
+    private static ArticleStore sInstance;
+
+    /**
+     * The last news of the pages read so far, by section, page size and page, where the next
+     * page starts.
+     */
+    private final Map<String, PageEnd> mPageEnds = new HashMap<>();
+
+    /**
+     * Where a page read from the store ends.
+     */
+    private static class PageEnd {
+        final long timeInMillis;
+        final String url;
+
+        PageEnd(long timeInMillis, String url) {
+            this.timeInMillis = timeInMillis;
+            this.url = url;
+        }
+    }
+
+    /**
+     * Create a new {@link ArticleStore} object.
+     *
+     * @param context is the context of the app.
+     * @param name    is the name of the database file, or null for an in-memory database.
+     */
+    public ArticleStore(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Return the store shared by the whole app.
+     */
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return sInstance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_SECTION + " TEXT NOT NULL, "
+                + COLUMN_URL + " TEXT NOT NULL, "
+                + COLUMN_TITLE + " TEXT NOT NULL, "
+                + COLUMN_TIME + " TEXT NOT NULL, "
+                + COLUMN_TIME_MILLIS + " INTEGER NOT NULL, "
+                + COLUMN_THUMBNAIL + " TEXT, "
+                + COLUMN_SAVED_AT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_SECTION + ", " + COLUMN_URL + "))");
+        // Pages of a section are read newest first, the URL breaks the ties.
+        db.execSQL("CREATE INDEX articles_by_time ON " + TABLE_ARTICLES + " ("
+                + COLUMN_SECTION + ", " + COLUMN_TIME_MILLIS + " DESC, " + COLUMN_URL + " DESC)");
+        // The oldest saved news are deleted first when the store is full.
+        db.execSQL("CREATE INDEX articles_by_saved_at ON " + TABLE_ARTICLES + " ("
+                + COLUMN_SAVED_AT + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The store only holds copies of the news of the API, start over.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        onCreate(db);
+    }
+
+    /**
+     * Save the given news of the section, replacing the ones with the same URL.
+     * This is on a background thread.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param newsList is the list of news.
+     */
+    public void put(String section, List<News> newsList) {
+        SQLiteDatabase db = getWritableDatabase();
+        long now = System.currentTimeMillis();
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO "
+                + TABLE_ARTICLES + " (" + COLUMN_SECTION + ", " + COLUMN_URL + ", "
+                + COLUMN_TITLE + ", " + COLUMN_TIME + ", " + COLUMN_TIME_MILLIS + ", "
+                + COLUMN_THUMBNAIL + ", " + COLUMN_SAVED_AT + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (News news : newsList) {
+                statement.clearBindings();
+                statement.bindString(1, keyOf(section));
+                statement.bindString(2, news.getUrl());
+                statement.bindString(3, news.getTitle());
+                statement.bindString(4, news.getTime());
+                statement.bindLong(5, news.getTimeInMillis());
+                if (news.getThumbnailUrl() == null) {
+                    statement.bindNull(6);
+                } else {
+                    statement.bindString(6, news.getThumbnailUrl());
+                }
+                statement.bindLong(7, now);
+                statement.executeInsert();
+            }
+            trimToSize(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+    }
+
+    /**
+     * Return the given page of the section, newest first, or an empty list when there are
+     * no more news. This is on a background thread.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param page     is the page of news, starting at one.
+     * @param pageSize is the number of news on a page.
+     */
+    public List<News> getPage(String section, int page, int pageSize) {
+        String key = keyOf(section);
+        PageEnd previousEnd = page > 1 ? getPageEnd(key, pageSize, page - 1) : null;
+
+        String selection;
+        String[] selectionArgs;
+        String limit;
+        if (previousEnd != null) {
+            // Start right after the previous page, the index finds it without a scan.
+            selection = COLUMN_SECTION + " = ? AND (" + COLUMN_TIME_MILLIS + " < ? OR ("
+                    + COLUMN_TIME_MILLIS + " = ? AND " + COLUMN_URL + " < ?))";
+            String timeInMillis = Long.toString(previousEnd.timeInMillis);
+            selectionArgs = new String[]{key, timeInMillis, timeInMillis, previousEnd.url};
+            limit = Integer.toString(pageSize);
+        } else {
+            // The previous page wasn't read, like after the process restarted, skip the rows.
+            selection = COLUMN_SECTION + " = ?";
+            selectionArgs = new String[]{key};
+            limit = (page - 1) * pageSize + ", " + pageSize;
+        }
+
+        List<News> newsList = new ArrayList<>(pageSize);
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES,
+                new String[]{COLUMN_TITLE, COLUMN_TIME, COLUMN_URL, COLUMN_THUMBNAIL,
+                        COLUMN_TIME_MILLIS},
+                selection, selectionArgs, null, null,
+                COLUMN_TIME_MILLIS + " DESC, " + COLUMN_URL + " DESC", limit);
+        try {
+            while (cursor.moveToNext()) {
+                newsList.add(new News(cursor.getString(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getString(3)));
+            }
+            if (cursor.moveToLast()) {
+                setPageEnd(key, pageSize, page,
+                        new PageEnd(cursor.getLong(4), cursor.getString(2)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return newsList;
+    }
+
+    /**
+     * Return the newest stored news of every section, each one once.
+     * This is on a background thread.
+     *
+     * @param limit is the maximum number of news.
+     */
+    public List<News> getLatest(int limit) {
+        List<News> newsList = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES,
+                new String[]{COLUMN_TITLE, COLUMN_TIME, COLUMN_URL, COLUMN_THUMBNAIL}, null, null,
+                COLUMN_URL, null, "MAX(" + COLUMN_TIME_MILLIS + ") DESC", Integer.toString(limit));
+        try {
+            while (cursor.moveToNext()) {
+                newsList.add(new News(cursor.getString(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getString(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return newsList;
+    }
+
+    /**
+     * Return the stored news of the given URLs, in the same order, like the results of the
+     * {@link HeadlineIndex}. The news no longer stored are left out.
+     * This is on a background thread.
+     *
+     * @param urls is the list of URLs of the news.
+     */
+    public List<News> getByUrls(List<String> urls) {
+        if (urls.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < urls.size(); i++) {
+            placeholders.append(", ?");
+        }
+        // A news of several sections is stored once per section, any of them will do.
+        Map<String, News> newsByUrl = new HashMap<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES,
+                new String[]{COLUMN_TITLE, COLUMN_TIME, COLUMN_URL, COLUMN_THUMBNAIL},
+                COLUMN_URL + " IN (" + placeholders + ")", urls.toArray(new String[0]),
+                COLUMN_URL, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                newsByUrl.put(cursor.getString(2), new News(cursor.getString(0),
+                        cursor.getString(1), cursor.getString(2), cursor.getString(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+        List<News> newsList = new ArrayList<>(newsByUrl.size());
+        for (String url : urls) {
+            News news = newsByUrl.get(url);
+            if (news != null) {
+                newsList.add(news);
+            }
+        }
+        return newsList;
+    }
+
+    /**
+     * Return the number of stored news of the given section.
+     *
+     * @param section is the section of news, null means the overview.
+     */
+    public long count(String section) {
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + TABLE_ARTICLES
+                + " WHERE " + COLUMN_SECTION + " = ?", new String[]{keyOf(section)});
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Delete every stored news.
+     */
+    public void clear() {
+        getWritableDatabase().delete(TABLE_ARTICLES, null, null);
+        synchronized (mPageEnds) {
+            mPageEnds.clear();
+        }
+    }
+
+    /**
+     * Delete the oldest saved news until the store holds at most {@link #MAX_ARTICLES}.
+     */
+    private static void trimToSize(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_ARTICLES + " WHERE " + COLUMN_SAVED_AT + " < ("
+                + "SELECT " + COLUMN_SAVED_AT + " FROM " + TABLE_ARTICLES
+                + " ORDER BY " + COLUMN_SAVED_AT + " DESC LIMIT 1 OFFSET " + MAX_ARTICLES + ")");
+    }
+
+    private PageEnd getPageEnd(String key, int pageSize, int page) {
+        synchronized (mPageEnds) {
+            return mPageEnds.get(key + "_" + pageSize + "_" + page);
+        }
+    }
+
+    private void setPageEnd(String key, int pageSize, int page, PageEnd pageEnd) {
+        synchronized (mPageEnds) {
+            mPageEnds.put(key + "_" + pageSize + "_" + page, pageEnd);
+        }
+    }
+
+    private static String keyOf(String section) {
+        return section == null ? OVERVIEW_SECTION : section;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.android.newsapp;
+
+/**
+ * Tells a load running on a background thread that its result isn't needed anymore.
+ * <p>
+ * The load checks {@link #isCancelled()} between its steps, and registers a listener to abort
+ * a blocking step, like reading the response of a request, as soon as it is cancelled.
+ */
+public class CancellationToken {
+    /**
+     * Called when the token is cancelled, on the thread that cancels it.
+     */
+    public interface OnCancelListener {
+        void onCancel();
+    }
+
+    private boolean mCancelled;
+
+    private OnCancelListener mOnCancelListener;
+
+    /**
+     * Cancel the load and call the listener. Calling it again does nothing.
+     */
+    public void cancel() {
+        OnCancelListener onCancelListener;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            onCancelListener = mOnCancelListener;
+            mOnCancelListener = null;
+            // Wake up the threads waiting in sleep().
+            notifyAll();
+        }
+        if (onCancelListener != null) {
+            onCancelListener.onCancel();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Wait for the given milliseconds, and stop waiting as soon as the token is cancelled
+     * or the thread is interrupted.
+     *
+     * @return true when the whole time passed, false when the wait was cut short.
+     */
+    public synchronized boolean sleep(long millis) {
+        long deadline = System.nanoTime() + millis * 1000000;
+        long remaining = millis;
+        try {
+            while (!mCancelled && remaining > 0) {
+                wait(remaining);
+                remaining = (deadline - System.nanoTime()) / 1000000;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !mCancelled;
+    }
+
+    /**
+     * Set the listener called when the token is cancelled, or null to remove it.
+     * The listener is called right away when the token is already cancelled.
+     */
+    public void setOnCancelListener(OnCancelListener onCancelListener) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mOnCancelListener = onCancelListener;
+                return;
+            }
+        }
+        if (onCancelListener != null) {
+            onCancelListener.onCancel();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.android.newsapp;
+
+/**
+ * Stops sending news requests for a while after several of them failed in a row,
+ * so the app doesn't keep hammering the API while it is down.
+ * <p>
+ * Once the open duration has passed, a single trial request is let through. The breaker
+ * closes again when it succeeds, and stays open for another duration when it fails.
+ */
+public class CircuitBreaker {
+    /**
+     * Default number of failures in a row that opens the breaker.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time in milliseconds the breaker stays open, thirty seconds.
+     */
+    public static final long DEFAULT_OPEN_DURATION = 30 * 1000;
+
+    private final int mFailureThreshold;
+    private final long mOpenDuration;
+
+    /**
+     * Number of failures in a row.
+     */
+    private int mFailureCount;
+
+    /**
+     * When the breaker opened in nanoseconds, only meaningful while it is open.
+     */
+    private long mOpenedAt;
+
+    private boolean mIsOpen;
+
+    /**
+     * Whether the trial request of the half open breaker is in flight.
+     */
+    private boolean mIsTrialInFlight;
+
+    /**
+     * Create a new {@link CircuitBreaker} object.
+     *
+     * @param failureThreshold is the number of failures in a row that opens the breaker.
+     * @param openDuration     is the time in milliseconds the breaker stays open.
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration) {
+        mFailureThreshold = failureThreshold;
+        mOpenDuration = openDuration;
+    }
+
+    /**
+     * Return the breaker with the default settings.
+     */
+    public static CircuitBreaker createDefault() {
+        return new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * Return whether a request can be sent now. When it returns true, the caller must
+     * report the result of the request with {@link #recordSuccess()} or {@link #recordFailure()}.
+     */
+    public synchronized boolean allowRequest() {
+        if (!mIsOpen) {
+            return true;
+        }
+        if ((System.nanoTime() - mOpenedAt) / 1000000 < mOpenDuration || mIsTrialInFlight) {
+            return false;
+        }
+        // Half open, let a single request find out whether the API is back.
+        mIsTrialInFlight = true;
+        return true;
+    }
+
+    /**
+     * Report a request that got an answer from the API, which closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        mFailureCount = 0;
+        mIsOpen = false;
+        mIsTrialInFlight = false;
+    }
+
+    /**
+     * Report a request that failed, which opens the breaker when there were enough
+     * failures in a row, or when it was the trial request.
+     */
+    public synchronized void recordFailure() {
+        mFailureCount++;
+        if (mIsTrialInFlight || mFailureCount >= mFailureThreshold) {
+            mIsOpen = true;
+            mIsTrialInFlight = false;
+            mOpenedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Report a request that was cancelled before it got an answer, which tells nothing
+     * about the API. A cancelled trial request lets the next request be the trial.
+     */
+    public synchronized void recordCancelled() {
+        mIsTrialInFlight = false;
+    }
+
+    public synchronized boolean isOpen() {
+        return mIsOpen;
+    }
+
+    /**
+     * Close the breaker and forget the failures.
+     */
+    public synchronized void reset() {
+        recordSuccess();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.newsapp;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the validators (ETag and Last-Modified) of the latest responses together with
+ * the news parsed from them, so a request can be made conditional and a 304 Not Modified
+ * response can reuse the last parsed page.
+ * <p>
+ * Only the most recently used URLs are kept in memory.
+ */
+public class ConditionalRequestCache {
+    /**
+     * A parsed response and the validators the server sent with it.
+     */
+    public static class Entry {
+        /**
+         * Value of the ETag header, or null.
+         */
+        public final String eTag;
+
+        /**
+         * Value of the Last-Modified header, or null.
+         */
+        public final String lastModified;
+
+        /**
+         * The list of news parsed from the response.
+         */
+        public final List<News> newsList;
+
+        /**
+         * Size in bytes of the decoded response body.
+         */
+        public final long bodySize;
+
+        public Entry(String eTag, String lastModified, List<News> newsList, long bodySize) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.newsList = newsList;
+            this.bodySize = bodySize;
+        }
+    }
+
+    /**
+     * Entries in access order, so the eldest one is the least recently used.
+     */
+    private final LinkedHashMap<String, Entry> mEntries;
+
+    /**
+     * Create a new {@link ConditionalRequestCache} object.
+     *
+     * @param maxEntries is the number of URLs to remember.
+     */
+    public ConditionalRequestCache(final int maxEntries) {
+        mEntries = new LinkedHashMap<String, Entry>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the entry of the given URL, or null when there is none.
+     */
+    public synchronized Entry get(String url) {
+        return mEntries.get(url);
+    }
+
+    /**
+     * Save the entry of the given URL, replacing the previous one.
+     */
+    public synchronized void put(String url, Entry entry) {
+        mEntries.put(url, entry);
+    }
+}
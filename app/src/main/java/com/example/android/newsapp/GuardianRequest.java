@@ -0,0 +1,236 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+/**
+ * A request for a page of news of the search endpoint of the Guardian API.
+ * <p>
+ * It holds every parameter the app sends, and builds the request URL from them. The
+ * section, page and page size are also what the pages are cached and stored by, so a
+ * page is always looked up with the same page size it was requested with.
+ */
+public class GuardianRequest {
+    /**
+     * URL of the search endpoint of the Guardian API.
+     */
+    public static final String BASE_URL = "https://content.guardianapis.com/search";
+
+    /**
+     * Number of news on a page when no page size is sent, the default of the API.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    /**
+     * Largest page size the API accepts.
+     */
+    public static final int MAX_PAGE_SIZE = 50;
+
+    /**
+     * Orders of the results that the API accepts.
+     */
+    public static final String ORDER_BY_NEWEST = "newest";
+    public static final String ORDER_BY_OLDEST = "oldest";
+    public static final String ORDER_BY_RELEVANCE = "relevance";
+
+    /**
+     * Field of the URL of the thumbnail image of a result.
+     */
+    public static final String FIELD_THUMBNAIL = "thumbnail";
+
+    /**
+     * Key of the API.
+     */
+    private static final String API_KEY = "test";
+
+    private final String mBaseUrl;
+    private final String mSection;
+    private final int mPage;
+    private final int mPageSize;
+    private final List<String> mShowFields;
+    private final String mOrderBy;
+
+    private GuardianRequest(Builder builder) {
+        mBaseUrl = builder.mBaseUrl;
+        mSection = builder.mSection;
+        mPage = builder.mPage;
+        mPageSize = builder.mPageSize;
+        mShowFields = Collections.unmodifiableList(new ArrayList<>(builder.mShowFields));
+        mOrderBy = builder.mOrderBy;
+    }
+
+    /**
+     * Return the section of news, null means the overview.
+     */
+    public String getSection() {
+        return mSection;
+    }
+
+    /**
+     * Return the page of news, starting at one.
+     */
+    public int getPage() {
+        return mPage;
+    }
+
+    /**
+     * Return the number of news on a page.
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * Return the fields asked for on top of the ones every result has.
+     */
+    public List<String> getShowFields() {
+        return mShowFields;
+    }
+
+    public String getOrderBy() {
+        return mOrderBy;
+    }
+
+    /**
+     * Return a builder that starts with the parameters of this request, like to ask for
+     * the next page of the same list.
+     */
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Return the same request for the given page.
+     */
+    public GuardianRequest withPage(int page) {
+        return newBuilder().page(page).build();
+    }
+
+    /**
+     * Return the request URL.
+     */
+    public String toUrl() {
+        HttpUrl.Builder urlBuilder = HttpUrl.get(mBaseUrl).newBuilder();
+        // Only section has value, append query parameter to the URL.
+        if (mSection != null) {
+            urlBuilder.addQueryParameter("section", mSection);
+        }
+        urlBuilder.addQueryParameter("page", Integer.toString(mPage));
+        // The API's own default is left out, so the URL of the default page stays the same.
+        if (mPageSize != DEFAULT_PAGE_SIZE) {
+            urlBuilder.addQueryParameter("page-size", Integer.toString(mPageSize));
+        }
+        if (!mShowFields.isEmpty()) {
+            StringBuilder showFields = new StringBuilder();
+            for (String field : mShowFields) {
+                if (showFields.length() > 0) {
+                    showFields.append(',');
+                }
+                showFields.append(field);
+            }
+            urlBuilder.addQueryParameter("show-fields", showFields.toString());
+        }
+        if (mOrderBy != null) {
+            urlBuilder.addQueryParameter("order-by", mOrderBy);
+        }
+        urlBuilder.addQueryParameter("format", "json");
+        urlBuilder.addQueryParameter("api-key", API_KEY);
+        return urlBuilder.build().toString();
+    }
+
+    @Override
+    public String toString() {
+        return toUrl();
+    }
+
+    /**
+     * Builds a {@link GuardianRequest}. By default it asks for the first page of the
+     * overview, with the page size of the API, the newest news first.
+     */
+    public static class Builder {
+        private String mBaseUrl = BASE_URL;
+        private String mSection;
+        private int mPage = 1;
+        private int mPageSize = DEFAULT_PAGE_SIZE;
+        private final List<String> mShowFields = new ArrayList<>();
+        private String mOrderBy = ORDER_BY_NEWEST;
+
+        public Builder() {
+        }
+
+        private Builder(GuardianRequest request) {
+            mBaseUrl = request.mBaseUrl;
+            mSection = request.mSection;
+            mPage = request.mPage;
+            mPageSize = request.mPageSize;
+            mShowFields.addAll(request.mShowFields);
+            mOrderBy = request.mOrderBy;
+        }
+
+        /**
+         * Send the request to another server, like a local one in the tests.
+         */
+        public Builder baseUrl(String baseUrl) {
+            if (HttpUrl.parse(baseUrl) == null) {
+                throw new IllegalArgumentException("Invalid base URL: " + baseUrl);
+            }
+            mBaseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * @param section is the section of news, null means the overview.
+         */
+        public Builder section(String section) {
+            mSection = section;
+            return this;
+        }
+
+        /**
+         * @param page is the page of news, starting at one.
+         */
+        public Builder page(int page) {
+            if (page < 1) {
+                throw new IllegalArgumentException("page < 1: " + page);
+            }
+            mPage = page;
+            return this;
+        }
+
+        /**
+         * @param pageSize is the number of news on a page, from one to {@link #MAX_PAGE_SIZE}.
+         */
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("pageSize out of range: " + pageSize);
+            }
+            mPageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Ask for the given fields, like "thumbnail", on top of the ones every result has.
+         * None are asked for by default, every extra field makes the response bigger.
+         */
+        public Builder showFields(String... fields) {
+            mShowFields.clear();
+            Collections.addAll(mShowFields, fields);
+            return this;
+        }
+
+        /**
+         * @param orderBy is one of the ORDER_BY constants, null for the order of the API.
+         */
+        public Builder orderBy(String orderBy) {
+            mOrderBy = orderBy;
+            return this;
+        }
+
+        public GuardianRequest build() {
+            return new GuardianRequest(this);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.android.newsapp;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An in-memory inverted index of the titles of the {@link News} the app has fetched,
+ * to search them without any request.
+ * <p>
+ * Only the words of the titles are kept, with the URL and the time of every news, a search
+ * returns the URLs of the results, whose news are read from the {@link ArticleStore}.
+ * <p>
+ * Titles are split into lower case words without accents. Every word of a query must
+ * start a word of the title. A news ranks higher when more of the query words match a whole
+ * word rather than its beginning, and then when it is newer.
+ * <p>
+ * News are added as they are fetched. The methods are synchronized, a search doesn't see
+ * a half added page. Many news are added a batch at a time, so a search waits at most for
+ * one batch. Searches read the store, so they run on a background thread.
+ */
+public class HeadlineIndex {
+    /**
+     * Default maximum number of results of a search.
+     */
+    public static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * Score of a query word that matches a whole word of the title.
+     */
+    private static final int EXACT_MATCH_SCORE = 2;
+
+    /**
+     * Score of a query word that only matches the beginning of a word of the title.
+     */
+    private static final int PREFIX_MATCH_SCORE = 1;
+
+    /**
+     * Number of news added at a time, before the searches waiting for the index get their turn.
+     */
+    private static final int ADD_BATCH_SIZE = 200;
+
+    /**
+     * Index shared by the whole app.
+     */
+    private static HeadlineIndex sInstance;
+
+    /**
+     * URL of the indexed news, the position of a news is its id.
+     */
+    private final List<String> mUrls = new ArrayList<>();
+
+    /**
+     * Time in milliseconds of the indexed news, by id, to rank the newer ones first.
+     */
+    private long[] mTimes = new long[16];
+
+    /**
+     * The id of every indexed news, by URL, so a news is only indexed once.
+     */
+    private final Map<String, Integer> mIds = new HashMap<>();
+
+    /**
+     * The ids of the news whose title holds each word, sorted by word for prefix lookups.
+     */
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+
+    /**
+     * Score of each news for the query being searched, reused between searches.
+     */
+    private int[] mScores = new int[0];
+
+    /**
+     * Number of query words each news matched, reused between searches.
+     */
+    private int[] mMatchCounts = new int[0];
+
+    /**
+     * Ids of news in ascending order, without duplicates, which grows as news are added.
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            // A title can hold the same word twice.
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Return the index shared by the whole app.
+     */
+    public static synchronized HeadlineIndex getInstance() {
+        if (sInstance == null) {
+            sInstance = new HeadlineIndex();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Add the given news to the index, the ones already indexed are skipped.
+     */
+    public void addAll(List<News> newsList) {
+        for (int from = 0; from < newsList.size(); from += ADD_BATCH_SIZE) {
+            addBatch(newsList.subList(from, Math.min(from + ADD_BATCH_SIZE, newsList.size())));
+        }
+    }
+
+    private synchronized void addBatch(List<News> newsList) {
+        for (News news : newsList) {
+            if (mIds.containsKey(news.getUrl())) {
+                continue;
+            }
+            int id = mUrls.size();
+            mUrls.add(news.getUrl());
+            if (id == mTimes.length) {
+                mTimes = Arrays.copyOf(mTimes, id * 2);
+            }
+            mTimes[id] = news.getTimeInMillis();
+            mIds.put(news.getUrl(), id);
+            for (String word : tokenize(news.getTitle())) {
+                Postings postings = mPostings.get(word);
+                if (postings == null) {
+                    postings = new Postings();
+                    mPostings.put(word, postings);
+                }
+                postings.add(id);
+            }
+        }
+    }
+
+    /**
+     * Return the number of indexed news.
+     */
+    public synchronized int size() {
+        return mUrls.size();
+    }
+
+    /**
+     * Return the URLs of the news whose title matches every word of the query, best first.
+     *
+     * @param query is the text users typed.
+     * @param limit is the maximum number of results.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // The same word typed twice only counts once.
+        words = new ArrayList<>(new LinkedHashSet<>(words));
+        if (mScores.length < mUrls.size()) {
+            mScores = new int[mUrls.size()];
+            mMatchCounts = new int[mUrls.size()];
+        }
+
+        // Count the query words each news matches, and add up their scores. Only the news
+        // that match the first word can match them all, they are the candidates.
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            SortedMap<String, Postings> matches =
+                    mPostings.subMap(word, word + Character.MAX_VALUE);
+            for (Map.Entry<String, Postings> match : matches.entrySet()) {
+                int score = match.getKey().length() == word.length()
+                        ? EXACT_MATCH_SCORE : PREFIX_MATCH_SCORE;
+                Postings postings = match.getValue();
+                for (int j = 0; j < postings.size; j++) {
+                    int id = postings.ids[j];
+                    if (mMatchCounts[id] == i) {
+                        // First title word matching this query word.
+                        if (i == 0) {
+                            candidates.add(id);
+                        }
+                        mMatchCounts[id] = i + 1;
+                        mScores[id] += score;
+                    } else if (mMatchCounts[id] == i + 1 && score == EXACT_MATCH_SCORE) {
+                        // A whole word beats the beginning of another word of the same title.
+                        mScores[id] += EXACT_MATCH_SCORE - PREFIX_MATCH_SCORE;
+                    }
+                }
+            }
+        }
+
+        // Keep the news that matched every word.
+        List<Integer> ids = new ArrayList<>();
+        for (int id : candidates) {
+            if (mMatchCounts[id] == words.size()) {
+                ids.add(id);
+            }
+        }
+        List<String> results = rank(ids, mScores, limit);
+        // Reset the scores for the next search.
+        for (int id : candidates) {
+            mMatchCounts[id] = 0;
+            mScores[id] = 0;
+        }
+        return results;
+    }
+
+    /**
+     * Return the URLs of the best news of the given ids, by score then by time.
+     */
+    private List<String> rank(List<Integer> ids, final int[] scores, int limit) {
+        Collections.sort(ids, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (scores[a] != scores[b]) {
+                    return scores[a] > scores[b] ? -1 : 1;
+                }
+                long timeA = mTimes[a];
+                long timeB = mTimes[b];
+                return timeA > timeB ? -1 : (timeA < timeB ? 1 : 0);
+            }
+        });
+        List<String> results = new ArrayList<>(Math.min(limit, ids.size()));
+        for (int i = 0; i < ids.size() && i < limit; i++) {
+            results.add(mUrls.get(ids.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * Split the given text into lower case words without accents.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // The accent of the previous letter.
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A persistent cache of downloaded images, keyed by URL, whose total size in bytes is
+ * bounded.
+ * <p>
+ * Every image is stored in its own file, named after a hash of its URL. The files are
+ * kept in memory from the least to the most recently used, so an image is evicted
+ * without listing the directory. The order is read back from the modification times of
+ * the files the first time the cache is used.
+ */
+public class ImageDiskCache {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = ImageDiskCache.class.getSimpleName();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Directory that holds one file for each cached image.
+     */
+    private final File mDirectory;
+
+    /**
+     * Maximum size in bytes of all the cached images.
+     */
+    private final long mMaxSize;
+
+    /**
+     * Size in bytes of the cached files, by name, from the least to the most recently used.
+     * Null until the directory was read.
+     */
+    private LinkedHashMap<String, Long> mFiles;
+
+    /**
+     * Size in bytes of all the cached images.
+     */
+    private long mSize;
+
+    /**
+     * Create a new {@link ImageDiskCache} object.
+     *
+     * @param directory is the directory to store the images in.
+     * @param maxSize   is the maximum size in bytes of all the cached images.
+     */
+    public ImageDiskCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Return the cached image of the given URL, or null when it isn't cached.
+     */
+    public synchronized byte[] get(String url) {
+        String name = nameOf(url);
+        if (getFiles().get(name) == null) {
+            return null;
+        }
+        File file = new File(mDirectory, name);
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            // Mark the image as recently used, here and for the next process.
+            file.setLastModified(System.currentTimeMillis());
+            return out.toByteArray();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the cached image.", e);
+            remove(name);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Save the image of the given URL, and evict the least recently used images if the cache
+     * is too large. An image larger than the cache isn't saved.
+     */
+    public synchronized void put(String url, byte[] bytes) {
+        if (bytes.length > mMaxSize) {
+            return;
+        }
+        Map<String, Long> files = getFiles();
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Problem creating the image cache directory.");
+            return;
+        }
+
+        // Write to a temporary file first, so a reader never sees a half written image.
+        String name = nameOf(url);
+        File file = new File(mDirectory, name);
+        File tmpFile = new File(mDirectory, name + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tmpFile);
+            out.write(bytes);
+            out.close();
+            out = null;
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Can't rename " + tmpFile);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the cached image.", e);
+            tmpFile.delete();
+            return;
+        } finally {
+            closeQuietly(out);
+        }
+
+        Long previousLength = files.put(name, (long) bytes.length);
+        mSize += bytes.length - (previousLength == null ? 0 : previousLength);
+        trimToSize();
+    }
+
+    /**
+     * Return the size in bytes of all the cached images.
+     */
+    public synchronized long size() {
+        getFiles();
+        return mSize;
+    }
+
+    /**
+     * Read the cached files from the directory, the first time the cache is used.
+     */
+    private Map<String, Long> getFiles() {
+        if (mFiles != null) {
+            return mFiles;
+        }
+        mFiles = new LinkedHashMap<>(64, 0.75f, true);
+        mSize = 0;
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return mFiles;
+        }
+        // Sort the images from the least to the most recently used.
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                // Left by a process killed while it was writing.
+                file.delete();
+                continue;
+            }
+            mFiles.put(file.getName(), file.length());
+            mSize += file.length();
+        }
+        return mFiles;
+    }
+
+    /**
+     * Delete the least recently used images until the cache fits in its maximum size.
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mFiles.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            new File(mDirectory, entry.getKey()).delete();
+            mSize -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void remove(String name) {
+        Long length = mFiles.remove(name);
+        if (length != null) {
+            mSize -= length;
+        }
+        new File(mDirectory, name).delete();
+    }
+
+    /**
+     * Return the name of the file of the given URL, the hex SHA-1 of the URL.
+     */
+    static String nameOf(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(url.getBytes(Charset.forName("UTF-8")));
+            char[] name = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                name[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                name[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+            return new String(name);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-1.
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Close the given stream, ignoring the IOException because there is nothing left to save.
+     */
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem closing the cached image file.", e);
+            }
+        }
+    }
+}
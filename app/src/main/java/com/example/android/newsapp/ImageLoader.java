@@ -0,0 +1,490 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Loads the thumbnails of the news into image views, without blocking the main thread.
+ * <p>
+ * An image is downloaded once into the {@link ImageDiskCache}, then decoded on a background
+ * thread, downsampled to the size of its view, and kept in a memory cache bounded in bytes.
+ * The bitmaps evicted from the memory cache are decoded into again once no view shows them,
+ * so scrolling doesn't allocate a bitmap for every row.
+ * <p>
+ * Views that ask for the same image at the same size share a single load. Loading another
+ * image into a view, or cancelling it when its row is recycled, drops the view from its
+ * load, and a load no view waits for anymore is cancelled, even in the middle of the
+ * download.
+ * <p>
+ * {@link #load(String, ImageView, int, int)} and {@link #cancel(ImageView)} must be called on
+ * the main thread.
+ */
+public class ImageLoader {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = ImageLoader.class.getSimpleName();
+
+    /**
+     * Maximum size in bytes of the downloaded images, ten megabytes.
+     */
+    private static final long DISK_CACHE_SIZE = 10 * 1024 * 1024;
+
+    /**
+     * Part of the memory of the app the decoded images can use.
+     */
+    private static final int MEMORY_CACHE_FRACTION = 8;
+
+    /**
+     * Number of images decoded at the same time.
+     */
+    private static final int THREAD_COUNT = 2;
+
+    /**
+     * Maximum number of bitmaps kept to decode into.
+     */
+    private static final int MAX_REUSABLE_BITMAPS = 8;
+
+    /**
+     * Loader shared by the whole app.
+     */
+    private static ImageLoader sInstance;
+
+    private final ImageDiskCache mDiskCache;
+
+    /**
+     * The decoded images, by URL and size.
+     */
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The loads that are running or waiting for a thread, by URL and size.
+     */
+    private final Map<String, ImageRequest> mRequests = new HashMap<>();
+
+    /**
+     * The load every view waits for.
+     */
+    private final Map<ImageView, ImageRequest> mViewRequests = new WeakHashMap<>();
+
+    /**
+     * The bitmap every view shows.
+     */
+    private final Map<ImageView, Bitmap> mShownBitmaps = new WeakHashMap<>();
+
+    /**
+     * Guards the counts of views and the bitmaps to decode into, which the memory cache
+     * changes on background threads when it evicts a bitmap.
+     */
+    private final Object mReuseLock = new Object();
+
+    /**
+     * Number of views that show each bitmap.
+     */
+    private final Map<Bitmap, Integer> mViewCounts = new IdentityHashMap<>();
+
+    /**
+     * Bitmaps evicted from the memory cache while a view still shows them.
+     */
+    private final Set<Bitmap> mEvictedShownBitmaps =
+            Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+    /**
+     * Bitmaps that no view shows and the memory cache doesn't hold, to decode into.
+     */
+    private final List<Bitmap> mReusableBitmaps = new ArrayList<>();
+
+    /**
+     * A load of an image at a size, and the views that wait for it.
+     */
+    private class ImageRequest implements Runnable {
+        final String key;
+        final String url;
+        final int width;
+        final int height;
+        final List<ImageView> views = new ArrayList<>();
+        final CancellationToken cancellationToken = new CancellationToken();
+        Future<?> future;
+
+        ImageRequest(String key, String url, int width, int height) {
+            this.key = key;
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * This is on a background thread.
+         */
+        @Override
+        public void run() {
+            final Bitmap bitmap = cancellationToken.isCancelled() ? null : loadBitmap(this);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onLoaded(ImageRequest.this, bitmap);
+                }
+            });
+        }
+    }
+
+    /**
+     * Create a new {@link ImageLoader} object.
+     *
+     * @param diskCache      keeps the downloaded images.
+     * @param memoryMaxBytes is the maximum size in bytes of the decoded images kept in memory.
+     */
+    public ImageLoader(ImageDiskCache diskCache, int memoryMaxBytes) {
+        mDiskCache = diskCache;
+        mMemoryCache = new LruCache<String, Bitmap>(memoryMaxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                onRemovedFromMemory(oldValue);
+            }
+        };
+        mExecutor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Return the loader shared by the whole app, which keeps the images in the cache directory
+     * of the app.
+     */
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), "images");
+            int memoryMaxBytes = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_FRACTION);
+            sInstance = new ImageLoader(new ImageDiskCache(directory, DISK_CACHE_SIZE),
+                    memoryMaxBytes);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Show the image of the given URL in the view, downsampled to the given size. The view is
+     * empty until the image is loaded, and stays empty when it fails to load.
+     *
+     * @param url       is the URL of the image.
+     * @param imageView is the view to show it in.
+     * @param width     is the width of the view in pixels.
+     * @param height    is the height of the view in pixels.
+     */
+    public void load(String url, ImageView imageView, int width, int height) {
+        String key = url + "@" + width + "x" + height;
+        ImageRequest previousRequest = mViewRequests.get(imageView);
+        if (previousRequest != null && previousRequest.key.equals(key)) {
+            // The view already waits for this image.
+            return;
+        }
+        cancel(imageView);
+
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            show(imageView, bitmap);
+            return;
+        }
+        ImageRequest request = mRequests.get(key);
+        if (request == null) {
+            request = new ImageRequest(key, url, width, height);
+            mRequests.put(key, request);
+            request.future = mExecutor.submit(request);
+        }
+        request.views.add(imageView);
+        mViewRequests.put(imageView, request);
+    }
+
+    /**
+     * Remove the image of the view, and cancel its load when no other view waits for it, like
+     * when the row of the view is recycled.
+     */
+    public void cancel(ImageView imageView) {
+        show(imageView, null);
+        ImageRequest request = mViewRequests.remove(imageView);
+        if (request == null) {
+            return;
+        }
+        request.views.remove(imageView);
+        if (request.views.isEmpty()) {
+            mRequests.remove(request.key);
+            request.cancellationToken.cancel();
+            // Drop it from the queue when it didn't start, without interrupting it when it did.
+            request.future.cancel(false);
+        }
+    }
+
+    /**
+     * Return the number of loads running or waiting for a thread. This is on the main thread.
+     */
+    int getLoadCount() {
+        return mRequests.size();
+    }
+
+    /**
+     * Return the number of bitmaps evicted from the memory cache that views still show.
+     */
+    int getEvictedShownCount() {
+        synchronized (mReuseLock) {
+            return mEvictedShownBitmaps.size();
+        }
+    }
+
+    /**
+     * Return the number of bitmaps kept to decode into.
+     */
+    int getReusableCount() {
+        synchronized (mReuseLock) {
+            return mReusableBitmaps.size();
+        }
+    }
+
+    /**
+     * Called on the main thread when a load ends, with the bitmap or null when it failed.
+     */
+    private void onLoaded(ImageRequest request, Bitmap bitmap) {
+        if (request.cancellationToken.isCancelled()) {
+            if (bitmap != null) {
+                offerReusable(bitmap);
+            }
+            return;
+        }
+        mRequests.remove(request.key);
+        for (ImageView imageView : request.views) {
+            mViewRequests.remove(imageView);
+            if (bitmap != null) {
+                show(imageView, bitmap);
+            }
+        }
+        if (bitmap != null) {
+            mMemoryCache.put(request.key, bitmap);
+        }
+    }
+
+    /**
+     * Show the bitmap in the view, or nothing when it is null, and count the views of both
+     * the previous and the new bitmap.
+     */
+    private void show(ImageView imageView, Bitmap bitmap) {
+        Bitmap previousBitmap = mShownBitmaps.get(imageView);
+        if (previousBitmap == bitmap) {
+            return;
+        }
+        imageView.setImageBitmap(bitmap);
+        synchronized (mReuseLock) {
+            if (previousBitmap != null) {
+                mShownBitmaps.remove(imageView);
+                Integer count = mViewCounts.get(previousBitmap);
+                if (count == null || count <= 1) {
+                    mViewCounts.remove(previousBitmap);
+                    // The last view of an evicted bitmap let it go.
+                    if (mEvictedShownBitmaps.remove(previousBitmap)) {
+                        addReusable(previousBitmap);
+                    }
+                } else {
+                    mViewCounts.put(previousBitmap, count - 1);
+                }
+            }
+            if (bitmap != null) {
+                mShownBitmaps.put(imageView, bitmap);
+                Integer count = mViewCounts.get(bitmap);
+                mViewCounts.put(bitmap, count == null ? 1 : count + 1);
+            }
+        }
+    }
+
+    /**
+     * Called when the memory cache evicts or replaces a bitmap, on any thread.
+     */
+    private void onRemovedFromMemory(Bitmap bitmap) {
+        synchronized (mReuseLock) {
+            if (mViewCounts.containsKey(bitmap)) {
+                // Wait for the views to show something else.
+                mEvictedShownBitmaps.add(bitmap);
+            } else {
+                addReusable(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Keep a bitmap no view shows and the memory cache doesn't hold, to decode into.
+     */
+    private void offerReusable(Bitmap bitmap) {
+        synchronized (mReuseLock) {
+            addReusable(bitmap);
+        }
+    }
+
+    private void addReusable(Bitmap bitmap) {
+        if (bitmap.isMutable() && mReusableBitmaps.size() < MAX_REUSABLE_BITMAPS) {
+            mReusableBitmaps.add(bitmap);
+        }
+    }
+
+    /**
+     * Take a bitmap the image with the given options can be decoded into, or return null when
+     * there is none.
+     */
+    private Bitmap takeReusable(BitmapFactory.Options options) {
+        synchronized (mReuseLock) {
+            for (Iterator<Bitmap> iterator = mReusableBitmaps.iterator(); iterator.hasNext(); ) {
+                Bitmap bitmap = iterator.next();
+                if (canDecodeInto(bitmap, options)) {
+                    iterator.remove();
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return whether the image with the given options can be decoded into the bitmap. From API
+     * level 19 the bitmap only needs to be large enough, before it must have the very same
+     * size and the image can't be downsampled.
+     */
+    private static boolean canDecodeInto(Bitmap bitmap, BitmapFactory.Options options) {
+        int width = options.outWidth / options.inSampleSize;
+        int height = options.outHeight / options.inSampleSize;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // RGB_565 uses two bytes per pixel.
+            return width * height * 2 <= bitmap.getAllocationByteCount();
+        }
+        return options.inSampleSize == 1 && bitmap.getWidth() == width
+                && bitmap.getHeight() == height;
+    }
+
+    /**
+     * Return the image of the request, from the disk cache or else downloaded into it, and
+     * decoded at the size of the request. Return null when it failed or was cancelled.
+     * This is on a background thread.
+     */
+    private Bitmap loadBitmap(ImageRequest request) {
+        byte[] bytes = mDiskCache.get(request.url);
+        if (bytes == null) {
+            bytes = download(request.url, request.cancellationToken);
+            if (bytes == null) {
+                return null;
+            }
+            mDiskCache.put(request.url, bytes);
+        }
+        if (request.cancellationToken.isCancelled()) {
+            return null;
+        }
+        return decode(bytes, request.width, request.height);
+    }
+
+    /**
+     * Download the image of the given URL, or return null when it failed or was cancelled.
+     */
+    private static byte[] download(String url, CancellationToken cancellationToken) {
+        Response response = null;
+        try {
+            response = NewsHttpClient.getDefault().execute(
+                    new Request.Builder().url(url).build(), cancellationToken);
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                Log.e(LOG_TAG, "Error response code: " + response.code());
+                return null;
+            }
+            return body.bytes();
+        } catch (IOException | IllegalArgumentException e) {
+            // A cancelled download ends here too.
+            if (!cancellationToken.isCancelled()) {
+                Log.e(LOG_TAG, "Problem downloading the image.", e);
+            }
+            return null;
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+            cancellationToken.setOnCancelListener(null);
+        }
+    }
+
+    /**
+     * Decode the image, downsampled to the smallest size that still covers the given one,
+     * into a reusable bitmap when there is one. Return null when it can't be decoded.
+     */
+    private Bitmap decode(byte[] bytes, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // Read the size of the image without decoding it.
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                width, height);
+        // The thumbnails are photos without transparency, two bytes per pixel are enough.
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inMutable = true;
+        options.inBitmap = takeReusable(options);
+        try {
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            // The image doesn't fit in the reused bitmap after all, decode it into a new one.
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+    }
+
+    /**
+     * Return the largest power of two to divide the size of an image by, so it still covers
+     * the size of its view.
+     *
+     * @param width        is the width of the image.
+     * @param height       is the height of the image.
+     * @param targetWidth  is the width of the view.
+     * @param targetHeight is the height of the view.
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= targetWidth
+                && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A {@link MetricsExporter} that keeps the latest snapshots in memory, like for the tests
+ * or a debug screen.
+ */
+public class InMemoryMetricsExporter implements MetricsExporter {
+    /**
+     * The kept snapshots, oldest first.
+     */
+    private final Deque<Metrics.Snapshot> mSnapshots = new ArrayDeque<>();
+
+    /**
+     * Maximum number of kept snapshots, the oldest ones are dropped first.
+     */
+    private final int mMaxSnapshots;
+
+    /**
+     * Create a new {@link InMemoryMetricsExporter} object.
+     *
+     * @param maxSnapshots is the maximum number of kept snapshots.
+     */
+    public InMemoryMetricsExporter(int maxSnapshots) {
+        mMaxSnapshots = Math.max(1, maxSnapshots);
+    }
+
+    @Override
+    public synchronized void export(Metrics.Snapshot snapshot) {
+        if (mSnapshots.size() == mMaxSnapshots) {
+            mSnapshots.removeFirst();
+        }
+        mSnapshots.addLast(snapshot);
+    }
+
+    /**
+     * Return the latest snapshot, or null when there is none.
+     */
+    public synchronized Metrics.Snapshot getLatest() {
+        return mSnapshots.peekLast();
+    }
+
+    /**
+     * Return the kept snapshots, oldest first.
+     */
+    public synchronized List<Metrics.Snapshot> getSnapshots() {
+        return new ArrayList<>(mSnapshots);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies that threads record into without locking.
+ * <p>
+ * Latencies are counted in microseconds, in buckets that split every power of two into
+ * four, so a percentile is known within 25% from a microsecond up to hours, in a fixed
+ * array allocated once.
+ */
+public class LatencyHistogram {
+    /**
+     * Number of buckets between two powers of two.
+     */
+    private static final int SUB_BUCKETS = 4;
+
+    /**
+     * Number of buckets, the last one holds every latency over about 12 days.
+     */
+    private static final int BUCKET_COUNT = 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotalMicros = new AtomicLong();
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos is the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        mBuckets.incrementAndGet(bucketOf(micros));
+        mCount.incrementAndGet();
+        mTotalMicros.addAndGet(micros);
+        long max = mMaxMicros.get();
+        while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+            max = mMaxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * Return the average latency in microseconds, or zero when none was recorded.
+     */
+    public long getMeanMicros() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mTotalMicros.get() / count;
+    }
+
+    public long getMaxMicros() {
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Return the latency in microseconds under which the given percentage of the recorded
+     * latencies are, rounded up to the end of its bucket, or zero when none was recorded.
+     *
+     * @param percentile is between 0 and 100.
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets.get(bucket);
+            if (seen >= rank) {
+                // The end of the bucket, but not past the slowest latency recorded.
+                return Math.min(lowerBoundOf(bucket + 1) - 1, mMaxMicros.get());
+            }
+        }
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Set every count back to zero. Latencies recorded at the same time may be lost.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mBuckets.set(bucket, 0);
+        }
+        mCount.set(0);
+        mTotalMicros.set(0);
+        mMaxMicros.set(0);
+    }
+
+    /**
+     * Return the bucket of the given latency. The latencies under four microseconds have a
+     * bucket each, the ones above fall in one of the four buckets of their power of two.
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (power - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKET_COUNT - 1, (power - 1) * SUB_BUCKETS + subBucket);
+    }
+
+    /**
+     * Return the smallest latency in microseconds of the given bucket.
+     */
+    static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int power = bucket / SUB_BUCKETS + 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (power - 2);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * The state of the list of news on screen, saved to a file so it can be restored after
+ * the activity or its process was destroyed, without loading the pages again.
+ * <p>
+ * A Bundle is limited in size, and a long list doesn't fit in it. The snapshot is written
+ * to a file instead, and the Bundle only holds its id: a snapshot is restored only when
+ * its id is the one in the Bundle, so a file left by another activity is never shown.
+ * <p>
+ * The news are stored in the format of {@link NewsCodec}. The file is memory-mapped when
+ * it is read, and the news are decoded one page at a time while they are added to the list.
+ */
+public class ListSnapshot {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = ListSnapshot.class.getSimpleName();
+
+    /**
+     * Version of the file format, snapshots written with another version are ignored.
+     */
+    private static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Identifies the snapshot, it is the value kept in the Bundle.
+     */
+    public final long id;
+
+    /**
+     * Section of news, null means the overview.
+     */
+    public final String section;
+
+    /**
+     * The last page of the section in the list.
+     */
+    public final int lastPage;
+
+    /**
+     * Number of news on a page of the list.
+     */
+    public final int pageSize;
+
+    /**
+     * Position of the first visible news.
+     */
+    public final int firstVisiblePosition;
+
+    /**
+     * Distance in pixels from the top of the list to the top of the first visible news.
+     */
+    public final int scrollOffset;
+
+    /**
+     * Whether the news were read from the {@link ArticleStore}, without connection.
+     */
+    public final boolean isOffline;
+
+    /**
+     * The news of the list.
+     */
+    public final List<News> newsList;
+
+    /**
+     * Create a new {@link ListSnapshot} object.
+     *
+     * @param id                   identifies the snapshot.
+     * @param section              is the section of news, null means the overview.
+     * @param lastPage             is the last page of the section in the list.
+     * @param pageSize             is the number of news on a page.
+     * @param firstVisiblePosition is the position of the first visible news.
+     * @param scrollOffset         is the offset in pixels of the first visible news.
+     * @param isOffline            is true when the news were read without connection.
+     * @param newsList             is the news of the list.
+     */
+    public ListSnapshot(long id, String section, int lastPage, int pageSize,
+                        int firstVisiblePosition, int scrollOffset, boolean isOffline,
+                        List<News> newsList) {
+        this.id = id;
+        this.section = section;
+        this.lastPage = lastPage;
+        this.pageSize = pageSize;
+        this.firstVisiblePosition = firstVisiblePosition;
+        this.scrollOffset = scrollOffset;
+        this.isOffline = isOffline;
+        this.newsList = newsList;
+    }
+
+    /**
+     * Write the snapshot to the given file, replacing the previous one. It reads every
+     * page of the list, so it should run on a background thread.
+     *
+     * @return false when it couldn't be written.
+     */
+    public boolean write(File file) {
+        // Write to a temporary file first, so a reader never sees a half written snapshot.
+        File tmpFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(VERSION);
+            out.writeLong(id);
+            if (section == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] sectionBytes = section.getBytes(UTF_8);
+                out.writeInt(sectionBytes.length);
+                out.write(sectionBytes);
+            }
+            out.writeInt(lastPage);
+            out.writeInt(pageSize);
+            out.writeInt(firstVisiblePosition);
+            out.writeInt(scrollOffset);
+            out.writeBoolean(isOffline);
+            out.write(NewsCodec.encode(newsList));
+            out.close();
+            out = null;
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Can't rename " + tmpFile);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the snapshot of the list.", e);
+            tmpFile.delete();
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // The temporary file is deleted already.
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the snapshot with the given id in the given file, or null when the file holds
+     * no snapshot or another one.
+     * <p>
+     * The news of the returned snapshot are decoded from the mapped file when they are read.
+     */
+    public static ListSnapshot read(File file, long id) {
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != VERSION || buffer.getLong() != id) {
+                return null;
+            }
+            int sectionLength = buffer.getInt();
+            if (sectionLength > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated snapshot");
+            }
+            String section = null;
+            if (sectionLength >= 0) {
+                byte[] sectionBytes = new byte[sectionLength];
+                buffer.get(sectionBytes);
+                section = new String(sectionBytes, UTF_8);
+            }
+            int lastPage = buffer.getInt();
+            int pageSize = buffer.getInt();
+            int firstVisiblePosition = buffer.getInt();
+            int scrollOffset = buffer.getInt();
+            boolean isOffline = buffer.get() != 0;
+            // The mapping stays valid once the channel is closed.
+            List<News> newsList = NewsCodec.view(buffer);
+            return new ListSnapshot(id, section, lastPage, pageSize, firstVisiblePosition,
+                    scrollOffset, isOffline, newsList);
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            Log.e(LOG_TAG, "Problem reading the snapshot of the list.", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Nothing left to read.
+                }
+            }
+        }
+    }
+}
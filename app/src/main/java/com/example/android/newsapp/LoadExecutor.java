@@ -0,0 +1,126 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the loads of news on a few dedicated threads, instead of the executor shared by
+ * every AsyncTask of the app.
+ * <p>
+ * Waiting loads run by priority, then in the order they were submitted. A refresh that users
+ * asked for goes ahead of the loads of the list, which go ahead of the prefetched pages.
+ */
+public class LoadExecutor {
+    /**
+     * Priority of the pages loaded ahead of the list.
+     */
+    public static final int PRIORITY_PREFETCH = 0;
+
+    /**
+     * Priority of the page shown on screen.
+     */
+    public static final int PRIORITY_LOAD = 1;
+
+    /**
+     * Priority of a refresh that users asked for.
+     */
+    public static final int PRIORITY_REFRESH = 2;
+
+    /**
+     * Default number of loads that run at the same time.
+     */
+    public static final int DEFAULT_THREAD_COUNT = 3;
+
+    /**
+     * Executor shared by the whole app.
+     */
+    private static LoadExecutor sDefault;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * Order of the submitted loads, to run the ones of the same priority first in first out.
+     */
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * Create a new {@link LoadExecutor} object.
+     *
+     * @param threadCount is the number of loads that run at the same time.
+     */
+    public LoadExecutor(int threadCount) {
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "NewsLoad #" + mCount.incrementAndGet());
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Return the executor shared by the whole app.
+     */
+    public static synchronized LoadExecutor getDefault() {
+        if (sDefault == null) {
+            sDefault = new LoadExecutor(DEFAULT_THREAD_COUNT);
+        }
+        return sDefault;
+    }
+
+    /**
+     * Run the given load with the given priority.
+     *
+     * @return a future that cancels the load while it waits for a thread.
+     */
+    public Future<?> submit(Runnable load, int priority) {
+        PriorityTask task = new PriorityTask(load, priority, mSequence.getAndIncrement());
+        // Not submit(), which would wrap the task into one that can't be ordered.
+        mExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Return an {@link Executor} that runs every load with the given priority.
+     */
+    public Executor asExecutor(final int priority) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                submit(command, priority);
+            }
+        };
+    }
+
+    /**
+     * A load waiting in the queue, ordered by priority and then by sequence.
+     */
+    private static class PriorityTask extends FutureTask<Void> implements Comparable<PriorityTask> {
+        private final int mPriority;
+        private final long mSequence;
+
+        PriorityTask(Runnable load, int priority, long sequence) {
+            super(load, null);
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PriorityTask other) {
+            if (mPriority != other.mPriority) {
+                return mPriority > other.mPriority ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+/**
+ * A {@link MetricsExporter} that writes the snapshots to the log, one line per stage that
+ * recorded anything, and a warning for every stage over its budget.
+ */
+public class LogMetricsExporter implements MetricsExporter {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = Metrics.class.getSimpleName();
+
+    @Override
+    public void export(Metrics.Snapshot snapshot) {
+        for (int stage = 0; stage < snapshot.getStageCount(); stage++) {
+            Metrics.StageSnapshot stageSnapshot = snapshot.getStage(stage);
+            if (stageSnapshot.count == 0) {
+                continue;
+            }
+            if (stageSnapshot.isOverBudget()) {
+                Log.w(LOG_TAG, "Over budget: " + stageSnapshot);
+            } else {
+                Log.i(LOG_TAG, stageSnapshot.toString());
+            }
+        }
+        StringBuilder counters = new StringBuilder();
+        for (int counter = 0; counter < snapshot.getCounterCount(); counter++) {
+            if (counter > 0) {
+                counters.append(", ");
+            }
+            counters.append(snapshot.getCounterName(counter)).append('=')
+                    .append(snapshot.getCounter(counter));
+        }
+        Log.i(LOG_TAG, counters.toString());
+    }
+}
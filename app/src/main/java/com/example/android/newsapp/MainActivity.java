@@ -1,15 +1,20 @@
 package com.example.android.newsapp;
 
 import android.app.LoaderManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.Loader;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.Nullable;
 import android.support.design.widget.NavigationView;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.net.ConnectivityManagerCompat;
 import android.support.v4.view.GravityCompat;
 import android.support.v4.widget.DrawerLayout;
 import android.support.v4.widget.SwipeRefreshLayout;
@@ -19,16 +24,25 @@ import android.support.v7.widget.DefaultItemAnimator;
 import android.support.v7.widget.DividerItemDecoration;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
 import android.view.Gravity;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MainActivity extends AppCompatActivity
         implements NavigationView.OnNavigationItemSelectedListener,
@@ -40,19 +54,22 @@ public class MainActivity extends AppCompatActivity
     private static final String LOG_TAG = MainActivity.class.getName();
 
     /**
-     * URL for news data from the Guardian data set.
+     * Data set URL parameter section which filter different topics of news.
      */
-    private static final String BASE_REQUEST_URL = "https://content.guardianapis.com/search";
+    private String section = null;
 
     /**
-     * Data set URL parameter section which filter different topics of news.
+     * Number of news on a page of the current list, chosen when its first page is requested
+     * and read back from the loader, which may be one kept across a rotation. The paginator
+     * reads it on a background thread.
      */
-    private String section = null;
+    private volatile int mPageSize = GuardianRequest.DEFAULT_PAGE_SIZE;
 
     /**
-     * Data set URL parameter current page which request different page of news.
+     * Sections of the navigation drawer items, null means the overview.
      */
-    private int requestPage = 1;
+    static final List<String> DRAWER_SECTIONS = Arrays.asList(
+            null, "news", "commentisfree", "sport", "culture", "lifeandstyle");
 
     /**
      * Constant value for the book loader ID, which can be any integer.
@@ -60,6 +77,22 @@ public class MainActivity extends AppCompatActivity
      */
     private static final int NEWS_LOADER_ID = 1;
 
+    /**
+     * Key of the loader argument that tells the {@link NewsLoader} to skip its cache.
+     */
+    private static final String ARG_FORCE_REFRESH = "forceRefresh";
+
+    /**
+     * Maximum number of news kept in memory, the other pages of the lists are spilled to a
+     * file. It is many screens of rows, so scrolling around the rows on screen never waits.
+     */
+    private static final int MAX_NEWS_IN_MEMORY = 500;
+
+    /**
+     * Holds the loaded pages of every section.
+     */
+    private NewsRepository mRepository;
+
     /**
      * Adapter for the list of news.
      */
@@ -71,24 +104,128 @@ public class MainActivity extends AppCompatActivity
     private LinearLayoutManager layoutManager;
 
     /**
-     * Indicator whether the app is loading more data when users reach the bottom of the list.
+     * Indicator whether the app is loading the first page of news.
      */
     private boolean isLoading = false;
 
     /**
-     * These three integers help the app estimates whether the list reach bottom or not.
+     * Number of items from the end of the list that triggers loading the next page.
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
+    /**
+     * Number of pages to load ahead of the list.
+     */
+    private static final int PREFETCH_PAGES = 2;
+
+    /**
+     * {@link NewsPaginator} that appends the next pages of news to the list.
+     */
+    private NewsPaginator mPaginator;
+
+    /**
+     * Number of sections loaded at the same time by the {@link SectionPrefetcher}.
+     */
+    private static final int PREFETCH_CONNECTIONS = 2;
+
+    /**
+     * How long in milliseconds a prefetched section is shown without waiting, five minutes.
+     */
+    private static final long PREFETCH_TIME_TO_LIVE = 5 * 60 * 1000;
+
+    /**
+     * {@link SectionPrefetcher} that keeps the first page of every section in memory.
+     */
+    private SectionPrefetcher mSectionPrefetcher;
+
+    /**
+     * The first page of the section being opened, found in the {@link SectionPrefetcher}, which
+     * the next loader delivers instead of loading it.
+     */
+    private List<News> mPrefetchedNews;
+
+    /**
+     * Whether the news on screen were read from the {@link ArticleStore}, without connection.
+     */
+    private boolean mIsOffline;
+
+    /**
+     * Receives the changes of the connection, to fetch the latest news when it comes back.
+     */
+    private BroadcastReceiver mConnectivityReceiver;
+
+    /**
+     * Type of the active network, one of the types of {@link ConnectivityManager}, or -1 when
+     * there is none.
+     */
+    private int mNetworkType;
+
+    /**
+     * Maximum number of saved news added to the {@link HeadlineIndex} when the app starts,
+     * the newest ones, which are the ones users look for.
+     */
+    private static final int MAX_INDEXED_SAVED_NEWS = 5000;
+
+    /**
+     * Whether the list shows the results of a search instead of a section.
+     */
+    private boolean mIsSearching;
+
+    /**
+     * Number of searches started, so only the results of the last one are shown.
+     */
+    private int mSearchCount;
+
+    /**
+     * Runs the results of the background work on the main thread.
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The search action of the toolbar.
      */
-    private int pastVisibleItems, visibleItemCount, totalItemCount;
+    private MenuItem mSearchItem;
+
+    /**
+     * Start time of the load of the first page, to measure it until the list shows it.
+     */
+    private long mLoadStart;
+
+    /**
+     * Name of the file of the {@link ListSnapshot}, in the cache directory.
+     */
+    private static final String SNAPSHOT_FILE_NAME = "list_snapshot";
+
+    /**
+     * Single background thread that writes the snapshots of the list, then releases the
+     * adapter they were taken from, in that order.
+     */
+    private static final ExecutorService SNAPSHOT_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Id of the {@link ListSnapshot} being restored, zero when there is none. A load started
+     * in the meantime supersedes it.
+     */
+    private long mRestoringSnapshotId;
+
+    /**
+     * Whether the activity was destroyed, so the results of the background work are dropped.
+     */
+    private boolean mIsDestroyed;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        setUpMetrics();
         // Find a reference to the {@link Toolbar}.
         Toolbar toolbar = findViewById(R.id.toolbar);
         // Restore toolbar title when users rotate their device.
+        long snapshotId = 0;
         if (savedInstanceState != null) {
             toolbar.setTitle(savedInstanceState.getString("toolbarTitle"));
+            section = savedInstanceState.getString("section");
+            snapshotId = savedInstanceState.getLong("snapshotId");
         }
         // After setting the title, then set the toolbar. Otherwise, title setting won't work.
         setSupportActionBar(toolbar);
@@ -110,8 +247,11 @@ public class MainActivity extends AppCompatActivity
         // Find a reference to the {@link RecyclerView} in the layout,
         // which display main contents of the app.
         RecyclerView recyclerView = findViewById(R.id.list);
+        // Create the {@link NewsRepository}, which holds the pages of the sections.
+        mRepository = new NewsRepository(new NewsPagePool(
+                new File(getCacheDir(), "news_list.spill"), MAX_NEWS_IN_MEMORY));
         // Create an {@link NewsAdapter}, whose data source is a list of {@link News}.
-        mAdapter = new NewsAdapter(this, new ArrayList<News>());
+        mAdapter = new NewsAdapter(this, mRepository, mRepository.get(section));
         // Setup {@link DefaultItemAnimator} for the ItemAnimator of RecyclerView.
         recyclerView.setItemAnimator(new DefaultItemAnimator());
         // Setup the {@link LinearLayoutManager} for the LayoutManager of RecyclerView.
@@ -130,32 +270,72 @@ public class MainActivity extends AppCompatActivity
             public void onItemClick(View view, int position) {
             }
         });
+        // Create the {@link NewsPaginator}, which loads the next pages in the background
+        // and appends them to the list on the main thread.
+        final NewsCache cache = NewsCache.getInstance(this);
+        final ArticleStore articleStore = ArticleStore.getInstance(this);
+        final NewsPaginator.PageSource pageSource = new NewsPaginator.PageSource() {
+            @Override
+            public List<News> loadPage(String section, int page) {
+                return NewsLoader.loadPage(cache, articleStore, buildRequest(section, page));
+            }
+        };
+        // Without a connection, the next pages are read from the saved news.
+        NewsPaginator.PageSource offlinePageSource = new NewsPaginator.PageSource() {
+            @Override
+            public List<News> loadPage(String section, int page) {
+                if (isConnected()) {
+                    return pageSource.loadPage(section, page);
+                }
+                return articleStore.getPage(section, page, mPageSize);
+            }
+        };
+        mPaginator = new NewsPaginator(offlinePageSource, new NewsPaginator.Callback() {
+            @Override
+            public void onPageReady(int page, List<News> newsList) {
+                // The search results stay on screen, the section comes back with its pages.
+                mAdapter.appendPage(page, newsList);
+            }
+        }, LoadExecutor.getDefault().asExecutor(LoadExecutor.PRIORITY_PREFETCH), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mHandler.post(command);
+            }
+        }, PREFETCH_DISTANCE, PREFETCH_PAGES);
+        // A page that mostly repeats the news of the list is followed by the next one at once.
+        mAdapter.setOnPageAppendedListener(new NewsAdapter.OnPageAppendedListener() {
+            @Override
+            public void onPageAppended(int page, int appendedCount, int loadedCount) {
+                mPaginator.onPageAppended(page, appendedCount, loadedCount);
+            }
+        });
+        // Create the {@link SectionPrefetcher}, which loads the other sections in the background.
+        mSectionPrefetcher = new SectionPrefetcher(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section, CancellationToken cancellationToken) {
+                return NewsLoader.loadPage(cache, articleStore, buildRequest(section, 1),
+                        cancellationToken);
+            }
+        }, LoadExecutor.getDefault(), PREFETCH_CONNECTIONS, PREFETCH_TIME_TO_LIVE);
         // Implement OnScrollListener to implement endless list with RecyclerView.
         recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-                // If the list is loading, return early.
-                if (isLoading) {
+                // If the first page is loading, or the list shows search results, return early.
+                if (isLoading || mIsSearching) {
                     return;
                 }
 
-
                 //check for scroll down.
                 if (dy > 0) {
-                    visibleItemCount = layoutManager.getChildCount();
-                    totalItemCount = layoutManager.getItemCount();
-                    pastVisibleItems = layoutManager.findFirstVisibleItemPosition();
-
-                    if ((visibleItemCount + pastVisibleItems) >= totalItemCount) {
-                        // Only when there is Internet Connection, load more data.
-                        if (isConnected()) {
-                            // Set the loading indicator to true, because it begins to load more data.
-                            isLoading = true;
-                            // Request next page of news.
-                            requestPage = QueryUtils.currentPage + 1;
-                            // Get a reference to the LoaderManager and restart the loader.
-                            getLoaderManager().restartLoader(NEWS_LOADER_ID, null, MainActivity.this);
-                        } else {
+                    int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+                    int totalItemCount = layoutManager.getItemCount();
+
+                    if (totalItemCount - 1 - lastVisibleItem <= PREFETCH_DISTANCE) {
+                        // Let the paginator append the next page, and prefetch the ones after.
+                        // Without Internet Connection, it reads the saved news.
+                        mPaginator.onScrolled(lastVisibleItem, totalItemCount);
+                        if (!isConnected() && !mIsOffline) {
                             // Make a toast to inform users that the device is disconnected.
                             Toast toast = Toast.makeText(getApplicationContext(),
                                     getString(R.string.no_connection), Toast.LENGTH_SHORT);
@@ -167,12 +347,6 @@ public class MainActivity extends AppCompatActivity
             }
         });
 
-        // When there are contents on screen, maintain them when users rotate their device.
-        int listItemCount = 0;
-        if (savedInstanceState != null) {
-            listItemCount = savedInstanceState.getInt("listItemCount");
-        }
-
         // Lookup the swipe container view.
         final SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
         // Setup refresh listener which triggers new data loading.
@@ -189,10 +363,11 @@ public class MainActivity extends AppCompatActivity
                     toast.setGravity(Gravity.CENTER, 0, 0);
                     toast.show();
                 } else {
-                    // Set news page back to one.
-                    requestPage = 1;
+                    // Users ask for the latest news, so the cached page must be skipped.
+                    Bundle args = new Bundle();
+                    args.putBoolean(ARG_FORCE_REFRESH, true);
                     // Get a reference to the LoaderManager and restart the loader.
-                    getLoaderManager().restartLoader(NEWS_LOADER_ID, null, MainActivity.this);
+                    getLoaderManager().restartLoader(NEWS_LOADER_ID, args, MainActivity.this);
                 }
             }
         });
@@ -203,17 +378,162 @@ public class MainActivity extends AppCompatActivity
                 android.R.color.holo_orange_light,
                 android.R.color.holo_red_light);
 
-        if (!isConnected() && listItemCount == 0) {
-            // If there is no internet connection, display error.
-            // Update empty state with no connection error message.
-            setEmptyView(true, R.string.no_connection, R.drawable.no_connection);
+        // Set the refreshing indicator to true, until the list is back or loaded.
+        swipeContainer.setRefreshing(true);
+        if (snapshotId != 0) {
+            // Bring back the list as it was, even when the process was killed since. It is
+            // read in the background, the next pages wait for it.
+            isLoading = true;
+            restoreSnapshot(snapshotId);
         } else {
-            // Set the refreshing indicator to true, when it begins to load data.
-            swipeContainer.setRefreshing(true);
             // Get a reference to the LoaderManager, in order to interact with loaders.
-            // And initiate the loader to begin fetching data from Internet.
+            // And initiate the loader to begin fetching data from Internet,
+            // or reading the saved news when there is no connection.
             getLoaderManager().initLoader(NEWS_LOADER_ID, null, this);
         }
+
+        // Fetch the latest news once the connection comes back.
+        mNetworkType = getNetworkType();
+        mConnectivityReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                // The throughput measured on the previous network doesn't tell about this one.
+                // The sticky broadcast received at once, and the ones that don't change the
+                // type of network, keep it.
+                int networkType = getNetworkType();
+                if (!isInitialStickyBroadcast() && networkType != mNetworkType) {
+                    QueryUtils.getPageSizePolicy().reset();
+                }
+                mNetworkType = networkType;
+                if (mIsOffline && isConnected()) {
+                    mIsOffline = false;
+                    getLoaderManager().restartLoader(NEWS_LOADER_ID, null, MainActivity.this);
+                }
+            }
+        };
+        registerReceiver(mConnectivityReceiver,
+                new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+
+        // Keep the first page of every section fresh in the cache while the app is closed,
+        // so the next opening shows them without waiting.
+        SyncScheduler.schedule(this);
+        if (Metrics.getDefault().isEnabled()) {
+            // Tell how old the synced sections were when the app opened.
+            final Context appContext = getApplicationContext();
+            LoadExecutor.getDefault().submit(new Runnable() {
+                @Override
+                public void run() {
+                    Log.i(LOG_TAG, SyncScheduler.getReport(appContext).toString());
+                }
+            }, LoadExecutor.PRIORITY_PREFETCH);
+        }
+
+        // Make the saved news searchable, the news fetched from now on are added as they come.
+        if (HeadlineIndex.getInstance().size() == 0) {
+            LoadExecutor.getDefault().submit(new Runnable() {
+                @Override
+                public void run() {
+                    HeadlineIndex.getInstance().addAll(
+                            articleStore.getLatest(MAX_INDEXED_SAVED_NEWS));
+                }
+            }, LoadExecutor.PRIORITY_PREFETCH);
+        }
+    }
+
+    /**
+     * Add the search action to the toolbar, which searches the titles of the fetched news
+     * in the {@link HeadlineIndex} as users type.
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+        mSearchItem = menu.findItem(R.id.action_search);
+        final SearchView searchView = (SearchView) mSearchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                showSearchResults(query);
+                // Hide the keyboard, so users see the results.
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                showSearchResults(newText);
+                return true;
+            }
+        });
+        mSearchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                mIsSearching = true;
+                // Pulling to refresh the search results would load a section.
+                SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
+                swipeContainer.setEnabled(false);
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                mIsSearching = false;
+                // The results of the searches still running are dropped.
+                mSearchCount++;
+                SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
+                swipeContainer.setEnabled(true);
+                swipeContainer.setRefreshing(true);
+                // Show the section again, it is in the cache so it comes back quickly.
+                getLoaderManager().restartLoader(NEWS_LOADER_ID, null, MainActivity.this);
+                return true;
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Helper method that replaces the list with the news whose title matches the query.
+     * The index may be busy adding news, and the news of the results are read from the
+     * {@link ArticleStore}, so the search runs on a background thread.
+     *
+     * @param query is the text users typed.
+     */
+    private void showSearchResults(final String query) {
+        if (!mIsSearching) {
+            return;
+        }
+        final int searchCount = ++mSearchCount;
+        final ArticleStore articleStore = ArticleStore.getInstance(this);
+        LoadExecutor.getDefault().submit(new Runnable() {
+            @Override
+            public void run() {
+                List<String> urls = HeadlineIndex.getInstance().search(query,
+                        HeadlineIndex.DEFAULT_LIMIT);
+                final List<News> results = articleStore.getByUrls(urls);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Users typed more since, or closed the search.
+                        if (searchCount == mSearchCount) {
+                            showSearchResults(query, results);
+                        }
+                    }
+                });
+            }
+        }, LoadExecutor.PRIORITY_LOAD);
+    }
+
+    /**
+     * Helper method that replaces the list with the given results of the search.
+     */
+    private void showSearchResults(String query, List<News> results) {
+        layoutManager.scrollToPosition(0);
+        mAdapter.replaceAll(results);
+        if (results.isEmpty() && !query.trim().isEmpty()) {
+            setEmptyView(true, R.string.no_search_results, R.drawable.something_wrong);
+        } else {
+            setEmptyView(false, null, null);
+        }
     }
 
     // Save the needed variable state,
@@ -225,35 +545,215 @@ public class MainActivity extends AppCompatActivity
         // killed and restarted.
         Toolbar toolbar = findViewById(R.id.toolbar);
         savedInstanceState.putString("toolbarTitle", toolbar.getTitle().toString());
-        savedInstanceState.putInt("listItemCount", mAdapter.getItemCount());
+        savedInstanceState.putString("section", section);
+        // The news don't fit in the Bundle, they are written to a file that it refers to.
+        // Search results are not kept, the section is loaded again instead.
+        NewsRepository.Snapshot shownSnapshot = mAdapter.getSnapshot();
+        if (!isLoading && !mIsSearching && shownSnapshot != null
+                && !shownSnapshot.newsList.isEmpty()) {
+            savedInstanceState.putLong("snapshotId", saveSnapshot(shownSnapshot));
+        } else if (mRestoringSnapshotId != 0) {
+            // The list is still being restored, the next activity restores it instead.
+            savedInstanceState.putLong("snapshotId", mRestoringSnapshotId);
+        }
 
         super.onSaveInstanceState(savedInstanceState);
     }
 
+    /**
+     * Helper method that writes a {@link ListSnapshot} of the list in the background.
+     *
+     * @param shownSnapshot is the snapshot of the section on screen.
+     * @return the id of the snapshot.
+     */
+    private long saveSnapshot(NewsRepository.Snapshot shownSnapshot) {
+        int position = Math.max(0, layoutManager.findFirstVisibleItemPosition());
+        View firstView = layoutManager.findViewByPosition(position);
+        int offset = firstView == null ? 0 : firstView.getTop() - layoutManager.getPaddingTop();
+        final ListSnapshot snapshot = new ListSnapshot(System.currentTimeMillis(), section,
+                shownSnapshot.lastPage, mPageSize, position, offset, mIsOffline,
+                shownSnapshot.newsList);
+        final File file = new File(getCacheDir(), SNAPSHOT_FILE_NAME);
+        SNAPSHOT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                snapshot.write(file);
+            }
+        });
+        return snapshot.id;
+    }
+
+    /**
+     * Helper method that reads the {@link ListSnapshot} with the given id in the background,
+     * then shows it. The snapshot executor runs it after the snapshot being written and the
+     * release of the previous adapter, without the main thread waiting for them.
+     */
+    private void restoreSnapshot(final long id) {
+        mRestoringSnapshotId = id;
+        final File file = new File(getCacheDir(), SNAPSHOT_FILE_NAME);
+        SNAPSHOT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                ListSnapshot snapshot = ListSnapshot.read(file, id);
+                final ListSnapshot restored =
+                        snapshot == null || snapshot.newsList.isEmpty() ? null : snapshot;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mIsDestroyed && mRestoringSnapshotId == id) {
+                            showSnapshot(restored);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Helper method that shows the restored list, its first page at once and the rest once it
+     * is decoded on the update thread, then scrolls back to the rows users saw.
+     *
+     * @param snapshot is the restored snapshot, or null when there is none.
+     */
+    private void showSnapshot(final ListSnapshot snapshot) {
+        if (snapshot == null || mIsSearching) {
+            // Load the section again, a search shows it again once it is closed.
+            mRestoringSnapshotId = 0;
+            getLoaderManager().initLoader(NEWS_LOADER_ID, null, this);
+            return;
+        }
+        mPageSize = snapshot.pageSize;
+        mIsOffline = snapshot.isOffline;
+        // The loader kept across the rotation would deliver the first page again.
+        getLoaderManager().destroyLoader(NEWS_LOADER_ID);
+        setEmptyView(false, null, null);
+        if (snapshot.lastPage > 1) {
+            mAdapter.replace(section, 1,
+                    snapshot.newsList.subList(0, Math.min(mPageSize, snapshot.newsList.size())));
+        }
+        mAdapter.replace(section, snapshot.lastPage, snapshot.newsList, new Runnable() {
+            @Override
+            public void run() {
+                if (mRestoringSnapshotId != snapshot.id) {
+                    // Users loaded another list in the meantime.
+                    return;
+                }
+                mRestoringSnapshotId = 0;
+                // The list is back, the next pages follow its last one and users see the
+                // same rows.
+                isLoading = false;
+                mPaginator.reset(section, snapshot.lastPage);
+                layoutManager.scrollToPositionWithOffset(snapshot.firstVisiblePosition,
+                        snapshot.scrollOffset);
+                SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
+                swipeContainer.setRefreshing(false);
+            }
+        });
+    }
+
+    /**
+     * Write the metrics of the load pipeline to the log, when they are recorded.
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (Metrics.getDefault().isEnabled()) {
+            Metrics.getDefault().export(new LogMetricsExporter());
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mIsDestroyed = true;
+        unregisterReceiver(mConnectivityReceiver);
+        // Drop the pages the paginator is still loading, and stop loading the other sections.
+        mPaginator.cancel();
+        mSectionPrefetcher.cancel();
+        // The pages of the lists spilled to a file are not needed anymore, once the snapshot
+        // taken from them is written.
+        final NewsRepository repository = mRepository;
+        final Future<?> updates = mAdapter.release();
+        final File snapshotFile =
+                isFinishing() ? new File(getCacheDir(), SNAPSHOT_FILE_NAME) : null;
+        SNAPSHOT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Wait for the update of the list being built.
+                try {
+                    updates.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Log.e(LOG_TAG, "Problem waiting for the updates of the list.", e);
+                }
+                repository.close();
+                // Users left, nothing is going to restore the list.
+                if (snapshotFile != null) {
+                    snapshotFile.delete();
+                }
+            }
+        });
+    }
+
     /**
      * This method will be called when it needs to create a new {@link Loader}.
      *
      * @param i      is the ID whose loader is to be created.
-     * @param bundle is any arguments supplied by the caller. Here is null.
-     * @return a new custom AsyncTaskLoader.
+     * @param bundle is any arguments supplied by the caller,
+     *               which tells whether to skip the cache or not. It can be null.
+     * @return a new {@link NewsLoader}, which loads the first page of news.
      */
     @Override
     public Loader<List<News>> onCreateLoader(int i, Bundle bundle) {
-
-        // Use {@link Uri.Builder} to build a request url.
-        Uri baseUri = Uri.parse(BASE_REQUEST_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        // Only section has value, append query parameter to the URL.
-        if (section != null) {
-            uriBuilder.appendQueryParameter("section", section);
+        // Set the loading indicator to true, the next pages wait for the first one.
+        isLoading = true;
+        // The list being restored would replace the one being loaded.
+        mRestoringSnapshotId = 0;
+        mLoadStart = Metrics.getDefault().startTimer();
+        // Drop the next pages of the previous list.
+        mPaginator.reset(section, 0);
+        boolean forceRefresh = bundle != null && bundle.getBoolean(ARG_FORCE_REFRESH);
+        // A refresh that users asked for goes ahead of the pages loaded in the background.
+        int priority = forceRefresh ? LoadExecutor.PRIORITY_REFRESH : LoadExecutor.PRIORITY_LOAD;
+        // A new list, its pages are as big as the connection downloads quickly.
+        mPageSize = choosePageSize();
+        // The prefetched first page is only shown when the next pages follow it.
+        List<News> prefetchedNews = mPrefetchedNews;
+        mPrefetchedNews = null;
+        if (forceRefresh || prefetchedNews == null || prefetchedNews.size() != mPageSize) {
+            prefetchedNews = null;
         }
+        return new NewsLoader(getApplicationContext(), buildRequest(section, 1),
+                forceRefresh, priority, !isConnected(), prefetchedNews);
+    }
 
-        uriBuilder.appendQueryParameter("page", Integer.toString(requestPage));
-        uriBuilder.appendQueryParameter("format", "json");
-        uriBuilder.appendQueryParameter("api-key", "test");
+    /**
+     * Helper method that builds the request of the given page of news, with the page size
+     * of the current list.
+     *
+     * @param section is the section of news, null means the overview.
+     * @param page    is the page of news.
+     * @return the request.
+     */
+    private GuardianRequest buildRequest(String section, int page) {
+        return new GuardianRequest.Builder()
+                .baseUrl(BuildConfig.NEWS_API_BASE_URL)
+                .section(section)
+                .page(page)
+                .pageSize(mPageSize)
+                .showFields(GuardianRequest.FIELD_THUMBNAIL)
+                .orderBy(GuardianRequest.ORDER_BY_NEWEST)
+                .build();
+    }
 
-        return new NewsLoader(getApplicationContext(), uriBuilder.toString());
+    /**
+     * Helper method that chooses the page size from the type of the active network
+     * and the throughput of the previous responses.
+     */
+    private int choosePageSize() {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                getSystemService(Context.CONNECTIVITY_SERVICE);
+        boolean isMetered = ConnectivityManagerCompat.isActiveNetworkMetered(connMgr);
+        return QueryUtils.getPageSizePolicy().getPageSize(isMetered);
     }
 
     /**
@@ -266,32 +766,70 @@ public class MainActivity extends AppCompatActivity
     public void onLoadFinished(Loader<List<News>> loader, List<News> newsList) {
         // Set the loading indicator to false, because the data loading is finished.
         isLoading = false;
+        // The next pages have the size of the first one, even when the loader was created by
+        // the activity before a rotation.
+        mPageSize = ((NewsLoader) loader).getRequest().getPageSize();
+        // Keep the search results on screen, the section comes back when the search closes.
+        if (mIsSearching) {
+            SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
+            swipeContainer.setRefreshing(false);
+            return;
+        }
+        // Remember whether the news on screen are the saved ones.
+        boolean wasOffline = mIsOffline;
+        mIsOffline = ((NewsLoader) loader).isOffline();
+        // The connection came back while the saved news were being read.
+        if (mIsOffline && isConnected()) {
+            mIsOffline = false;
+            getLoaderManager().restartLoader(NEWS_LOADER_ID, null, this);
+            return;
+        }
 
         // Call setRefreshing(false) to signal refresh has finished.
         SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
         swipeContainer.setRefreshing(false);
 
+        // The revalidated first page only replaces the stale one, users may be reading further
+        // down and the next pages are still appended.
+        if (((NewsLoader) loader).isRevalidation()) {
+            mAdapter.replaceFirstPage(section, newsList);
+            mSectionPrefetcher.put(section, newsList);
+            return;
+        }
+
         // If there is a valid list of {@link Book}s, then add them to the adapter's data set.
         if (newsList != null && !newsList.isEmpty()) {
-            if (requestPage == 1) {
-                // Clear the adapter of previous book data.
-                mAdapter.clear();
-                // Make RecyclerView scroll to the top.
-                layoutManager.scrollToPosition(0);
-            }
-
-            // Add the list of book through adapter.
-            mAdapter.addAll(newsList);
+            // Make RecyclerView scroll to the top.
+            layoutManager.scrollToPosition(0);
+
+            // Replace the list of news through adapter, only the changed rows are updated.
+            mAdapter.replace(section, 1, newsList);
+            Metrics.getDefault().stopTimer(Metrics.STAGE_LOAD, mLoadStart);
+            // Delivering the news again, like after a rotation, is not a new load.
+            mLoadStart = 0;
+            // The next pages follow this first one.
+            mPaginator.reset(section, 1);
             // Hide empty state view.
             setEmptyView(false, null, null);
+            if (mIsOffline) {
+                // Tell users once that they are reading the saved news.
+                if (!wasOffline) {
+                    Toast.makeText(getApplicationContext(), getString(R.string.offline_mode),
+                            Toast.LENGTH_SHORT).show();
+                }
+            } else {
+                // Keep this section in memory, and load the other ones in the background.
+                mSectionPrefetcher.put(section, newsList);
+                mSectionPrefetcher.prefetch(DRAWER_SECTIONS);
+            }
         } else if (!isConnected()) {
             // Clear the adapter of previous book data.
-            mAdapter.clear();
+            mAdapter.replace(section, 0, Collections.<News>emptyList());
             // Set no internet connection empty state.
             setEmptyView(true, R.string.no_connection, R.drawable.no_connection);
         } else {
             // Clear the adapter of previous book data.
-            mAdapter.clear();
+            mAdapter.replace(section, 0, Collections.<News>emptyList());
             // Set no result found empty state.
             setEmptyView(true, R.string.something_wrong, R.drawable.something_wrong);
         }
@@ -331,6 +869,10 @@ public class MainActivity extends AppCompatActivity
      */
     @Override
     public boolean onNavigationItemSelected(MenuItem item) {
+        // Close the search, the list is going to show a section.
+        if (mIsSearching) {
+            mSearchItem.collapseActionView();
+        }
         // Handle navigation view item clicks here.
         // Set the ToolBal title and the data set URL section.
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -363,26 +905,39 @@ public class MainActivity extends AppCompatActivity
                 Log.e(LOG_TAG, "Something wrong with navigation drawer items.");
         }
 
-        if (isConnected()) {
+        mPrefetchedNews = mSectionPrefetcher.get(section);
+        if (mPrefetchedNews == null) {
             // Set the swipe refreshing indicator to true.
             SwipeRefreshLayout swipeContainer = findViewById(R.id.swipe_container);
             swipeContainer.setRefreshing(true);
-            // Set news page back to one.
-            requestPage = 1;
-            // Get a reference to the LoaderManager and restart the loader.
-            getLoaderManager().restartLoader(NEWS_LOADER_ID, null, this);
-        } else {
-            // Clear the list of news first.
-            mAdapter.clear();
-            // Set no internet connection empty state.
-            setEmptyView(true, R.string.no_connection, R.drawable.no_connection);
         }
+        // Get a reference to the LoaderManager and restart the loader.
+        // Without Internet Connection, it reads the saved news of the section. When the
+        // section is already in memory, the loader delivers it without waiting, once, and
+        // holds it when users rotate their device.
+        getLoaderManager().restartLoader(NEWS_LOADER_ID, null, this);
         // Close navigation drawer after handling item click event.
         DrawerLayout drawer = findViewById(R.id.drawer_layout);
         drawer.closeDrawer(GravityCompat.START);
         return true;
     }
 
+    /**
+     * Helper method that records the metrics of the load pipeline in debug builds, with the
+     * latency budget of each stage. A release build doesn't record anything.
+     */
+    private static void setUpMetrics() {
+        Metrics metrics = Metrics.getDefault();
+        metrics.setEnabled(BuildConfig.DEBUG);
+        metrics.setBudget(Metrics.STAGE_LOAD, 1000);
+        metrics.setBudget(Metrics.STAGE_CONNECT, 300);
+        // A response is parsed while it downloads, this budget covers the parse too.
+        metrics.setBudget(Metrics.STAGE_DOWNLOAD, 800);
+        // A frame is 16 milliseconds, a diff or a row must fit in it many times over.
+        metrics.setBudget(Metrics.STAGE_DIFF, 8);
+        metrics.setBudget(Metrics.STAGE_BIND, 1);
+    }
+
     /**
      * Helper method that tells whether the device is connected to Internet or not.
      *
@@ -399,6 +954,17 @@ public class MainActivity extends AppCompatActivity
         return networkInfo != null && networkInfo.isConnected();
     }
 
+    /**
+     * Helper method that returns the type of the active network, one of the types of
+     * {@link ConnectivityManager}, or -1 when the device isn't connected.
+     */
+    private int getNetworkType() {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected() ? networkInfo.getType() : -1;
+    }
+
     /**
      * Helper method that set the empty state to the TextView,
      * which tells users the current status of the app.
@@ -0,0 +1,329 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies of the stages of the load pipeline, from the request to the bound rows, and
+ * counters of what happened along the way.
+ * <p>
+ * The stages and counters are numbered, so recording is an array access, without any
+ * lookup or allocation. Metrics are disabled by default: {@link #startTimer()} then returns
+ * zero and every record method returns after reading a single volatile field.
+ * <p>
+ * A stage can have a latency budget. A {@link MetricsExporter} receives a {@link Snapshot}
+ * of the metrics, which tells the stages whose 90th percentile is over budget.
+ */
+public class Metrics {
+    /**
+     * From the loader being created to the first page handed to the list.
+     */
+    public static final int STAGE_LOAD = 0;
+
+    /**
+     * DNS, TCP and TLS of a new connection. A reused connection records nothing.
+     */
+    public static final int STAGE_CONNECT = 1;
+
+    /**
+     * From the request being sent to the last byte of the response. The response is parsed
+     * while it downloads, so this includes the parse.
+     */
+    public static final int STAGE_DOWNLOAD = 2;
+
+    /**
+     * Parsing a response into news, including the waits for the bytes of a streamed one.
+     */
+    public static final int STAGE_PARSE = 3;
+
+    /**
+     * Computing the difference between the list on screen and the new one.
+     */
+    public static final int STAGE_DIFF = 4;
+
+    /**
+     * Binding a news to a row.
+     */
+    public static final int STAGE_BIND = 5;
+
+    private static final String[] STAGE_NAMES = {
+            "load", "connect", "download", "parse", "diff", "bind"};
+
+    /**
+     * Bytes received on the wire.
+     */
+    public static final int COUNTER_BYTES_RECEIVED = 0;
+
+    /**
+     * Pages served from the cache without a request.
+     */
+    public static final int COUNTER_CACHE_HITS = 1;
+
+    /**
+     * Pages that needed a request.
+     */
+    public static final int COUNTER_CACHE_MISSES = 2;
+
+    /**
+     * Requests that failed, every attempt counts.
+     */
+    public static final int COUNTER_ERRORS = 3;
+
+    private static final String[] COUNTER_NAMES = {
+            "bytesReceived", "cacheHits", "cacheMisses", "errors"};
+
+    /**
+     * Metrics shared by the whole app.
+     */
+    private static final Metrics sDefault = new Metrics();
+
+    private volatile boolean mEnabled;
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[STAGE_NAMES.length];
+
+    private final AtomicLongArray mCounters = new AtomicLongArray(COUNTER_NAMES.length);
+
+    /**
+     * Latency budget in microseconds of every stage, zero means none.
+     */
+    private final AtomicLongArray mBudgets = new AtomicLongArray(STAGE_NAMES.length);
+
+    /**
+     * Create a new disabled {@link Metrics} object.
+     */
+    public Metrics() {
+        for (int stage = 0; stage < mHistograms.length; stage++) {
+            mHistograms[stage] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Return the metrics shared by the whole app.
+     */
+    public static Metrics getDefault() {
+        return sDefault;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Start or stop recording. What was recorded so far is kept.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * Return the start time of a stage to pass to {@link #stopTimer(int, long)},
+     * or zero when the metrics are disabled.
+     */
+    public long startTimer() {
+        return mEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the latency of the given stage since the given start time. Nothing is recorded
+     * when the timer was started while the metrics were disabled.
+     *
+     * @param stage      is one of the STAGE constants.
+     * @param startNanos is the value returned by {@link #startTimer()}.
+     */
+    public void stopTimer(int stage, long startNanos) {
+        if (startNanos != 0 && mEnabled) {
+            mHistograms[stage].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Record a latency of the given stage measured some other way.
+     *
+     * @param stage  is one of the STAGE constants.
+     * @param millis is the latency in milliseconds.
+     */
+    public void recordMillis(int stage, long millis) {
+        if (mEnabled) {
+            mHistograms[stage].record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    /**
+     * Add the given value to a counter.
+     *
+     * @param counter is one of the COUNTER constants.
+     */
+    public void add(int counter, long delta) {
+        if (mEnabled) {
+            mCounters.addAndGet(counter, delta);
+        }
+    }
+
+    /**
+     * Add one to a counter.
+     *
+     * @param counter is one of the COUNTER constants.
+     */
+    public void increment(int counter) {
+        add(counter, 1);
+    }
+
+    /**
+     * Set the latency budget of a stage.
+     *
+     * @param stage  is one of the STAGE constants.
+     * @param millis is the budget of the 90th percentile in milliseconds, zero removes it.
+     */
+    public void setBudget(int stage, long millis) {
+        mBudgets.set(stage, TimeUnit.MILLISECONDS.toMicros(millis));
+    }
+
+    /**
+     * Return what was recorded so far.
+     */
+    public Snapshot snapshot() {
+        StageSnapshot[] stages = new StageSnapshot[mHistograms.length];
+        for (int stage = 0; stage < stages.length; stage++) {
+            LatencyHistogram histogram = mHistograms[stage];
+            stages[stage] = new StageSnapshot(STAGE_NAMES[stage], histogram.getCount(),
+                    histogram.getMeanMicros(), histogram.getPercentileMicros(50),
+                    histogram.getPercentileMicros(90), histogram.getPercentileMicros(99),
+                    histogram.getMaxMicros(), mBudgets.get(stage));
+        }
+        long[] counters = new long[COUNTER_NAMES.length];
+        for (int counter = 0; counter < counters.length; counter++) {
+            counters[counter] = mCounters.get(counter);
+        }
+        return new Snapshot(System.currentTimeMillis(), stages, counters);
+    }
+
+    /**
+     * Hand a snapshot of the metrics to the given exporter.
+     */
+    public void export(MetricsExporter exporter) {
+        exporter.export(snapshot());
+    }
+
+    /**
+     * Set every latency and counter back to zero. The budgets are kept.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : mHistograms) {
+            histogram.reset();
+        }
+        for (int counter = 0; counter < COUNTER_NAMES.length; counter++) {
+            mCounters.set(counter, 0);
+        }
+    }
+
+    /**
+     * The latencies of a stage at the time of a snapshot, in microseconds.
+     */
+    public static class StageSnapshot {
+        public final String name;
+        public final long count;
+        public final long meanMicros;
+        public final long p50Micros;
+        public final long p90Micros;
+        public final long p99Micros;
+        public final long maxMicros;
+
+        /**
+         * Budget of the 90th percentile, zero means none.
+         */
+        public final long budgetMicros;
+
+        StageSnapshot(String name, long count, long meanMicros, long p50Micros, long p90Micros,
+                      long p99Micros, long maxMicros, long budgetMicros) {
+            this.name = name;
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.budgetMicros = budgetMicros;
+        }
+
+        /**
+         * Return whether the stage has a budget and its 90th percentile is over it.
+         */
+        public boolean isOverBudget() {
+            return budgetMicros > 0 && p90Micros > budgetMicros;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{count=" + count
+                    + ", mean=" + meanMicros
+                    + "us, p50=" + p50Micros
+                    + "us, p90=" + p90Micros
+                    + "us, p99=" + p99Micros
+                    + "us, max=" + maxMicros + "us"
+                    + (budgetMicros > 0 ? ", budget=" + budgetMicros + "us" : "") + "}";
+        }
+    }
+
+    /**
+     * The metrics at a point in time.
+     */
+    public static class Snapshot {
+        /**
+         * Time in milliseconds when the snapshot was taken.
+         */
+        public final long takenAt;
+
+        private final StageSnapshot[] mStages;
+        private final long[] mCounters;
+
+        Snapshot(long takenAt, StageSnapshot[] stages, long[] counters) {
+            this.takenAt = takenAt;
+            mStages = stages;
+            mCounters = counters;
+        }
+
+        /**
+         * @param stage is one of the STAGE constants.
+         */
+        public StageSnapshot getStage(int stage) {
+            return mStages[stage];
+        }
+
+        public int getStageCount() {
+            return mStages.length;
+        }
+
+        /**
+         * @param counter is one of the COUNTER constants.
+         */
+        public long getCounter(int counter) {
+            return mCounters[counter];
+        }
+
+        /**
+         * Return the name of a counter, like "cacheHits".
+         *
+         * @param counter is one of the COUNTER constants.
+         */
+        public String getCounterName(int counter) {
+            return COUNTER_NAMES[counter];
+        }
+
+        public int getCounterCount() {
+            return mCounters.length;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Metrics{");
+            for (StageSnapshot stage : mStages) {
+                builder.append(stage).append(", ");
+            }
+            for (int counter = 0; counter < mCounters.length; counter++) {
+                builder.append(COUNTER_NAMES[counter]).append('=').append(mCounters[counter]);
+                builder.append(counter < mCounters.length - 1 ? ", " : "}");
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.android.newsapp;
+
+/**
+ * Receives the snapshots of the {@link Metrics}, like to keep them or to write them out.
+ */
+public interface MetricsExporter {
+    /**
+     * Called on the thread that asked for the export.
+     */
+    void export(Metrics.Snapshot snapshot);
+}
@@ -2,7 +2,10 @@ package com.example.android.newsapp;
 
 /**
  * A {@link News} object contains information related to a news.
- * It includes the title, time and URL of the news.
+ * It includes the title, time, URL and thumbnail of the news.
+ * <p>
+ * The fields shown on screen are computed once when the object is created, which happens
+ * on a background thread while parsing, so binding a list item doesn't parse or allocate.
  */
 public class News {
     /**
@@ -20,6 +23,31 @@ public class News {
      */
     private String mUrl;
 
+    /**
+     * URL of the thumbnail image of the news, or null when it has none.
+     */
+    private String mThumbnailUrl;
+
+    /**
+     * Time of the news in milliseconds since the epoch, or -1 when it can't be parsed.
+     */
+    private long mTimeInMillis;
+
+    /**
+     * Time of the news shown on screen.
+     */
+    private String mDisplayTime;
+
+    /**
+     * Initial letter of the title, shown in a large font.
+     */
+    private String mInitialLetter;
+
+    /**
+     * Title of the news without its initial letter.
+     */
+    private String mTitleWithoutInitial;
+
     /**
      * Create a new News object.
      *
@@ -28,9 +56,27 @@ public class News {
      * @param url   is the URL of the news.
      */
     public News(String title, String time, String url) {
+        this(title, time, url, null);
+    }
+
+    /**
+     * Create a new News object with a thumbnail.
+     *
+     * @param title        is the title of the news.
+     * @param time         is the time of the news.
+     * @param url          is the URL of the news.
+     * @param thumbnailUrl is the URL of the thumbnail image, or null when it has none.
+     */
+    public News(String title, String time, String url, String thumbnailUrl) {
         mTitle = title;
         mTime = time;
         mUrl = url;
+        mThumbnailUrl = thumbnailUrl;
+
+        mTimeInMillis = TimeUtils.parseIsoTime(time);
+        mDisplayTime = mTimeInMillis >= 0 ? TimeUtils.formatDisplayTime(mTimeInMillis) : time;
+        mInitialLetter = title.isEmpty() ? "" : title.substring(0, 1);
+        mTitleWithoutInitial = title.isEmpty() ? "" : title.substring(1);
     }
 
     /**
@@ -53,4 +99,66 @@ public class News {
     public String getUrl() {
         return mUrl;
     }
+
+    /**
+     * Return the URL of the thumbnail image, or null when the news has none.
+     */
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    /**
+     * Return the time of the news in milliseconds since the epoch,
+     * or -1 when it can't be parsed.
+     */
+    public long getTimeInMillis() {
+        return mTimeInMillis;
+    }
+
+    /**
+     * Return the time of the news in the "yyyy-MM-dd HH:mm:ss" format.
+     */
+    public String getDisplayTime() {
+        return mDisplayTime;
+    }
+
+    /**
+     * Return the initial letter of the title.
+     */
+    public String getInitialLetter() {
+        return mInitialLetter;
+    }
+
+    /**
+     * Return the title of the news without its initial letter.
+     */
+    public String getTitleWithoutInitial() {
+        return mTitleWithoutInitial;
+    }
+
+    /**
+     * Two news are equal when their title, time, URL and thumbnail are all the same.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof News)) {
+            return false;
+        }
+        News news = (News) o;
+        return mTitle.equals(news.mTitle) && mTime.equals(news.mTime) && mUrl.equals(news.mUrl)
+                && (mThumbnailUrl == null
+                ? news.mThumbnailUrl == null : mThumbnailUrl.equals(news.mThumbnailUrl));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mTitle.hashCode();
+        result = 31 * result + mTime.hashCode();
+        result = 31 * result + mUrl.hashCode();
+        result = 31 * result + (mThumbnailUrl == null ? 0 : mThumbnailUrl.hashCode());
+        return result;
+    }
 }
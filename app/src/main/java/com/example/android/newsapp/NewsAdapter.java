@@ -3,19 +3,24 @@ package com.example.android.newsapp;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.util.Log;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * {@link NewsAdapter} is an {@link RecyclerView.Adapter} that can provide the layout
@@ -24,29 +29,134 @@ import java.util.Locale;
 public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder> {
 
     /**
-     * Tag for the log messages.
+     * Single background thread that builds the next lists and computes their differences,
+     * so the updates are applied in the order they were submitted.
      */
-    private static final String LOG_TAG = NewsAdapter.class.getSimpleName();
+    private static final ExecutorService UPDATE_EXECUTOR = Executors.newSingleThreadExecutor();
 
     /**
-     * Create a new list of {@link News} object.
+     * Single background thread that loads the spilled pages around the rows on screen back
+     * into memory, so the rows are bound without reading the spill file.
      */
-    private List<News> mNewsList;
+    private static final ExecutorService PRELOAD_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Number of rows before and after the ones on screen whose pages are kept in memory.
+     * The loaded range moves by this many rows at a time.
+     */
+    private static final int PRELOAD_DISTANCE = 20;
+
+    /**
+     * Holds the pages of the lists, in memory or in the spill file.
+     */
+    private final NewsRepository mRepository;
+
+    /**
+     * The list of {@link News} object on screen. It is never modified in place,
+     * every update replaces it with a new list.
+     */
+    private PagedNewsList mNewsList;
+
+    /**
+     * The snapshot of the section on screen, null when other news are shown.
+     */
+    private NewsRepository.Snapshot mSnapshot;
+
+    /**
+     * Number of updates built or waiting to be applied.
+     */
+    private int mPendingUpdateCount;
+
+    /**
+     * The list of {@link News} object once every pending update is applied.
+     * Only used on the update thread.
+     */
+    private PagedNewsList mLatestList;
+
+    /**
+     * The snapshot of the section the next pages are appended to.
+     * Only used on the update thread.
+     */
+    private NewsRepository.Snapshot mLatestSnapshot;
+
+    /**
+     * The URLs of the latest snapshot, so the pages appended to it drop the news it already
+     * has. Only used on the update thread.
+     */
+    private final NewsDeduplicator mDeduplicator = new NewsDeduplicator();
+
+    /**
+     * The snapshot whose URLs are in the {@link #mDeduplicator}.
+     * Only used on the update thread.
+     */
+    private NewsRepository.Snapshot mDeduplicatedSnapshot;
+
+    /**
+     * The list and the range of positions, from included to excluded, whose pages were last
+     * loaded into memory.
+     */
+    private PagedNewsList mPreloadedList;
+    private int mPreloadedFrom;
+    private int mPreloadedTo;
+
+    /**
+     * Whether the list stopped updating.
+     */
+    private volatile boolean mIsReleased;
+
+    /**
+     * Receives the number of news of every appended page that were not already in the list.
+     */
+    private OnPageAppendedListener mOnPageAppendedListener;
+
+    /**
+     * Handler of the main thread, which applies the computed differences.
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     /**
      * Context passed in through the constructor.
      */
     private Context mContext;
 
+    /**
+     * Loads the thumbnails of the news in the background.
+     */
+    private final ImageLoader mImageLoader;
+
+    /**
+     * Size in pixels of the thumbnail views, the images are decoded no larger.
+     */
+    private final int mThumbnailWidth;
+    private final int mThumbnailHeight;
+
+    /**
+     * The thumbnail views of every row created, to give their bitmaps back to the
+     * {@link ImageLoader} once the list is released. The rows still on screen are never
+     * recycled.
+     */
+    private final List<ImageView> mThumbnailViews = new ArrayList<>();
+
     /**
      * Create a new {@link NewsAdapter} object.
      *
-     * @param context  is the context of the Activity.
-     * @param newsList is a list of {@link News} objects。
+     * @param context    is the context of the Activity.
+     * @param repository holds the pages of the lists.
+     * @param snapshot   is the snapshot of the section on screen at first.
      */
-    public NewsAdapter(Context context, List<News> newsList) {
+    public NewsAdapter(Context context, NewsRepository repository,
+                       NewsRepository.Snapshot snapshot) {
         mContext = context;
-        mNewsList = newsList;
+        mImageLoader = ImageLoader.getInstance(context);
+        mThumbnailWidth = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_width);
+        mThumbnailHeight =
+                context.getResources().getDimensionPixelSize(R.dimen.thumbnail_height);
+        mRepository = repository;
+        mSnapshot = snapshot;
+        mNewsList = snapshot.newsList;
+        // Read by the first update, which starts after this.
+        mLatestSnapshot = snapshot;
+        mLatestList = snapshot.newsList;
     }
 
     /**
@@ -70,6 +180,30 @@ public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder>
         void onItemClick(View view, int position);
     }
 
+    /**
+     * Setup the listener of the appended pages.
+     *
+     * @param onPageAppendedListener is called on the main thread after every appended page.
+     */
+    public void setOnPageAppendedListener(OnPageAppendedListener onPageAppendedListener) {
+        mOnPageAppendedListener = onPageAppendedListener;
+    }
+
+    /**
+     * The interface of the listener of the appended pages.
+     */
+    public interface OnPageAppendedListener {
+        /**
+         * Called when a page was appended to the section, without the news that were
+         * already in it.
+         *
+         * @param page          is the appended page.
+         * @param appendedCount is the number of news appended.
+         * @param loadedCount   is the number of news of the loaded page.
+         */
+        void onPageAppended(int page, int appendedCount, int loadedCount);
+    }
+
     /**
      * Return the size of the list of {@link News} object.
      * Must override this method.
@@ -96,55 +230,107 @@ public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder>
         // Inflate the custom layout.
         View itemView = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.list_item, parent, false);
+        final MyViewHolder holder = new MyViewHolder(itemView);
+        mThumbnailViews.add(holder.thumbnailView);
+
+        // Set the click listener once for the holder, instead of creating one at every bind.
+        holder.listItemContainer.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                int position = holder.getAdapterPosition();
+                // The item may have been removed while the click was dispatched.
+                if (mOnItemClickListener == null || position == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                // Override the onItemClick method in MainActivity.
+                mOnItemClickListener.onItemClick(view, position);
+
+                // The row of a spilled page shows nothing to click yet.
+                News news = mNewsList.peek(position);
+                if (news == null) {
+                    return;
+                }
+                // Intent to browser according to the news URL.
+                Intent intent = new Intent(Intent.ACTION_VIEW);
+                intent.setData(Uri.parse(news.getUrl()));
+                mContext.startActivity(intent);
+            }
+        });
 
         // Return a new holder instance.
-        return new MyViewHolder(itemView);
+        return holder;
+    }
+
+    /**
+     * Load the pages around the rows on screen as users scroll.
+     */
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+                if (layoutManager instanceof LinearLayoutManager) {
+                    LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+                    preload(linearLayoutManager.findFirstVisibleItemPosition(),
+                            linearLayoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
     }
 
     /**
      * Involves populating data into the item through holder.
+     * Every text was computed when the {@link News} was parsed, and the news is only read when
+     * its page is in memory, so nothing is allocated or read from the spill file here. The row
+     * of a spilled page is left blank until the page is loaded back.
      *
      * @param holder   is the custom ViewHolder.
      * @param position is the current position in RecyclerView.
      */
     @Override
-    public void onBindViewHolder(final MyViewHolder holder, final int position) {
+    public void onBindViewHolder(MyViewHolder holder, int position) {
+        long start = Metrics.getDefault().startTimer();
         // Get the data model based on position.
-        final News news = mNewsList.get(position);
+        News news = mNewsList.peek(position);
+        if (news == null) {
+            // Like a jump to a row far from the ones that were preloaded.
+            holder.initialLetterView.setText(null);
+            holder.newsTitleView.setText(null);
+            holder.newsTimeView.setText(null);
+            mImageLoader.cancel(holder.thumbnailView);
+            holder.thumbnailView.setVisibility(View.GONE);
+            // Even within the preloaded range, its page may have been spilled since.
+            mPreloadedList = null;
+            preload(position, position);
+            Metrics.getDefault().stopTimer(Metrics.STAGE_BIND, start);
+            return;
+        }
 
         // Set the initial letter of the news title to the TextView.
-        holder.initialLetterView.setText(String.valueOf(news.getTitle().charAt(0)));
+        holder.initialLetterView.setText(news.getInitialLetter());
         // Set the title of the news to the TextView.
-        holder.newsTitleView.setText(news.getTitle().substring(1));
-
-        try {
-            // The API returns the time in ISO-8601 format, it needs to be parsed to Date object.
-            SimpleDateFormat inFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'",
-                    Locale.getDefault());
-            Date dateIn = inFormat.parse(news.getTime());
-            // Define the time format that the app wants and set it to the TextView.
-            SimpleDateFormat outFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss",
-                    Locale.getDefault());
-            holder.newsTimeView.setText(outFormat.format(dateIn));
-        } catch (ParseException e) {
-            Log.e(LOG_TAG, "Problem parsing the news time.", e);
-        }
-
-        // Create an instance of RecyclerVIew OnItemClickListener.
-        if (mOnItemClickListener != null) {
-            holder.listItemContainer.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View view) {
-                    // Override the onItemClick method in MainActivity.
-                    mOnItemClickListener.onItemClick(view, holder.getAdapterPosition());
-
-                    // Intent to browser according to the news URL.
-                    Intent intent = new Intent(Intent.ACTION_VIEW);
-                    intent.setData(Uri.parse(news.getUrl()));
-                    mContext.startActivity(intent);
-                }
-            });
+        holder.newsTitleView.setText(news.getTitleWithoutInitial());
+        // Set the time of the news to the TextView.
+        holder.newsTimeView.setText(news.getDisplayTime());
+        // Load the thumbnail, or stop loading the one of the news the row showed before.
+        if (news.getThumbnailUrl() != null) {
+            holder.thumbnailView.setVisibility(View.VISIBLE);
+            mImageLoader.load(news.getThumbnailUrl(), holder.thumbnailView,
+                    mThumbnailWidth, mThumbnailHeight);
+        } else {
+            mImageLoader.cancel(holder.thumbnailView);
+            holder.thumbnailView.setVisibility(View.GONE);
         }
+        Metrics.getDefault().stopTimer(Metrics.STAGE_BIND, start);
+    }
+
+    /**
+     * Stop loading the thumbnail of a row scrolled off screen, so its bitmap can be reused.
+     */
+    @Override
+    public void onViewRecycled(MyViewHolder holder) {
+        mImageLoader.cancel(holder.thumbnailView);
     }
 
     /**
@@ -156,6 +342,7 @@ public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder>
         // for any view that will be set as you render a row.
         public RelativeLayout listItemContainer;
         public TextView initialLetterView, newsTitleView, newsTimeView;
+        public ImageView thumbnailView;
 
         // Create a constructor that accepts the entire item row
         // and does the view lookups to find each subview.
@@ -168,26 +355,411 @@ public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder>
             initialLetterView = view.findViewById(R.id.initial_letter);
             newsTitleView = view.findViewById(R.id.title);
             newsTimeView = view.findViewById(R.id.time);
+            thumbnailView = view.findViewById(R.id.thumbnail);
         }
     }
 
+    /**
+     * Helper method that replaces the list of {@link RecyclerView} with the given news, which
+     * become the pages of the section up to the given one in the {@link NewsRepository}.
+     * The news are de-duplicated, paged and diffed against the latest list on a background
+     * thread, then only the inserted, removed and changed rows are notified, on the main thread.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param lastPage is the last page of the given news, zero when there is none.
+     * @param newsList is the news of the pages up to the last one.
+     */
+    public void replace(String section, int lastPage, List<News> newsList) {
+        replace(section, lastPage, newsList, null);
+    }
+
+    /**
+     * Same as {@link #replace(String, int, List)}, then run the given callback on the main
+     * thread once the news are on screen, like to scroll back to a row of a restored list.
+     *
+     * @param onApplied is run once the news are on screen, it can be null.
+     */
+    public void replace(final String section, final int lastPage, final List<News> newsList,
+                        Runnable onApplied) {
+        submit(new Update() {
+            @Override
+            AppliedUpdate build() {
+                mDeduplicator.clear();
+                List<News> uniqueList = mDeduplicator.filter(newsList);
+                NewsRepository.Snapshot snapshot =
+                        mRepository.replace(section, lastPage, uniqueList);
+                mDeduplicator.addAll(uniqueList);
+                mDeduplicatedSnapshot = snapshot;
+                mLatestSnapshot = snapshot;
+                return diffTo(snapshot.newsList, snapshot);
+            }
+        }, onApplied);
+    }
+
+    /**
+     * Helper method that replaces the first page of the section the latest {@link #replace}
+     * is showing with the given news, like when a stale cached page was revalidated. The
+     * following pages stay, so the list keeps its position and the pages being loaded are
+     * still appended. Only the changed rows are notified.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param newsList is the news of the first page.
+     */
+    public void replaceFirstPage(final String section, final List<News> newsList) {
+        submit(new Update() {
+            @Override
+            AppliedUpdate build() {
+                NewsRepository.Snapshot previous = mLatestSnapshot;
+                if (previous.lastPage == 0 || !TextUtils.equals(previous.section, section)) {
+                    // Another section was shown since, the page is in the cache for it.
+                    return null;
+                }
+                NewsRepository.Snapshot snapshot = mRepository.replaceFirstPage(previous,
+                        new NewsDeduplicator().filter(newsList));
+                if (snapshot == null) {
+                    return null;
+                }
+                mDeduplicator.clear();
+                mDeduplicator.addAll(snapshot.newsList);
+                mDeduplicatedSnapshot = snapshot;
+                mLatestSnapshot = snapshot;
+                if (mLatestList != previous.newsList) {
+                    // The section comes back with this page when it is shown again.
+                    return null;
+                }
+                return diffTo(snapshot.newsList, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Helper method that appends the given page to the section on screen, or to the section
+     * the latest {@link #replace} is showing, without the news the section already has. The
+     * page is dropped when it doesn't follow the last page of the section. When other news
+     * are shown, like search results, the page is only added to the {@link NewsRepository}.
+     * <p>
+     * Only the inserted range is notified, so the rows on screen are not bound again.
+     *
+     * @param page     is the page of the given news.
+     * @param newsList is the news of the page.
+     */
+    public void appendPage(final int page, final List<News> newsList) {
+        submit(new Update() {
+            @Override
+            AppliedUpdate build() {
+                NewsRepository.Snapshot previous = mLatestSnapshot;
+                if (mDeduplicatedSnapshot != previous) {
+                    // Like the snapshot restored at first, read its URLs once.
+                    mDeduplicator.clear();
+                    mDeduplicator.addAll(previous.newsList);
+                    mDeduplicatedSnapshot = previous;
+                }
+                // Drop the news already in the list, pushed onto this page by newer ones.
+                List<News> uniqueList = mDeduplicator.filter(newsList);
+                NewsRepository.Snapshot snapshot =
+                        mRepository.append(previous, page, uniqueList);
+                if (snapshot == null) {
+                    return null;
+                }
+                mDeduplicator.addAll(uniqueList);
+                mDeduplicatedSnapshot = snapshot;
+                mLatestSnapshot = snapshot;
+                reportAppendedPage(page, uniqueList.size(), newsList.size());
+                if (mLatestList != previous.newsList) {
+                    // The section comes back with this page when it is shown again.
+                    return null;
+                }
+                int start = mLatestList.size();
+                mLatestList = snapshot.newsList;
+                return new AppliedUpdate(snapshot.newsList, snapshot, null,
+                        start, snapshot.newsList.size() - start, false);
+            }
+        });
+    }
+
+    /**
+     * Helper method that replaces the list of {@link RecyclerView} with the given news, which
+     * aren't the pages of a section, like search results.
+     *
+     * @param newsList is a reference of the {@link List<News>}.
+     */
+    public void replaceAll(final List<News> newsList) {
+        submit(new Update() {
+            @Override
+            AppliedUpdate build() {
+                PagedNewsList pagedList = new PagedNewsList(mRepository.getPagePool())
+                        .append(new NewsDeduplicator().filter(newsList));
+                return diffTo(pagedList, null);
+            }
+        });
+    }
+
     /**
      * Helper method that clear the list of {@link RecyclerView}
      * and notify the adapter of the removal.
      */
     public void clear() {
-        mNewsList.clear();
-        notifyDataSetChanged();
+        replaceAll(new ArrayList<News>());
+    }
+
+    /**
+     * Return the snapshot of the section on screen, or null when other news are shown, like
+     * search results. It never changes, so it can be read on a background thread until the
+     * {@link NewsRepository} is closed.
+     */
+    public NewsRepository.Snapshot getSnapshot() {
+        return mSnapshot;
     }
 
     /**
-     * Helper method that pass in the list of {@link RecyclerView}
-     * and notify the adapter of the data change.
+     * Stop updating the list and cancel the thumbnails of its rows, like when the activity is
+     * destroyed. This is on the main thread.
      *
-     * @param newsList is a reference of the {@link List<News>}.
+     * @return a future that is done once no update reads the {@link NewsRepository} anymore.
+     */
+    public Future<?> release() {
+        mIsReleased = true;
+        for (ImageView thumbnailView : mThumbnailViews) {
+            mImageLoader.cancel(thumbnailView);
+        }
+        mThumbnailViews.clear();
+        return UPDATE_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                // The updates submitted before are done.
+            }
+        });
+    }
+
+    /**
+     * Load the pages of the rows around the given ones back into memory on a background
+     * thread, then bind again the rows that were left blank. This is on the main thread.
+     *
+     * @param first is the position of the first row on screen.
+     * @param last  is the position of the last row on screen.
+     */
+    private void preload(int first, int last) {
+        if (first < 0 || last < first) {
+            return;
+        }
+        final PagedNewsList newsList = mNewsList;
+        // Rounded, so the range only moves every so many rows.
+        final int from = Math.max(0, (first - PRELOAD_DISTANCE) / PRELOAD_DISTANCE
+                * PRELOAD_DISTANCE);
+        final int to = Math.min(newsList.size(), (last + 2 * PRELOAD_DISTANCE)
+                / PRELOAD_DISTANCE * PRELOAD_DISTANCE);
+        if (from >= to || (newsList == mPreloadedList && from >= mPreloadedFrom
+                && to <= mPreloadedTo)) {
+            return;
+        }
+        mPreloadedList = newsList;
+        mPreloadedFrom = from;
+        mPreloadedTo = to;
+        PRELOAD_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsReleased) {
+                    return;
+                }
+                boolean wasSpilled;
+                try {
+                    wasSpilled = newsList.load(from, to);
+                } catch (IllegalStateException e) {
+                    // The spill file is gone, the rows stay blank.
+                    return;
+                }
+                if (!wasSpilled) {
+                    return;
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mIsReleased && mNewsList == newsList) {
+                            notifyItemRangeChanged(from, to - from);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Build the given update on the update thread, then apply it on the main thread.
+     */
+    private void submit(Update update) {
+        submit(update, null);
+    }
+
+    /**
+     * Same as {@link #submit(Update)}, then run the given callback once the update is applied,
+     * unless the list stopped updating.
+     */
+    private void submit(final Update update, final Runnable onApplied) {
+        mPendingUpdateCount++;
+        UPDATE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final AppliedUpdate appliedUpdate = mIsReleased ? null : update.build();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        apply(appliedUpdate);
+                        if (onApplied != null && !mIsReleased) {
+                            onApplied.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Tell the listener about an appended page, on the main thread.
+     */
+    private void reportAppendedPage(final int page, final int appendedCount,
+                                    final int loadedCount) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mIsReleased && mOnPageAppendedListener != null) {
+                    mOnPageAppendedListener.onPageAppended(page, appendedCount, loadedCount);
+                }
+            }
+        });
+    }
+
+    /**
+     * Make the list of the given update the one on screen and dispatch its changes, on the
+     * main thread. Nothing is computed here, whatever the size of the list.
+     *
+     * @param update is the built update, null when there is nothing to show.
+     */
+    private void apply(AppliedUpdate update) {
+        mPendingUpdateCount--;
+        if (mIsReleased) {
+            return;
+        }
+        if (update != null) {
+            mNewsList = update.newsList;
+            mSnapshot = update.snapshot;
+            if (update.diffResult != null) {
+                update.diffResult.dispatchUpdatesTo(this);
+            } else if (update.isChangedEntirely) {
+                notifyDataSetChanged();
+            } else if (update.insertCount > 0) {
+                notifyItemRangeInserted(update.insertStart, update.insertCount);
+            }
+        }
+        if (mPendingUpdateCount == 0) {
+            // Nothing reads the pages of the previous lists anymore. The updates submitted
+            // from now on run after this.
+            final PagedNewsList newsList = mNewsList;
+            UPDATE_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mIsReleased) {
+                        mRepository.trim(newsList);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Compute the difference between the latest list and the given one, on the update thread,
+     * and make the given list the latest one.
+     * <p>
+     * When a page of either list is spilled, the lists are long and the difference would
+     * read every spilled page back, so the whole list is changed instead.
+     */
+    private AppliedUpdate diffTo(PagedNewsList newList, NewsRepository.Snapshot snapshot) {
+        if (!mLatestList.isResident() || !newList.isResident()) {
+            mLatestList = newList;
+            return new AppliedUpdate(newList, snapshot, null, 0, 0, true);
+        }
+        long start = Metrics.getDefault().startTimer();
+        DiffUtil.DiffResult result =
+                DiffUtil.calculateDiff(new NewsDiffCallback(mLatestList, newList));
+        Metrics.getDefault().stopTimer(Metrics.STAGE_DIFF, start);
+        mLatestList = newList;
+        return new AppliedUpdate(newList, snapshot, result, 0, 0, false);
+    }
+
+    /**
+     * A change of the list, built on the update thread.
+     */
+    private abstract static class Update {
+        /**
+         * Build the next list and the changes to dispatch, on the update thread.
+         *
+         * @return the built update, or null when there is nothing to show.
+         */
+        abstract AppliedUpdate build();
+    }
+
+    /**
+     * The next list and its precomputed changes, handed to the main thread.
+     */
+    private static class AppliedUpdate {
+        final PagedNewsList newsList;
+        final NewsRepository.Snapshot snapshot;
+        final DiffUtil.DiffResult diffResult;
+        final int insertStart;
+        final int insertCount;
+        final boolean isChangedEntirely;
+
+        /**
+         * @param newsList          is the list to show.
+         * @param snapshot          is the snapshot of the list, null when it isn't a section.
+         * @param diffResult        is the difference with the previous list, or null when the
+         *                          new news are inserted at the given range.
+         * @param insertStart       is the position of the first inserted news.
+         * @param insertCount       is the number of inserted news.
+         * @param isChangedEntirely is whether the list is replaced without a difference.
+         */
+        AppliedUpdate(PagedNewsList newsList, NewsRepository.Snapshot snapshot,
+                      DiffUtil.DiffResult diffResult, int insertStart, int insertCount,
+                      boolean isChangedEntirely) {
+            this.newsList = newsList;
+            this.snapshot = snapshot;
+            this.diffResult = diffResult;
+            this.insertStart = insertStart;
+            this.insertCount = insertCount;
+            this.isChangedEntirely = isChangedEntirely;
+        }
+    }
+
+    /**
+     * {@link DiffUtil.Callback} that matches the news by URL, and compares their contents.
      */
-    public void addAll(List<News> newsList) {
-        mNewsList.addAll(newsList);
-        notifyDataSetChanged();
+    private static class NewsDiffCallback extends DiffUtil.Callback {
+        private final List<News> mOldList;
+        private final List<News> mNewList;
+
+        NewsDiffCallback(List<News> oldList, List<News> newList) {
+            mOldList = oldList;
+            mNewList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldList.get(oldItemPosition).getUrl()
+                    .equals(mNewList.get(newItemPosition).getUrl());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldList.get(oldItemPosition).equals(mNewList.get(newItemPosition));
+        }
     }
 }
@@ -0,0 +1,307 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A persistent cache of parsed pages of {@link News}, keyed by section, page size and page.
+ * <p>
+ * Every page is stored in its own file inside the cache directory, with the time to live
+ * of the cache that saved it. A page younger than its time to live is fresh, an older one is
+ * stale but can still be shown while it is being revalidated. When the directory grows over
+ * its size limit, the least recently used pages are deleted first.
+ */
+public class NewsCache {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = NewsCache.class.getSimpleName();
+
+    /**
+     * Version of the file format, pages written with another version are ignored.
+     * Version 2 holds the news in the format of {@link NewsCodec}, version 3 the time to live
+     * of the page.
+     */
+    private static final int VERSION = 3;
+
+    /**
+     * Size of the header of a file: the version, the time the page was saved and its time to
+     * live.
+     */
+    private static final int HEADER_SIZE = 4 + 8 + 8;
+
+    /**
+     * How long in milliseconds a cached page is fresh, five minutes.
+     */
+    private static final long TIME_TO_LIVE = 5 * 60 * 1000;
+
+    /**
+     * Maximum size in bytes of the cached pages, one megabyte.
+     */
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    /**
+     * Cache shared by the whole app.
+     */
+    private static NewsCache sInstance;
+
+    /**
+     * Name of the section when the overview, which has no section, is cached.
+     */
+    private static final String OVERVIEW_SECTION = "overview";
+
+    /**
+     * Directory that holds one file for each cached page.
+     */
+    private final File mDirectory;
+
+    /**
+     * How long in milliseconds the pages saved by this object stay fresh.
+     */
+    private final long mTimeToLive;
+
+    /**
+     * Guards the files, shared with the caches of other times to live over the same
+     * directory.
+     */
+    private final Object mLock;
+
+    /**
+     * Maximum size in bytes of all the cached pages.
+     */
+    private final long mMaxSize;
+
+    /**
+     * A cached page of {@link News}, and whether it is still fresh or not.
+     */
+    public static class Entry {
+        /**
+         * The cached list of news.
+         */
+        public final List<News> newsList;
+
+        /**
+         * Time in milliseconds when the page was saved.
+         */
+        public final long savedAt;
+
+        /**
+         * Whether the page is younger than the time to live.
+         */
+        public final boolean isFresh;
+
+        Entry(List<News> newsList, long savedAt, boolean isFresh) {
+            this.newsList = newsList;
+            this.savedAt = savedAt;
+            this.isFresh = isFresh;
+        }
+    }
+
+    /**
+     * Create a new {@link NewsCache} object.
+     *
+     * @param directory  is the directory to store the pages in.
+     * @param timeToLive is how long in milliseconds a cached page stays fresh.
+     * @param maxSize    is the maximum size in bytes of all the cached pages.
+     */
+    public NewsCache(File directory, long timeToLive, long maxSize) {
+        this(directory, timeToLive, maxSize, new Object());
+    }
+
+    private NewsCache(File directory, long timeToLive, long maxSize, Object lock) {
+        mDirectory = directory;
+        mTimeToLive = timeToLive;
+        mMaxSize = maxSize;
+        mLock = lock;
+    }
+
+    /**
+     * Return a cache of the same pages, whose saved pages stay fresh for the given time, like
+     * the pages synced in the background, which are fetched again only after the interval of
+     * the sync.
+     *
+     * @param timeToLive is how long in milliseconds the saved pages stay fresh.
+     */
+    public NewsCache withTimeToLive(long timeToLive) {
+        return new NewsCache(mDirectory, timeToLive, mMaxSize, mLock);
+    }
+
+    /**
+     * Return the cache shared by the whole app, in the cache directory of the app.
+     */
+    public static synchronized NewsCache getInstance(Context context) {
+        if (sInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), "news");
+            sInstance = new NewsCache(directory, TIME_TO_LIVE, MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the cached page of the given section, or null when it isn't cached.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param page     is the page of news.
+     * @param pageSize is the number of news on a page.
+     */
+    public Entry get(String section, int page, int pageSize) {
+        synchronized (mLock) {
+            return read(getFile(section, page, pageSize));
+        }
+    }
+
+    private Entry read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            // Map the file instead of reading it, the news are decoded straight from it.
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long savedAt = buffer.getLong();
+            long timeToLive = buffer.getLong();
+            List<News> newsList = NewsCodec.decode(buffer);
+
+            // Mark the page as recently used, so it is the last one to be evicted.
+            long now = System.currentTimeMillis();
+            file.setLastModified(now);
+            return new Entry(newsList, savedAt, now - savedAt < timeToLive);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Problem reading the cached news.", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Save the page of the given section, and evict old pages if the cache is too large.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param page     is the page of news.
+     * @param pageSize is the number of news on a page.
+     * @param newsList is the list of news on that page.
+     */
+    public void put(String section, int page, int pageSize, List<News> newsList) {
+        synchronized (mLock) {
+            write(getFile(section, page, pageSize), newsList);
+            trimToSize();
+        }
+    }
+
+    private void write(File file, List<News> newsList) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Problem creating the cache directory.");
+            return;
+        }
+
+        // Write to a temporary file first, so a reader never sees a half written page.
+        File tmpFile = new File(mDirectory, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(mTimeToLive);
+            out.write(NewsCodec.encode(newsList));
+            out.close();
+            out = null;
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("Can't rename " + tmpFile);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the cached news.", e);
+            tmpFile.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Delete every cached page.
+     */
+    public void clear() {
+        synchronized (mLock) {
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used pages until the cache fits in its maximum size.
+     */
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxSize) {
+            return;
+        }
+
+        // Sort the pages from the least to the most recently used.
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < files.length && size > mMaxSize; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * Return the file of the given section and page. The page size is part of the name, the
+     * same page holds other news when it is requested with another size.
+     */
+    private File getFile(String section, int page, int pageSize) {
+        return new File(mDirectory, (section == null ? OVERVIEW_SECTION : section) + "_"
+                + pageSize + "_" + page);
+    }
+
+    /**
+     * Close the given stream, ignoring the IOException because there is nothing left to save.
+     */
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem closing the cached news file.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary format for pages of {@link News}, to store them without going through
+ * JSON again.
+ * <p>
+ * A page is laid out as:
+ * <pre>
+ * magic "NWS", version byte
+ * varint prefix count, then each URL prefix as varint length + UTF-8 bytes
+ * varint news count
+ * zigzag varint base time in seconds
+ * int offset of every news record, from the start of the records
+ * records
+ * </pre>
+ * A record is a flags byte, the varint index of its URL prefix, the rest of its URL and its
+ * title as varint length + UTF-8 bytes, then its time. A time in the format of the API is
+ * a zigzag varint of seconds from the base time, any other one is kept as a string. The
+ * URL of the thumbnail follows as a string, only when the news has one.
+ * <p>
+ * The URL prefix is the address of the section, like "https://www.theguardian.com/sport/",
+ * which most news of a page share, so it is stored once. The offsets make every news
+ * readable on its own: a {@link PageView} decodes them one by one straight from a
+ * {@link ByteBuffer}, which can be a memory-mapped file, without copying the page.
+ */
+public final class NewsCodec {
+    private static final byte[] MAGIC = {'N', 'W', 'S'};
+
+    /**
+     * Version of the format, a page of another version can't be read.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Flag of a record whose time is stored as seconds from the base time.
+     */
+    private static final int FLAG_ISO_TIME = 1;
+
+    /**
+     * Flag of a record followed by the URL of its thumbnail.
+     */
+    private static final int FLAG_THUMBNAIL = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsCodec} object.
+     */
+    private NewsCodec() {
+    }
+
+    /**
+     * Return the given news in the binary format.
+     */
+    public static byte[] encode(List<News> newsList) {
+        // The base time is the first one in the format of the API, so the others are small
+        // differences from it.
+        long baseSeconds = 0;
+        for (News news : newsList) {
+            if (isIsoTime(news)) {
+                baseSeconds = news.getTimeInMillis() / 1000;
+                break;
+            }
+        }
+
+        Map<String, Integer> prefixIndexes = new HashMap<>();
+        List<String> prefixes = new ArrayList<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(newsList.size() * 128);
+        int[] offsets = new int[newsList.size()];
+        for (int i = 0; i < newsList.size(); i++) {
+            News news = newsList.get(i);
+            offsets[i] = records.size();
+
+            String url = news.getUrl();
+            int prefixEnd = prefixEnd(url);
+            String prefix = url.substring(0, prefixEnd);
+            Integer prefixIndex = prefixIndexes.get(prefix);
+            if (prefixIndex == null) {
+                prefixIndex = prefixes.size();
+                prefixIndexes.put(prefix, prefixIndex);
+                prefixes.add(prefix);
+            }
+
+            boolean isIsoTime = isIsoTime(news);
+            String thumbnailUrl = news.getThumbnailUrl();
+            records.write((isIsoTime ? FLAG_ISO_TIME : 0)
+                    | (thumbnailUrl != null ? FLAG_THUMBNAIL : 0));
+            writeVarint(records, prefixIndex);
+            writeString(records, url.substring(prefixEnd));
+            writeString(records, news.getTitle());
+            if (isIsoTime) {
+                writeVarint(records, zigzag(news.getTimeInMillis() / 1000 - baseSeconds));
+            } else {
+                writeString(records, news.getTime());
+            }
+            if (thumbnailUrl != null) {
+                writeString(records, thumbnailUrl);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() + 64);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        writeVarint(out, prefixes.size());
+        for (String prefix : prefixes) {
+            writeString(out, prefix);
+        }
+        writeVarint(out, newsList.size());
+        writeVarint(out, zigzag(baseSeconds));
+        for (int offset : offsets) {
+            out.write(offset >>> 24);
+            out.write(offset >>> 16);
+            out.write(offset >>> 8);
+            out.write(offset);
+        }
+        byte[] recordBytes = records.toByteArray();
+        out.write(recordBytes, 0, recordBytes.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Return every news of the page in the given buffer, from its position.
+     *
+     * @throws IllegalArgumentException when the buffer doesn't hold a page of this version.
+     */
+    public static List<News> decode(ByteBuffer buffer) {
+        return new ArrayList<>(view(buffer));
+    }
+
+    /**
+     * Return a view of the page in the given buffer, from its position, that decodes each
+     * news when it is read. The buffer must not change while the view is used.
+     *
+     * @throws IllegalArgumentException when the buffer doesn't hold a page of this version.
+     */
+    public static PageView view(ByteBuffer buffer) {
+        return new PageView(buffer.slice());
+    }
+
+    /**
+     * A read-only list of the news of a page, decoded from its buffer at every read.
+     */
+    public static class PageView extends AbstractList<News> {
+        private final ByteBuffer mBuffer;
+        private final String[] mPrefixes;
+        private final int mSize;
+        private final long mBaseSeconds;
+
+        /**
+         * Position of the offsets of the records.
+         */
+        private final int mOffsetsStart;
+
+        /**
+         * Position of the first record.
+         */
+        private final int mRecordsStart;
+
+        /**
+         * Holds the bytes of a string when the buffer has no array, like a mapped file.
+         */
+        private byte[] mScratch = new byte[256];
+
+        PageView(ByteBuffer buffer) {
+            mBuffer = buffer;
+            try {
+                for (byte b : MAGIC) {
+                    if (buffer.get() != b) {
+                        throw new IllegalArgumentException("Not a page of news");
+                    }
+                }
+                int version = buffer.get();
+                if (version != VERSION) {
+                    throw new IllegalArgumentException("Unknown version " + version);
+                }
+                int prefixCount = readCount(buffer);
+                mPrefixes = new String[prefixCount];
+                for (int i = 0; i < prefixCount; i++) {
+                    mPrefixes[i] = readString(buffer);
+                }
+                mSize = readCount(buffer);
+                mBaseSeconds = unzigzag(readVarint(buffer));
+                mOffsetsStart = buffer.position();
+                mRecordsStart = mOffsetsStart + 4 * mSize;
+                if (mRecordsStart > buffer.limit() || mRecordsStart < 0) {
+                    throw new IllegalArgumentException("Truncated page");
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Truncated page", e);
+            }
+        }
+
+        @Override
+        public synchronized News get(int index) {
+            if (index < 0 || index >= mSize) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+            }
+            try {
+                mBuffer.position(mRecordsStart + mBuffer.getInt(mOffsetsStart + 4 * index));
+                int flags = mBuffer.get();
+                int prefixIndex = (int) readVarint(mBuffer);
+                if (prefixIndex < 0 || prefixIndex >= mPrefixes.length) {
+                    throw new IllegalArgumentException("Unknown URL prefix " + prefixIndex);
+                }
+                String url = mPrefixes[prefixIndex] + readString(mBuffer);
+                String title = readString(mBuffer);
+                String time;
+                if ((flags & FLAG_ISO_TIME) != 0) {
+                    long seconds = mBaseSeconds + unzigzag(readVarint(mBuffer));
+                    time = TimeUtils.formatIsoTime(seconds * 1000);
+                } else {
+                    time = readString(mBuffer);
+                }
+                String thumbnailUrl = (flags & FLAG_THUMBNAIL) != 0 ? readString(mBuffer) : null;
+                return new News(title, time, url, thumbnailUrl);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Truncated page", e);
+            }
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+
+        /**
+         * Read a string straight from the array of the buffer when it has one.
+         */
+        private String readString(ByteBuffer buffer) {
+            int length = readCount(buffer);
+            if (length > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated page");
+            }
+            if (buffer.hasArray()) {
+                String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                        length, UTF_8);
+                buffer.position(buffer.position() + length);
+                return string;
+            }
+            if (mScratch.length < length) {
+                mScratch = new byte[Math.max(length, mScratch.length * 2)];
+            }
+            buffer.get(mScratch, 0, length);
+            return new String(mScratch, 0, length, UTF_8);
+        }
+    }
+
+    /**
+     * Return whether the time of the news is in the format of the API, so it can be stored as
+     * seconds and formatted back the same.
+     */
+    private static boolean isIsoTime(News news) {
+        return news.getTimeInMillis() >= 0
+                && TimeUtils.formatIsoTime(news.getTimeInMillis()).equals(news.getTime());
+    }
+
+    /**
+     * Return where the URL prefix ends, after the first segment of the path, or zero when
+     * the URL has no path.
+     */
+    private static int prefixEnd(String url) {
+        int scheme = url.indexOf("://");
+        int pathStart = url.indexOf('/', scheme < 0 ? 0 : scheme + 3);
+        if (pathStart < 0) {
+            return 0;
+        }
+        int segmentEnd = url.indexOf('/', pathStart + 1);
+        return segmentEnd < 0 ? 0 : segmentEnd + 1;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String string) {
+        byte[] bytes = string.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write the value 7 bits at a time, lowest first, with the high bit set on every byte
+     * but the last.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Read a varint that counts something, like bytes or news.
+     */
+    private static int readCount(ByteBuffer buffer) {
+        long count = readVarint(buffer);
+        if (count < 0 || count > buffer.capacity()) {
+            throw new IllegalArgumentException("Malformed count " + count);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Map a signed value to an unsigned one, so small negative values are small varints too.
+     */
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
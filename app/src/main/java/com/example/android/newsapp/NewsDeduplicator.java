@@ -0,0 +1,147 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Remembers the URLs of the news already in a list, to drop the ones a later page repeats.
+ * The results are ordered by recency, so stories published while users scroll push older
+ * ones onto the next page, which then starts with news the list already has.
+ * <p>
+ * Only a 64-bit hash of every URL is kept, in an open addressing table of longs, so the set
+ * costs about 16 bytes a news and holds no reference to the news, which may be spilled.
+ * Two different URLs share a hash with a probability of about one in 10^14 for a list of
+ * thousands of news, unlike a bloom filter, which would drop a real story now and then.
+ */
+public class NewsDeduplicator {
+    /**
+     * Marks an empty slot of the table. A URL whose hash is zero is stored as one.
+     */
+    private static final long EMPTY = 0;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Hashes of the URLs, the capacity is a power of two kept at least twice the size.
+     */
+    private long[] mTable = new long[INITIAL_CAPACITY];
+
+    private int mSize;
+
+    /**
+     * Return the given news without the ones whose URL is in the set or came before in the
+     * given list, or the same list when there is none. The set doesn't change.
+     */
+    public List<News> filter(List<News> newsList) {
+        Set<String> pageUrls = new HashSet<>();
+        List<News> uniqueList = null;
+        for (int i = 0; i < newsList.size(); i++) {
+            String url = newsList.get(i).getUrl();
+            boolean isUnique = !contains(url) && pageUrls.add(url);
+            if (isUnique && uniqueList != null) {
+                uniqueList.add(newsList.get(i));
+            } else if (!isUnique && uniqueList == null) {
+                uniqueList = new ArrayList<>(newsList.subList(0, i));
+            }
+        }
+        return uniqueList != null ? uniqueList : newsList;
+    }
+
+    /**
+     * Add the URLs of the given news to the set.
+     */
+    public void addAll(List<News> newsList) {
+        for (int i = 0; i < newsList.size(); i++) {
+            add(hash(newsList.get(i).getUrl()));
+        }
+    }
+
+    /**
+     * Return whether the URL is in the set.
+     */
+    public boolean contains(String url) {
+        long hash = hash(url);
+        int mask = mTable.length - 1;
+        for (int slot = (int) hash & mask; mTable[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (mTable[slot] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the number of URLs in the set.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Remove every URL, like when the list is replaced.
+     */
+    public void clear() {
+        if (mTable.length > INITIAL_CAPACITY) {
+            mTable = new long[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(mTable, EMPTY);
+        }
+        mSize = 0;
+    }
+
+    private void add(long hash) {
+        int mask = mTable.length - 1;
+        int slot = (int) hash & mask;
+        while (mTable[slot] != EMPTY) {
+            if (mTable[slot] == hash) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mTable[slot] = hash;
+        mSize++;
+        if (mSize * 2 > mTable.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Double the capacity of the table, so the probes stay short.
+     */
+    private void resize() {
+        long[] oldTable = mTable;
+        mTable = new long[oldTable.length * 2];
+        int mask = mTable.length - 1;
+        for (long hash : oldTable) {
+            if (hash != EMPTY) {
+                int slot = (int) hash & mask;
+                while (mTable[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                mTable[slot] = hash;
+            }
+        }
+    }
+
+    /**
+     * Return a 64-bit hash of the URL, never {@link #EMPTY}. It is the FNV-1a hash of the
+     * characters, whose bits are mixed by the finalizer of MurmurHash3 so the low bits that
+     * pick the slot depend on the whole URL.
+     */
+    static long hash(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+}
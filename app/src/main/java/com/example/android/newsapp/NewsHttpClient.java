@@ -0,0 +1,299 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The HTTP client shared by every news request.
+ * <p>
+ * Connections are kept alive in a pool, so consecutive requests to the Guardian reuse the
+ * same TCP connection and TLS session instead of doing a full handshake each time, and
+ * HTTP/2 is negotiated where the platform supports it. The time spent in DNS, connect, TLS
+ * and waiting for the first byte is measured for every request.
+ */
+public class NewsHttpClient {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = NewsHttpClient.class.getSimpleName();
+
+    /**
+     * Default connect timeout in milliseconds.
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT = 15000;
+
+    /**
+     * Default read timeout in milliseconds.
+     */
+    public static final long DEFAULT_READ_TIMEOUT = 10000;
+
+    /**
+     * Default number of idle connections kept in the pool.
+     */
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 4;
+
+    /**
+     * Default time in milliseconds an idle connection is kept alive.
+     */
+    public static final long DEFAULT_KEEP_ALIVE = 5 * 60 * 1000;
+
+    /**
+     * Client shared by the whole app.
+     */
+    private static NewsHttpClient sDefault;
+
+    /**
+     * Time spent in each phase of a request, in milliseconds.
+     * A phase that didn't happen, like DNS on a reused connection, takes zero.
+     */
+    public static class RequestTiming {
+        /**
+         * The requested URL.
+         */
+        public final String url;
+
+        /**
+         * Whether the request reused a pooled connection.
+         */
+        public final boolean connectionReused;
+
+        public final long dnsMillis;
+        public final long connectMillis;
+        public final long tlsMillis;
+
+        /**
+         * Time from the start of the request to the first byte of the response.
+         */
+        public final long firstByteMillis;
+
+        /**
+         * Time from the start of the request to the end of the response.
+         */
+        public final long totalMillis;
+
+        RequestTiming(String url, boolean connectionReused, long dnsMillis, long connectMillis,
+                      long tlsMillis, long firstByteMillis, long totalMillis) {
+            this.url = url;
+            this.connectionReused = connectionReused;
+            this.dnsMillis = dnsMillis;
+            this.connectMillis = connectMillis;
+            this.tlsMillis = tlsMillis;
+            this.firstByteMillis = firstByteMillis;
+            this.totalMillis = totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "RequestTiming{url=" + url
+                    + ", reused=" + connectionReused
+                    + ", dns=" + dnsMillis
+                    + ", connect=" + connectMillis
+                    + ", tls=" + tlsMillis
+                    + ", firstByte=" + firstByteMillis
+                    + ", total=" + totalMillis + "}";
+        }
+    }
+
+    /**
+     * Receives the timing of every finished request, on the thread that made it.
+     */
+    public interface TimingListener {
+        void onRequestTiming(RequestTiming timing);
+    }
+
+    /**
+     * The underlying OkHttp client.
+     */
+    private final OkHttpClient mClient;
+
+    /**
+     * Receives the timing of every request, logs it by default while the {@link Metrics} are
+     * recorded, like in debug builds. A release build logs nothing.
+     */
+    private volatile TimingListener mTimingListener = new TimingListener() {
+        @Override
+        public void onRequestTiming(RequestTiming timing) {
+            if (Metrics.getDefault().isEnabled()) {
+                Log.d(LOG_TAG, timing.toString());
+            }
+        }
+    };
+
+    /**
+     * Create a new {@link NewsHttpClient} object.
+     *
+     * @param connectTimeout     is the connect timeout in milliseconds.
+     * @param readTimeout        is the read timeout in milliseconds.
+     * @param maxIdleConnections is the number of idle connections kept in the pool.
+     * @param keepAlive          is the time in milliseconds an idle connection is kept alive.
+     */
+    public NewsHttpClient(long connectTimeout, long readTimeout, int maxIdleConnections,
+                          long keepAlive) {
+        mClient = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive, TimeUnit.MILLISECONDS))
+                .eventListenerFactory(new EventListener.Factory() {
+                    @Override
+                    public EventListener create(Call call) {
+                        return new TimingEventListener();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Return the client shared by the whole app, created with the default settings.
+     */
+    public static synchronized NewsHttpClient getDefault() {
+        if (sDefault == null) {
+            sDefault = new NewsHttpClient(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT,
+                    DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE);
+        }
+        return sDefault;
+    }
+
+    /**
+     * Replace the client shared by the whole app, like to tune its timeouts.
+     */
+    public static synchronized void setDefault(NewsHttpClient client) {
+        sDefault = client;
+    }
+
+    /**
+     * Set the listener that receives the timing of every request.
+     */
+    public void setTimingListener(TimingListener timingListener) {
+        mTimingListener = timingListener;
+    }
+
+    /**
+     * Execute the given request on the calling thread.
+     * The caller must close the response.
+     */
+    public Response execute(Request request) throws IOException {
+        return execute(request, null);
+    }
+
+    /**
+     * Execute the given request on the calling thread. Cancelling the given token aborts the
+     * request, and the reading of its response body, which then throws an IOException.
+     * The caller must close the response, then remove the listener of the token.
+     *
+     * @param request           is the request to execute.
+     * @param cancellationToken cancels the request, it can be null.
+     */
+    public Response execute(Request request, CancellationToken cancellationToken)
+            throws IOException {
+        final Call call = mClient.newCall(request);
+        if (cancellationToken != null) {
+            cancellationToken.setOnCancelListener(new CancellationToken.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    call.cancel();
+                }
+            });
+        }
+        return call.execute();
+    }
+
+    /**
+     * Measures the phases of a single request, and reports them when the request ends.
+     */
+    private class TimingEventListener extends EventListener {
+        private long mCallStart;
+        private long mDnsStart;
+        private long mDnsMillis;
+        private long mConnectStart;
+        private long mConnectMillis;
+        private long mTlsStart;
+        private long mTlsMillis;
+        private long mFirstByteMillis;
+        private boolean mConnectionReused = true;
+
+        @Override
+        public void callStart(Call call) {
+            mCallStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mDnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            mDnsMillis = millisSince(mDnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mConnectionReused = false;
+            mConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mTlsStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            mTlsMillis = millisSince(mTlsStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                               Protocol protocol) {
+            // The TLS handshake happens inside the connect phase, report it on its own.
+            mConnectMillis = millisSince(mConnectStart) - mTlsMillis;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            mFirstByteMillis = millisSince(mCallStart);
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            report(call);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            report(call);
+        }
+
+        private void report(Call call) {
+            if (!mConnectionReused) {
+                Metrics.getDefault().recordMillis(Metrics.STAGE_CONNECT,
+                        mDnsMillis + mConnectMillis + mTlsMillis);
+            }
+            TimingListener timingListener = mTimingListener;
+            if (timingListener != null) {
+                timingListener.onRequestTiming(new RequestTiming(call.request().url().toString(),
+                        mConnectionReused, mDnsMillis, mConnectMillis, mTlsMillis,
+                        mFirstByteMillis, millisSince(mCallStart)));
+            }
+        }
+
+        private long millisSince(long startNanos) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+}
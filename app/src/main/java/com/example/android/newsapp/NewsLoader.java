@@ -1,50 +1,393 @@
 package com.example.android.newsapp;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.content.Loader;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
- * Loads a list of news by using an AsyncTask to perform the
- * network request to the given URL.
+ * Loads a list of news by performing the given {@link GuardianRequest}
+ * on the threads of the {@link LoadExecutor}.
+ * <p>
+ * Pages are cached on disk. A fresh cached page is returned without any network request.
+ * A stale cached first page is delivered right away and then revalidated in the background,
+ * the news are delivered a second time only when they changed.
+ * <p>
+ * The loaded news are kept by the loader, which survives configuration changes, so starting
+ * it again delivers them without a new request. A load that is superseded, abandoned or
+ * reset is cancelled, which closes its connection even in the middle of the response.
+ * <p>
+ * The fetched news are also saved in the {@link ArticleStore}, and their titles are added
+ * to the {@link HeadlineIndex}. An offline loader reads its page from the store instead of
+ * the network.
  */
-public class NewsLoader extends AsyncTaskLoader<List<News>> {
+public class NewsLoader extends Loader<List<News>> {
     /**
-     * Query URL.
+     * Tag for the log messages.
      */
-    private String mUrl;
+    private static final String LOG_TAG = NewsLoader.class.getSimpleName();
+
+    /**
+     * Shares the network requests of the loaders and the paginator that load the same URL.
+     */
+    private static final RequestCoalescer sRequestCoalescer = new RequestCoalescer(
+            new RequestCoalescer.Fetcher() {
+                @Override
+                public List<News> fetch(String url, CancellationToken cancellationToken) {
+                    return QueryUtils.fetchNewsData(url, cancellationToken);
+                }
+            });
+
+    /**
+     * Cache of the pages of news.
+     */
+    private NewsCache mCache;
+
+    /**
+     * Local database of the fetched news.
+     */
+    private ArticleStore mArticleStore;
+
+    /**
+     * Request of the page of news.
+     */
+    private GuardianRequest mRequest;
+
+    /**
+     * Whether the cached page must be skipped, like when users pull to refresh.
+     */
+    private boolean mForceRefresh;
+
+    /**
+     * Priority of the load on the {@link LoadExecutor}.
+     */
+    private int mPriority;
+
+    /**
+     * Whether the page is read from the {@link ArticleStore}, because there is no connection.
+     */
+    private boolean mIsOffline;
+
+    /**
+     * Hands the results of the background threads back to the main thread.
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The load that is running or waiting for a thread, null when there is none.
+     */
+    private LoadTask mTask;
+
+    /**
+     * The news delivered last, delivered again when the loader starts again.
+     */
+    private List<News> mNews;
+
+    /**
+     * The cached page that was delivered and needs to be revalidated.
+     */
+    private List<News> mStaleNews;
+
+    /**
+     * Whether the current load is the revalidation of {@link #mStaleNews}.
+     */
+    private boolean mIsRevalidating;
+
+    /**
+     * Whether the news delivered last are the revalidated page that replaces the stale one
+     * delivered before, rather than a new load.
+     */
+    private boolean mIsRevalidation;
 
     /**
      * Constructs a new {@link NewsLoader}.
      *
-     * @param context of the activity.
-     * @param url     to load data from.
+     * @param context      of the activity.
+     * @param request      of the page to load, null loads nothing.
+     * @param forceRefresh is true to skip the cached page.
+     * @param priority     of the load, one of the priorities of {@link LoadExecutor}.
+     * @param isOffline    is true to read the page from the {@link ArticleStore}.
+     */
+    public NewsLoader(Context context, GuardianRequest request, boolean forceRefresh,
+                      int priority, boolean isOffline) {
+        this(context, request, forceRefresh, priority, isOffline, null);
+    }
+
+    /**
+     * Constructs a new {@link NewsLoader} that holds the given page, like the first page of a
+     * section loaded by the {@link SectionPrefetcher}. It is delivered without any load, and
+     * again when the loader starts again.
+     *
+     * @param loadedNews is the page of the request that is already loaded, or null.
      */
-    public NewsLoader(Context context, String url) {
+    public NewsLoader(Context context, GuardianRequest request, boolean forceRefresh,
+                      int priority, boolean isOffline, List<News> loadedNews) {
         super(context);
-        mUrl = url;
+        mNews = loadedNews;
+        mRequest = request;
+        mForceRefresh = forceRefresh;
+        mPriority = priority;
+        mIsOffline = isOffline;
+        mCache = NewsCache.getInstance(context);
+        mArticleStore = ArticleStore.getInstance(context);
+    }
+
+    /**
+     * Return whether the page is read from the {@link ArticleStore}.
+     */
+    public boolean isOffline() {
+        return mIsOffline;
+    }
+
+    /**
+     * Return the request of the page of news.
+     */
+    public GuardianRequest getRequest() {
+        return mRequest;
+    }
+
+    /**
+     * Return whether the news being delivered are the revalidated first page that replaces
+     * the stale cached one delivered before, so only that page changes on screen.
+     */
+    public boolean isRevalidation() {
+        return mIsRevalidation;
     }
 
     /**
      * This method gets called automatically by initLoader method.
-     * It should invoke forceLoad() method to start the Loader.
+     * It delivers the news it already has, and only loads when it has none.
      */
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        if (mNews != null) {
+            // A new activity shows them for the first time.
+            mIsRevalidation = false;
+            super.deliverResult(mNews);
+        }
+        if (takeContentChanged() || (mNews == null && mTask == null)) {
+            forceLoad();
+        }
     }
 
     /**
-     * This is on a background thread.
+     * Cancel the current load, and start a new one on the {@link LoadExecutor}.
+     */
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        cancelTask();
+        mTask = new LoadTask();
+        mTask.mFuture = LoadExecutor.getDefault().submit(mTask, mPriority);
+    }
+
+    /**
+     * Called by the LoaderManager, from API level 16, when a newer load supersedes this one.
      */
     @Override
-    public List<News> loadInBackground() {
-        if (mUrl == null) {
+    protected boolean onCancelLoad() {
+        return cancelTask();
+    }
+
+    /**
+     * The LoaderManager ignores the result of an abandoned loader, don't download it.
+     */
+    @Override
+    protected void onAbandon() {
+        cancelTask();
+    }
+
+    @Override
+    protected void onReset() {
+        cancelTask();
+        mNews = null;
+        mStaleNews = null;
+        mIsRevalidating = false;
+        mIsRevalidation = false;
+    }
+
+    /**
+     * Cancel the current load, and return whether there was one.
+     */
+    private boolean cancelTask() {
+        if (mTask == null) {
+            return false;
+        }
+        mTask.mCancellationToken.cancel();
+        // Drop it from the queue when it didn't start, without interrupting it when it did.
+        mTask.mFuture.cancel(false);
+        mTask = null;
+        return true;
+    }
+
+    /**
+     * This is on a background thread.
+     */
+    private List<News> loadInBackground(CancellationToken cancellationToken) {
+        if (mRequest == null) {
             return null;
         }
+        if (mIsOffline) {
+            return mArticleStore.getPage(mRequest.getSection(), mRequest.getPage(),
+                    mRequest.getPageSize());
+        }
+
+        // Look for the page in the cache first, unless it is revalidating or refreshing.
+        NewsCache.Entry entry = null;
+        if (!mIsRevalidating && !mForceRefresh) {
+            entry = mCache.get(mRequest.getSection(), mRequest.getPage(), mRequest.getPageSize());
+        }
+        // Only the first page is shown stale and revalidated, because later pages are
+        // appended to the list and replacing them would duplicate the news on screen.
+        if (entry != null && !entry.isFresh && mRequest.getPage() == 1
+                && !entry.newsList.isEmpty()) {
+            Metrics.getDefault().increment(Metrics.COUNTER_CACHE_HITS);
+            mStaleNews = entry.newsList;
+            return entry.newsList;
+        }
+        return loadPage(mCache, mArticleStore, entry, mRequest, cancellationToken);
+    }
+
+    /**
+     * Return the fresh cached page of the given request, or else fetch it from the network
+     * and cache it. The stale cached page is returned when the network request fails.
+     * This is on a background thread.
+     *
+     * @param cache        is the cache of the pages of news.
+     * @param articleStore saves the fetched news for offline reading.
+     * @param request      of the page to load.
+     */
+    public static List<News> loadPage(NewsCache cache, ArticleStore articleStore,
+                                      GuardianRequest request) {
+        return loadPage(cache, articleStore, request, null);
+    }
 
-        // Perform the network request, parse the response, extract a list of books, and return.
-        return QueryUtils.fetchNewsData(mUrl);
+    /**
+     * Same as {@link #loadPage(NewsCache, ArticleStore, GuardianRequest)}, and return null as
+     * soon as the given token is cancelled, which aborts the request.
+     *
+     * @param cancellationToken cancels the load, it can be null.
+     */
+    public static List<News> loadPage(NewsCache cache, ArticleStore articleStore,
+                                      GuardianRequest request,
+                                      CancellationToken cancellationToken) {
+        return loadPage(cache, articleStore, request, false, cancellationToken);
+    }
+
+    /**
+     * Same as {@link #loadPage(NewsCache, ArticleStore, GuardianRequest, CancellationToken)},
+     * and always fetch the page from the network when forceRefresh is true, like the
+     * background sync, which must save the page again even when it is still fresh. The
+     * cached page is then not returned when the network request fails.
+     *
+     * @param forceRefresh is true to skip the cached page.
+     */
+    public static List<News> loadPage(NewsCache cache, ArticleStore articleStore,
+                                      GuardianRequest request, boolean forceRefresh,
+                                      CancellationToken cancellationToken) {
+        NewsCache.Entry entry = forceRefresh ? null : cache.get(request.getSection(),
+                request.getPage(), request.getPageSize());
+        return loadPage(cache, articleStore, entry, request, cancellationToken);
+    }
+
+    /**
+     * Return the counters of the requests that were performed and shared.
+     */
+    public static RequestCoalescer getRequestCoalescer() {
+        return sRequestCoalescer;
+    }
+
+    /**
+     * Same as {@link #loadPage(NewsCache, ArticleStore, GuardianRequest)}, with the cached
+     * page that was already looked up, or null, and the token that cancels the request.
+     */
+    private static List<News> loadPage(NewsCache cache, ArticleStore articleStore,
+                                       NewsCache.Entry entry, GuardianRequest request,
+                                       CancellationToken cancellationToken) {
+        if (entry != null && entry.isFresh && !entry.newsList.isEmpty()) {
+            Metrics.getDefault().increment(Metrics.COUNTER_CACHE_HITS);
+            return entry.newsList;
+        }
+        Metrics.getDefault().increment(Metrics.COUNTER_CACHE_MISSES);
+
+        // Perform the network request, parse the response, extract a list of news.
+        // Callers loading the same URL at the same time share one request. A response cut
+        // short fails the request, so no partial page is cached, stored or indexed.
+        List<News> newsList = sRequestCoalescer.fetch(request.toUrl(), cancellationToken);
+        if (newsList != null && !newsList.isEmpty()) {
+            cache.put(request.getSection(), request.getPage(), request.getPageSize(), newsList);
+            articleStore.put(request.getSection(), newsList);
+            HeadlineIndex.getInstance().addAll(newsList);
+        } else if (entry != null) {
+            // The request failed, the stale cached page is better than nothing.
+            return entry.newsList;
+        }
+        return newsList;
+    }
+
+    /**
+     * Deliver the news, then start the revalidation of a stale cached page.
+     * The result of the revalidation is only delivered when the news changed.
+     */
+    @Override
+    public void deliverResult(List<News> newsList) {
+        mIsRevalidation = mIsRevalidating;
+        if (mIsRevalidating) {
+            List<News> staleNews = mStaleNews;
+            mIsRevalidating = false;
+            mStaleNews = null;
+            // The news on screen are still up to date, or the request failed.
+            if (newsList == null || newsList.isEmpty() || newsList.equals(staleNews)) {
+                return;
+            }
+        }
+
+        mNews = newsList;
+        super.deliverResult(newsList);
+
+        if (mStaleNews != null && isStarted()) {
+            mIsRevalidating = true;
+            forceLoad();
+        }
+    }
+
+    /**
+     * Loads the news on a thread of the {@link LoadExecutor}, and delivers them on the main
+     * thread unless it was cancelled in between.
+     */
+    private class LoadTask implements Runnable {
+        private final CancellationToken mCancellationToken = new CancellationToken();
+        private Future<?> mFuture;
+
+        @Override
+        public void run() {
+            if (mCancellationToken.isCancelled()) {
+                return;
+            }
+            List<News> loadedNews;
+            try {
+                loadedNews = loadInBackground(mCancellationToken);
+            } catch (RuntimeException e) {
+                // Like the database failing, the load fails instead of never ending, since
+                // the executor keeps the exception to itself.
+                Log.e(LOG_TAG, "Problem loading the news.", e);
+                loadedNews = null;
+            }
+            final List<News> newsList = loadedNews;
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mTask != LoadTask.this || mCancellationToken.isCancelled()) {
+                        return;
+                    }
+                    mTask = null;
+                    deliverResult(newsList);
+                }
+            });
+        }
     }
 }
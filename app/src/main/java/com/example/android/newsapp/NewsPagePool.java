@@ -0,0 +1,268 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps at most a given number of {@link News} of the pages of a {@link PagedNewsList} in
+ * memory, and spills the others to a file.
+ * <p>
+ * The pages read last stay in memory. When there are too many news in memory, the least
+ * recently read pages are written to the spill file, once, and dropped from memory. Reading
+ * a spilled page again loads it back from the file. While users scroll, the pages read last
+ * are the ones around the rows on screen, so the memory used stays flat however long the
+ * list grows.
+ * <p>
+ * The methods are synchronized and only run on background threads, they may read or write
+ * the file. The main thread only {@link #peek}s at the pages, which never waits for them.
+ */
+public class NewsPagePool {
+    /**
+     * A page of news, in memory or in the spill file. Its news never change.
+     */
+    public static class Page {
+        /**
+         * Number of news on the page.
+         */
+        final int size;
+
+        /**
+         * The news, or null when the page is only in the spill file. Volatile, so the main
+         * thread can peek at it without the lock.
+         */
+        volatile List<News> newsList;
+
+        /**
+         * Position of the page in the spill file, -1 when it was never spilled.
+         */
+        long offset = -1;
+
+        /**
+         * Length in bytes of the page in the spill file.
+         */
+        int length;
+
+        Page(List<News> newsList) {
+            this.size = newsList.size();
+            this.newsList = newsList;
+        }
+    }
+
+    /**
+     * The spill file, created when the first page is spilled.
+     */
+    private final File mSpillFile;
+
+    /**
+     * Maximum number of news kept in memory.
+     */
+    private final int mMaxNewsInMemory;
+
+    /**
+     * The pages in memory, from the least to the most recently read.
+     */
+    private final LinkedHashMap<Page, Boolean> mResidentPages =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of news of the pages in memory.
+     */
+    private int mResidentNewsCount;
+
+    /**
+     * The pages that were spilled and are still used.
+     */
+    private final Set<Page> mSpilledPages =
+            Collections.newSetFromMap(new IdentityHashMap<Page, Boolean>());
+
+    private RandomAccessFile mFile;
+
+    /**
+     * Create a new {@link NewsPagePool} object.
+     *
+     * @param spillFile       is the file the pages are spilled to.
+     * @param maxNewsInMemory is the maximum number of news kept in memory. The page read
+     *                        last always stays in memory, even when it holds more.
+     */
+    public NewsPagePool(File spillFile, int maxNewsInMemory) {
+        mSpillFile = spillFile;
+        mMaxNewsInMemory = maxNewsInMemory;
+    }
+
+    /**
+     * Add a page with the given news.
+     */
+    public synchronized Page add(List<News> newsList) {
+        Page page = new Page(Collections.unmodifiableList(new ArrayList<>(newsList)));
+        mResidentPages.put(page, Boolean.TRUE);
+        mResidentNewsCount += page.size;
+        trimToSize(page);
+        return page;
+    }
+
+    /**
+     * Return the news of the given page, loaded back from the spill file when needed.
+     */
+    public synchronized List<News> get(Page page) {
+        if (page.newsList != null) {
+            // Mark it as read last.
+            mResidentPages.get(page);
+            return page.newsList;
+        }
+        page.newsList = readPage(page);
+        mResidentPages.put(page, Boolean.TRUE);
+        mResidentNewsCount += page.size;
+        trimToSize(page);
+        return page.newsList;
+    }
+
+    /**
+     * Return the news of the given page when it is in memory, or else null, without reading
+     * the file or waiting for another thread. It can be called on the main thread, it doesn't
+     * count as a read, the page is kept in memory by the ones of {@link #get}.
+     */
+    public List<News> peek(Page page) {
+        return page.newsList;
+    }
+
+    /**
+     * Forget every page that isn't in the given list, like the ones of a list that was
+     * replaced. The spill file is emptied once none of its pages is used.
+     */
+    public synchronized void retainAll(PagedNewsList newsList) {
+        retainAll(Collections.singletonList(newsList));
+    }
+
+    /**
+     * Forget every page that isn't in one of the given lists.
+     */
+    public synchronized void retainAll(Collection<PagedNewsList> newsLists) {
+        Set<Page> retained = Collections.newSetFromMap(new IdentityHashMap<Page, Boolean>());
+        for (PagedNewsList newsList : newsLists) {
+            retained.addAll(newsList.getPages());
+        }
+        for (Iterator<Page> iterator = mResidentPages.keySet().iterator(); iterator.hasNext(); ) {
+            Page page = iterator.next();
+            if (!retained.contains(page)) {
+                iterator.remove();
+                mResidentNewsCount -= page.size;
+            }
+        }
+        mSpilledPages.retainAll(retained);
+        if (mSpilledPages.isEmpty() && mFile != null) {
+            try {
+                mFile.setLength(0);
+            } catch (IOException e) {
+                // The file keeps its old pages, the next ones are written after them.
+            }
+        }
+    }
+
+    /**
+     * Return the number of news in memory.
+     */
+    public synchronized int getResidentNewsCount() {
+        return mResidentNewsCount;
+    }
+
+    /**
+     * Return the number of pages in the spill file that are still used.
+     */
+    synchronized int getSpilledPageCount() {
+        return mSpilledPages.size();
+    }
+
+    /**
+     * Close and delete the spill file. The spilled pages can't be read anymore.
+     */
+    public synchronized void close() {
+        if (mFile != null) {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+                // Nothing left to save.
+            }
+            mFile = null;
+        }
+        mSpillFile.delete();
+        mSpilledPages.clear();
+    }
+
+    /**
+     * Spill the least recently read pages until the news in memory fit, except the given one.
+     */
+    private void trimToSize(Page keptPage) {
+        Iterator<Page> iterator = mResidentPages.keySet().iterator();
+        while (mResidentNewsCount > mMaxNewsInMemory && iterator.hasNext()) {
+            Page page = iterator.next();
+            if (page == keptPage) {
+                continue;
+            }
+            if (page.offset < 0 && !writePage(page)) {
+                // It can't be dropped without losing it.
+                continue;
+            }
+            page.newsList = null;
+            iterator.remove();
+            mResidentNewsCount -= page.size;
+        }
+    }
+
+    /**
+     * Append the page to the spill file, and return false when it couldn't be written.
+     */
+    private boolean writePage(Page page) {
+        try {
+            byte[] bytes = NewsCodec.encode(page.newsList);
+            RandomAccessFile file = getFile();
+            long offset = file.length();
+            file.seek(offset);
+            file.write(bytes);
+            page.offset = offset;
+            page.length = bytes.length;
+            mSpilledPages.add(page);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read a spilled page back from the file.
+     */
+    private List<News> readPage(Page page) {
+        byte[] bytes = new byte[page.length];
+        try {
+            RandomAccessFile file = getFile();
+            file.seek(page.offset);
+            file.readFully(bytes);
+            return Collections.unmodifiableList(NewsCodec.decode(ByteBuffer.wrap(bytes)));
+        } catch (IOException e) {
+            // The page was written by this pool, it can only fail when the file is gone.
+            throw new IllegalStateException("Can't read the spilled page", e);
+        }
+    }
+
+    private RandomAccessFile getFile() throws IOException {
+        if (mFile == null) {
+            File directory = mSpillFile.getParentFile();
+            if (directory != null && !directory.exists()) {
+                directory.mkdirs();
+            }
+            mFile = new RandomAccessFile(mSpillFile, "rw");
+            // Pages of a previous process can't be read, start over.
+            mFile.setLength(0);
+        }
+        return mFile;
+    }
+}
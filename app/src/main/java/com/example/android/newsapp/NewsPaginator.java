@@ -0,0 +1,293 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the next pages of news before users reach the bottom of the list.
+ * <p>
+ * Once users scroll within a given distance of the end of the list, the next page is
+ * appended, and the pages after it are prefetched into a small buffer so that the next
+ * append doesn't have to wait for the network. A page is never requested twice at the
+ * same time.
+ * <p>
+ * All the methods must be called on the main thread. Pages are loaded on the load
+ * executor and handed back through the main thread executor.
+ */
+public class NewsPaginator {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = NewsPaginator.class.getSimpleName();
+
+    /**
+     * How long in milliseconds to wait before requesting a page that failed to load again.
+     */
+    private static final long RETRY_DELAY = 3000;
+
+    /**
+     * Number of pages in a row appended right away because they were mostly repeats, before
+     * waiting for users to scroll again.
+     */
+    private static final int MAX_SKIPPED_PAGES = 5;
+
+    /**
+     * Loads a single page of news, on a background thread.
+     */
+    public interface PageSource {
+        /**
+         * Return the news on the given page of the section, or null when it failed.
+         */
+        List<News> loadPage(String section, int page);
+    }
+
+    /**
+     * Receives the pages to append to the list, on the main thread.
+     */
+    public interface Callback {
+        /**
+         * Called when the given page should be appended to the list.
+         */
+        void onPageReady(int page, List<News> newsList);
+    }
+
+    private final PageSource mPageSource;
+    private final Callback mCallback;
+    private final Executor mLoadExecutor;
+    private final Executor mMainThreadExecutor;
+
+    /**
+     * Number of items from the end of the list that triggers the next page.
+     */
+    private final int mPrefetchDistance;
+
+    /**
+     * Number of pages ahead of the last appended one to keep loaded.
+     */
+    private final int mPrefetchPages;
+
+    /**
+     * Section of news, null means the overview.
+     */
+    private String mSection;
+
+    /**
+     * The last page appended to the list, zero means none.
+     */
+    private int mLastPage;
+
+    /**
+     * Loaded pages waiting to be appended.
+     */
+    private final Map<Integer, List<News>> mReadyPages = new HashMap<>();
+
+    /**
+     * Pages being loaded.
+     */
+    private final Set<Integer> mLoadingPages = new HashSet<>();
+
+    /**
+     * Whether the next page should be appended as soon as it is loaded.
+     */
+    private boolean mIsWaiting;
+
+    /**
+     * Time in milliseconds when a page failed to load.
+     */
+    private long mFailedAt;
+
+    /**
+     * Incremented by every reset, so pages of a previous section are dropped.
+     */
+    private int mGeneration;
+
+    /**
+     * Number of pages in a row that were mostly repeats.
+     */
+    private int mSkippedPageCount;
+
+    /**
+     * Create a new {@link NewsPaginator} object.
+     *
+     * @param pageSource         loads the pages.
+     * @param callback           receives the pages to append.
+     * @param loadExecutor       runs the page loads.
+     * @param mainThreadExecutor runs the callbacks on the main thread.
+     * @param prefetchDistance   is the number of items from the end that triggers the next page.
+     * @param prefetchPages      is the number of pages to keep loaded ahead, one or more.
+     */
+    public NewsPaginator(PageSource pageSource, Callback callback, Executor loadExecutor,
+                         Executor mainThreadExecutor, int prefetchDistance, int prefetchPages) {
+        mPageSource = pageSource;
+        mCallback = callback;
+        mLoadExecutor = loadExecutor;
+        mMainThreadExecutor = mainThreadExecutor;
+        mPrefetchDistance = prefetchDistance;
+        mPrefetchPages = Math.max(1, prefetchPages);
+    }
+
+    /**
+     * Start over with the given section, whose pages up to the given one are in the list.
+     * Pages loaded or being loaded for the previous section are dropped.
+     */
+    public void reset(String section, int lastPage) {
+        mGeneration++;
+        mSection = section;
+        mLastPage = lastPage;
+        mReadyPages.clear();
+        mLoadingPages.clear();
+        mIsWaiting = false;
+        mFailedAt = 0;
+        mSkippedPageCount = 0;
+    }
+
+    /**
+     * Drop every page being loaded, like when the activity is destroyed.
+     */
+    public void cancel() {
+        reset(mSection, mLastPage);
+    }
+
+    /**
+     * Return the last page appended to the list.
+     */
+    public int getLastPage() {
+        return mLastPage;
+    }
+
+    /**
+     * Return whether the next page is being loaded and will be appended once it is ready.
+     */
+    public boolean isWaiting() {
+        return mIsWaiting;
+    }
+
+    /**
+     * Tell the paginator where users are in the list.
+     *
+     * @param lastVisiblePosition is the position of the last visible item.
+     * @param itemCount           is the number of items in the list.
+     */
+    public void onScrolled(int lastVisiblePosition, int itemCount) {
+        // Nothing to do until the first page is in the list, or while far from the end.
+        if (mLastPage == 0 || itemCount - 1 - lastVisiblePosition > mPrefetchDistance) {
+            return;
+        }
+        // Don't hammer the API right after a page failed to load.
+        if (mFailedAt != 0 && System.currentTimeMillis() - mFailedAt < RETRY_DELAY) {
+            return;
+        }
+        mFailedAt = 0;
+        mSkippedPageCount = 0;
+        mIsWaiting = true;
+        appendNextPage();
+        prefetch();
+    }
+
+    /**
+     * Tell the paginator how many news of an appended page were not already in the list.
+     * When less than half of the page is new, the next page is appended as soon as it is
+     * loaded, without waiting for users to scroll through rows they already saw.
+     *
+     * @param page          is the appended page.
+     * @param appendedCount is the number of news appended to the list.
+     * @param loadedCount   is the number of news of the loaded page.
+     */
+    public void onPageAppended(int page, int appendedCount, int loadedCount) {
+        // Only the last appended page tells whether the list is about to run out.
+        if (page != mLastPage || appendedCount * 2 >= loadedCount) {
+            return;
+        }
+        if (mSkippedPageCount >= MAX_SKIPPED_PAGES
+                || (mFailedAt != 0 && System.currentTimeMillis() - mFailedAt < RETRY_DELAY)) {
+            return;
+        }
+        mSkippedPageCount++;
+        mIsWaiting = true;
+        appendNextPage();
+        prefetch();
+    }
+
+    /**
+     * Append the next page if it is loaded.
+     */
+    private void appendNextPage() {
+        if (!mIsWaiting || !mReadyPages.containsKey(mLastPage + 1)) {
+            return;
+        }
+        List<News> newsList = mReadyPages.remove(mLastPage + 1);
+        mIsWaiting = false;
+        mLastPage++;
+        mCallback.onPageReady(mLastPage, newsList);
+    }
+
+    /**
+     * Load the pages ahead of the last appended one that are not loaded or being loaded.
+     */
+    private void prefetch() {
+        for (int page = mLastPage + 1; page <= mLastPage + mPrefetchPages; page++) {
+            if (!mReadyPages.containsKey(page) && !mLoadingPages.contains(page)) {
+                load(page);
+            }
+        }
+    }
+
+    /**
+     * Load the given page in the background.
+     */
+    private void load(final int page) {
+        final int generation = mGeneration;
+        final String section = mSection;
+        mLoadingPages.add(page);
+        mLoadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<News> loadedNews;
+                try {
+                    loadedNews = mPageSource.loadPage(section, page);
+                } catch (RuntimeException e) {
+                    // The page fails, instead of being loaded forever.
+                    Log.e(LOG_TAG, "Problem loading page " + page + ".", e);
+                    loadedNews = null;
+                }
+                final List<News> newsList = loadedNews;
+                mMainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(generation, page, newsList);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Called on the main thread when a page is loaded.
+     */
+    private void onPageLoaded(int generation, int page, List<News> newsList) {
+        // The section changed or the list was refreshed in the meantime.
+        if (generation != mGeneration) {
+            return;
+        }
+        mLoadingPages.remove(page);
+        if (newsList == null || newsList.isEmpty()) {
+            mFailedAt = System.currentTimeMillis();
+            // Stop waiting only when it is the next page that failed.
+            if (page == mLastPage + 1) {
+                mIsWaiting = false;
+            }
+            return;
+        }
+        // Pages behind the list are of no use anymore.
+        if (page > mLastPage) {
+            mReadyPages.put(page, newsList);
+        }
+        appendNextPage();
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the loaded pages of news of every section, and the last page loaded of each one,
+ * shared by the loaders on background threads and the list on the main thread.
+ * <p>
+ * Each section is an immutable {@link Snapshot}, published through an atomic reference.
+ * Reading a section never locks, and an update builds the next snapshot then swaps it in
+ * only if nothing replaced the one it was built from, so a refresh and an append running at
+ * the same time can't mix the pages of two lists.
+ */
+public class NewsRepository {
+    /**
+     * Key of the overview, which has no section, a concurrent map has no null key.
+     */
+    private static final String OVERVIEW_KEY = "";
+
+    /**
+     * The news of a section at one point in time. It never changes.
+     */
+    public static class Snapshot {
+        /**
+         * Section of news, null means the overview.
+         */
+        public final String section;
+
+        /**
+         * Incremented every time the section is replaced, so the pages loaded for a previous
+         * list are not appended to the new one.
+         */
+        public final int generation;
+
+        /**
+         * The last page in the list, zero means none.
+         */
+        public final int lastPage;
+
+        /**
+         * The news of the pages up to the last one.
+         */
+        public final PagedNewsList newsList;
+
+        Snapshot(String section, int generation, int lastPage, PagedNewsList newsList) {
+            this.section = section;
+            this.generation = generation;
+            this.lastPage = lastPage;
+            this.newsList = newsList;
+        }
+
+        /**
+         * Return the page to load after this list.
+         */
+        public int getNextPage() {
+            return lastPage + 1;
+        }
+    }
+
+    /**
+     * Keeps the news of the pages in memory or in the spill file.
+     */
+    private final NewsPagePool mPagePool;
+
+    /**
+     * The latest snapshot of every section, by section key.
+     */
+    private final ConcurrentMap<String, AtomicReference<Snapshot>> mSnapshots =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Create a new {@link NewsRepository} object.
+     *
+     * @param pagePool keeps the news of the pages.
+     */
+    public NewsRepository(NewsPagePool pagePool) {
+        mPagePool = pagePool;
+    }
+
+    /**
+     * Return the pool that keeps the news of the pages.
+     */
+    public NewsPagePool getPagePool() {
+        return mPagePool;
+    }
+
+    /**
+     * Return the latest snapshot of the given section, an empty one when nothing was loaded.
+     */
+    public Snapshot get(String section) {
+        return getReference(section).get();
+    }
+
+    /**
+     * Replace the news of the section with the given ones, like when its first page is loaded
+     * again, and drop the pages being appended to the previous list.
+     *
+     * @param section  is the section of news, null means the overview.
+     * @param lastPage is the last page of the given news.
+     * @param newsList is the news of the pages up to the last one.
+     * @return the new snapshot of the section.
+     */
+    public Snapshot replace(String section, int lastPage, List<News> newsList) {
+        AtomicReference<Snapshot> reference = getReference(section);
+        PagedNewsList pagedList = new PagedNewsList(mPagePool).append(newsList);
+        while (true) {
+            Snapshot current = reference.get();
+            Snapshot next = new Snapshot(section, current.generation + 1, lastPage, pagedList);
+            if (reference.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Remove the news of the section, like when it failed to load.
+     *
+     * @return the new empty snapshot of the section.
+     */
+    public Snapshot clear(String section) {
+        return replace(section, 0, new ArrayList<News>());
+    }
+
+    /**
+     * Append the given page to the list of the given snapshot.
+     *
+     * @param base     is the snapshot the page was loaded for.
+     * @param page     is the page of the given news.
+     * @param newsList is the news of the page.
+     * @return the new snapshot of the section, or null when the section was replaced since the
+     * given snapshot, or when the page isn't the one after the list.
+     */
+    public Snapshot append(Snapshot base, int page, List<News> newsList) {
+        AtomicReference<Snapshot> reference = getReference(base.section);
+        while (true) {
+            Snapshot current = reference.get();
+            if (current.generation != base.generation || page != current.getNextPage()) {
+                return null;
+            }
+            Snapshot next = new Snapshot(base.section, base.generation, page,
+                    current.newsList.append(newsList));
+            // When another update won, the section was replaced or the page appended, and the
+            // next attempt returns null.
+            if (reference.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Replace the first page of the list of the given snapshot, like when a stale cached first
+     * page was revalidated. The news of the list that are not on the new first page follow
+     * it, and the snapshot keeps its generation and last page, so the pages being appended
+     * still follow it. This is on a background thread.
+     *
+     * @param base      is the snapshot the first page was revalidated for.
+     * @param firstPage is the news of the new first page, without repeats.
+     * @return the new snapshot of the section, or null when the section was replaced or a page
+     * appended since the given snapshot.
+     */
+    public Snapshot replaceFirstPage(Snapshot base, List<News> firstPage) {
+        NewsDeduplicator deduplicator = new NewsDeduplicator();
+        deduplicator.addAll(firstPage);
+        PagedNewsList pagedList = new PagedNewsList(mPagePool).append(firstPage)
+                .append(deduplicator.filter(base.newsList));
+        AtomicReference<Snapshot> reference = getReference(base.section);
+        Snapshot next = new Snapshot(base.section, base.generation, base.lastPage, pagedList);
+        return reference.compareAndSet(base, next) ? next : null;
+    }
+
+    /**
+     * Forget the pages of the pool that are neither in a section nor in the given list, like
+     * the ones of a list that was replaced. It must be called once nothing reads them anymore.
+     *
+     * @param newsList is a list that is still read, like the one on screen. It can be null.
+     */
+    public void trim(PagedNewsList newsList) {
+        List<PagedNewsList> retained = new ArrayList<>();
+        for (AtomicReference<Snapshot> reference : mSnapshots.values()) {
+            retained.add(reference.get().newsList);
+        }
+        if (newsList != null) {
+            retained.add(newsList);
+        }
+        mPagePool.retainAll(retained);
+    }
+
+    /**
+     * Delete the spill file of the pages, like when the activity is destroyed.
+     */
+    public void close() {
+        mPagePool.close();
+    }
+
+    /**
+     * Return the reference to the latest snapshot of the given section, created empty the
+     * first time.
+     */
+    private AtomicReference<Snapshot> getReference(String section) {
+        String key = section == null ? OVERVIEW_KEY : section;
+        AtomicReference<Snapshot> reference = mSnapshots.get(key);
+        if (reference == null) {
+            AtomicReference<Snapshot> empty = new AtomicReference<>(
+                    new Snapshot(section, 0, 0, new PagedNewsList(mPagePool)));
+            reference = mSnapshots.putIfAbsent(key, empty);
+            if (reference == null) {
+                reference = empty;
+            }
+        }
+        return reference;
+    }
+}
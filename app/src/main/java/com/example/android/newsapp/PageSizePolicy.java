@@ -0,0 +1,95 @@
+package com.example.android.newsapp;
+
+/**
+ * Chooses how many news to ask for on a page, from the type of network and the measured
+ * throughput of the previous responses.
+ * <p>
+ * Every page is a round trip, so on a fast connection bigger pages mean fewer waits for
+ * the same news. On a metered network the page stays small, because the news past the
+ * point users stop scrolling are paid for and never read. The page size is a multiple of
+ * {@link GuardianRequest#DEFAULT_PAGE_SIZE}, so small changes of throughput don't change it.
+ */
+public class PageSizePolicy {
+    /**
+     * Largest page size on a metered network.
+     */
+    private static final int MAX_METERED_PAGE_SIZE = 20;
+
+    /**
+     * Page size on an unmetered network before any throughput was measured.
+     */
+    private static final int DEFAULT_UNMETERED_PAGE_SIZE = 20;
+
+    /**
+     * How long in milliseconds the transfer of a page should take at most.
+     */
+    private static final long TARGET_TRANSFER_MILLIS = 1000;
+
+    /**
+     * Smallest response in bytes that measures the throughput. The time of a smaller one
+     * is mostly the latency of the request.
+     */
+    private static final long MIN_MEASURED_BYTES = 4 * 1024;
+
+    /**
+     * Weight of the latest measure in the averages.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * Average throughput in bytes per second, zero before the first measure.
+     */
+    private double mBytesPerSecond;
+
+    /**
+     * Average size in bytes of a news in the responses, on the wire.
+     */
+    private double mBytesPerNews;
+
+    /**
+     * Record the transfer of a response.
+     *
+     * @param bytes     is the size of the response on the wire.
+     * @param millis    is how long it took to download it.
+     * @param newsCount is the number of news in it.
+     */
+    public synchronized void recordTransfer(long bytes, long millis, int newsCount) {
+        if (newsCount > 0) {
+            mBytesPerNews = average(mBytesPerNews, (double) bytes / newsCount);
+        }
+        if (bytes >= MIN_MEASURED_BYTES && millis > 0) {
+            mBytesPerSecond = average(mBytesPerSecond, bytes * 1000.0 / millis);
+        }
+    }
+
+    /**
+     * Return the number of news to ask for on a page.
+     *
+     * @param isMetered is true when the active network is metered, like mobile data.
+     */
+    public synchronized int getPageSize(boolean isMetered) {
+        int maxPageSize = isMetered ? MAX_METERED_PAGE_SIZE : GuardianRequest.MAX_PAGE_SIZE;
+        int pageSize;
+        if (mBytesPerSecond == 0 || mBytesPerNews == 0) {
+            pageSize = isMetered ? GuardianRequest.DEFAULT_PAGE_SIZE : DEFAULT_UNMETERED_PAGE_SIZE;
+        } else {
+            // As many news as the connection downloads in the target time.
+            pageSize = (int) (mBytesPerSecond * TARGET_TRANSFER_MILLIS / 1000 / mBytesPerNews);
+        }
+        int step = GuardianRequest.DEFAULT_PAGE_SIZE;
+        pageSize = pageSize / step * step;
+        return Math.max(step, Math.min(maxPageSize, pageSize));
+    }
+
+    /**
+     * Forget the measures, like when the device changed network.
+     */
+    public synchronized void reset() {
+        mBytesPerSecond = 0;
+        mBytesPerNews = 0;
+    }
+
+    private static double average(double average, double value) {
+        return average == 0 ? value : average + SMOOTHING * (value - average);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.android.newsapp;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable list of {@link News} made of pages, whose news are kept in memory or spilled
+ * to a file by a {@link NewsPagePool}.
+ * <p>
+ * Appending a page returns a new list that shares the pages of this one, so it only copies
+ * the page references, and a background thread can keep reading the previous list.
+ * <p>
+ * {@link #get} may read a spilled page back from the file, so it is only called on background
+ * threads. The main thread {@link #peek}s at the news, after the pages around the rows on
+ * screen were {@link #load}ed.
+ */
+public class PagedNewsList extends AbstractList<News> {
+    /**
+     * Largest page, a longer list of news is appended as several pages, so they can be
+     * spilled one by one.
+     */
+    static final int MAX_PAGE_SIZE = GuardianRequest.MAX_PAGE_SIZE;
+
+    private final NewsPagePool mPool;
+
+    private final NewsPagePool.Page[] mPages;
+
+    /**
+     * Position of the first news of each page.
+     */
+    private final int[] mStarts;
+
+    private final int mSize;
+
+    /**
+     * Create a new empty {@link PagedNewsList} object.
+     *
+     * @param pool keeps the news of the pages.
+     */
+    public PagedNewsList(NewsPagePool pool) {
+        this(pool, new NewsPagePool.Page[0], new int[0], 0);
+    }
+
+    private PagedNewsList(NewsPagePool pool, NewsPagePool.Page[] pages, int[] starts, int size) {
+        mPool = pool;
+        mPages = pages;
+        mStarts = starts;
+        mSize = size;
+    }
+
+    /**
+     * Return a new list made of this one followed by the given news.
+     */
+    public PagedNewsList append(List<News> newsList) {
+        if (newsList.isEmpty()) {
+            return this;
+        }
+        int addedPageCount = (newsList.size() + MAX_PAGE_SIZE - 1) / MAX_PAGE_SIZE;
+        NewsPagePool.Page[] pages = Arrays.copyOf(mPages, mPages.length + addedPageCount);
+        int[] starts = Arrays.copyOf(mStarts, mStarts.length + addedPageCount);
+        int size = mSize;
+        for (int i = 0; i < addedPageCount; i++) {
+            List<News> pageNews = newsList.subList(i * MAX_PAGE_SIZE,
+                    Math.min(newsList.size(), (i + 1) * MAX_PAGE_SIZE));
+            pages[mPages.length + i] = mPool.add(pageNews);
+            starts[mPages.length + i] = size;
+            size += pageNews.size();
+        }
+        return new PagedNewsList(mPool, pages, starts, size);
+    }
+
+    /**
+     * Return the news at the given position, loaded back from the spill file when its page
+     * was spilled.
+     */
+    @Override
+    public News get(int position) {
+        int page = getPageIndex(position);
+        return mPool.get(mPages[page]).get(position - mStarts[page]);
+    }
+
+    /**
+     * Return the news at the given position when its page is in memory, or else null, without
+     * reading the file. It can be called on the main thread.
+     */
+    public News peek(int position) {
+        int page = getPageIndex(position);
+        List<News> pageNews = mPool.peek(mPages[page]);
+        return pageNews == null ? null : pageNews.get(position - mStarts[page]);
+    }
+
+    /**
+     * Load the pages of the news from the first position up to the last one, excluded, back
+     * into memory, and mark them as read last so they are kept there. This is on a background
+     * thread.
+     *
+     * @return whether a page had to be read back from the spill file.
+     */
+    public boolean load(int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        boolean wasSpilled = false;
+        for (int page = getPageIndex(from); page <= getPageIndex(to - 1); page++) {
+            wasSpilled |= mPool.peek(mPages[page]) == null;
+            mPool.get(mPages[page]);
+        }
+        return wasSpilled;
+    }
+
+    /**
+     * Return whether every page is in memory, so the whole list can be read without the file.
+     */
+    public boolean isResident() {
+        for (NewsPagePool.Page page : mPages) {
+            if (mPool.peek(page) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Return the index of the page of the news at the given position.
+     */
+    private int getPageIndex(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + mSize);
+        }
+        int page = Arrays.binarySearch(mStarts, position);
+        if (page < 0) {
+            // The page that starts before the position.
+            page = -page - 2;
+        }
+        return page;
+    }
+
+    /**
+     * Return the pages of the list.
+     */
+    List<NewsPagePool.Page> getPages() {
+        return Collections.unmodifiableList(Arrays.asList(mPages));
+    }
+}
@@ -3,21 +3,33 @@ package com.example.android.newsapp;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
 
-import javax.net.ssl.HttpsURLConnection;
+import okhttp3.Request;
+import okhttp3.Response;
 
 /**
  * Helper methods related to requesting and receiving news data from the Guardian.
@@ -29,10 +41,29 @@ public class QueryUtils {
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
     /**
-     * Current page of news.
-     * Default value is one.
+     * Validators and parsed news of the latest responses, used for conditional requests.
+     */
+    private static final ConditionalRequestCache sConditionalCache = new ConditionalRequestCache(32);
+
+    /**
+     * Counters of the bytes transferred and saved by the requests.
+     */
+    private static final TransferStats sTransferStats = new TransferStats();
+
+    /**
+     * Decides whether a failed request is tried again.
+     */
+    private static volatile RetryPolicy sRetryPolicy = RetryPolicy.createDefault();
+
+    /**
+     * Stops the requests while the API keeps failing.
      */
-    public static int currentPage;
+    private static volatile CircuitBreaker sCircuitBreaker = CircuitBreaker.createDefault();
+
+    /**
+     * Measures the throughput of the responses, to choose the size of the next pages.
+     */
+    private static final PageSizePolicy sPageSizePolicy = new PageSizePolicy();
 
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
@@ -46,20 +77,159 @@ public class QueryUtils {
      * Query the Guardian data set and return a list of {@link News} objects.
      */
     public static List<News> fetchNewsData(String requestUrl) {
+        return fetchNewsData(requestUrl, null);
+    }
+
+    /**
+     * Query the Guardian data set and return a list of {@link News} objects, or null when
+     * the request failed or was cancelled by the given token.
+     * <p>
+     * A request that fails with a connection problem, a timeout, a rate limit or a server
+     * error is tried again as the {@link RetryPolicy} says. So is a response whose body is
+     * cut short, which counts as a failure, never as a shorter page. No request is sent while
+     * the {@link CircuitBreaker} is open.
+     *
+     * @param requestUrl        to load data from.
+     * @param cancellationToken aborts the request while it is downloading, it can be null.
+     */
+    public static List<News> fetchNewsData(String requestUrl, CancellationToken cancellationToken) {
         // Create URL object
         URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
+
+        RetryPolicy retryPolicy = sRetryPolicy;
+        CircuitBreaker circuitBreaker = sCircuitBreaker;
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                Log.e(LOG_TAG, "The news API keeps failing, the request is not sent.");
+                return null;
+            }
+
+            long retryAfter = -1;
+            try {
+                // Perform HTTPS request to the URL and parse the JSON response
+                // while it is downloading.
+                List<News> newsList = makeHttpsRequest(url, cancellationToken);
+                if (isCancelled(cancellationToken)) {
+                    circuitBreaker.recordCancelled();
+                    return null;
+                }
+                circuitBreaker.recordSuccess();
+                // Return the list of {@link News}.
+                return newsList;
+            } catch (HttpStatusException e) {
+                Log.e(LOG_TAG, "Error response code: " + e.responseCode);
+                if (!retryPolicy.isRetryable(e.responseCode)) {
+                    // The API answered, the request itself is wrong.
+                    circuitBreaker.recordSuccess();
+                    return null;
+                }
+                retryAfter = e.retryAfter;
+            } catch (IOException e) {
+                if (isCancelled(cancellationToken)) {
+                    circuitBreaker.recordCancelled();
+                    return null;
+                }
+                // Also a body cut short or malformed, none of its news are returned.
+                Log.e(LOG_TAG, "Problem making the HTTPS request.", e);
+            }
+            circuitBreaker.recordFailure();
+            Metrics.getDefault().increment(Metrics.COUNTER_ERRORS);
+
+            long delay = retryPolicy.getDelay(attempt, retryAfter);
+            if (delay == RetryPolicy.NO_RETRY || !sleep(delay, cancellationToken)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Return the policy that decides whether a failed request is tried again.
+     */
+    public static RetryPolicy getRetryPolicy() {
+        return sRetryPolicy;
+    }
+
+    /**
+     * Replace the policy that decides whether a failed request is tried again.
+     */
+    public static void setRetryPolicy(RetryPolicy retryPolicy) {
+        sRetryPolicy = retryPolicy;
+    }
 
-        // Perform HTTPS request to the URL and receive a JSON response back
-        String jsonResponse = null;
+    /**
+     * Return the breaker that stops the requests while the API keeps failing.
+     */
+    public static CircuitBreaker getCircuitBreaker() {
+        return sCircuitBreaker;
+    }
+
+    /**
+     * Replace the breaker that stops the requests while the API keeps failing.
+     */
+    public static void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        sCircuitBreaker = circuitBreaker;
+    }
+
+    private static boolean isCancelled(CancellationToken cancellationToken) {
+        return cancellationToken != null && cancellationToken.isCancelled();
+    }
+
+    /**
+     * Wait for the given milliseconds before a retry, and return false when the wait
+     * was cut short by the token or an interrupt.
+     */
+    private static boolean sleep(long millis, CancellationToken cancellationToken) {
+        if (cancellationToken != null) {
+            return cancellationToken.sleep(millis);
+        }
         try {
-            jsonResponse = makeHttpsRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem making the HTTPS request.", e);
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
+    }
 
-        // Extract relevant fields from the JSON response,
-        // Create a list of {@link news} and return it.
-        return extractFeatureFromJson(jsonResponse);
+    /**
+     * Return the delay in milliseconds of the given Retry-After header, which holds either
+     * a number of seconds or an HTTP date, or -1 when there is none or it is malformed.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try an HTTP date.
+        }
+        SimpleDateFormat httpDateFormat =
+                new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, httpDateFormat.parse(retryAfter.trim()).getTime()
+                    - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Return the counters of the bytes transferred and saved by the requests.
+     */
+    public static TransferStats getTransferStats() {
+        return sTransferStats;
+    }
+
+    /**
+     * Return the policy that chooses the page size from the throughput of the responses.
+     */
+    public static PageSizePolicy getPageSizePolicy() {
+        return sPageSizePolicy;
     }
 
     /**
@@ -76,54 +246,112 @@ public class QueryUtils {
     }
 
     /**
-     * Make an HTTPS request to the given URL and return a String as the response.
+     * Make an HTTPS request to the given URL and return the list of {@link News}
+     * parsed straight from the response stream. An error response throws
+     * an {@link HttpStatusException}.
+     * <p>
+     * The request goes through the shared {@link NewsHttpClient}, which keeps connections
+     * alive between requests. It asks for a gzip compressed response, and sends the
+     * validators of the previous response of the same URL. A 304 Not Modified response
+     * reuses the news parsed from that previous response.
+     * <p>
+     * Cancelling the given token closes the connection, even in the middle of the response.
      */
-    private static String makeHttpsRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static List<News> makeHttpsRequest(URL url, CancellationToken cancellationToken)
+            throws IOException {
+        List<News> newsList = null;
 
-        // If the URL is null, then return early.
-        if (url == null) {
-            return jsonResponse;
+        // If the URL is null, or the load was cancelled, then return early.
+        if (url == null || isCancelled(cancellationToken)) {
+            return newsList;
+        }
+
+        // Asking for gzip explicitly means the response has to be decompressed here,
+        // but it lets the app count the bytes on the wire.
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(url)
+                .header("Accept-Encoding", "gzip");
+        // Make the request conditional when there is a previous response of the same URL.
+        ConditionalRequestCache.Entry cached = sConditionalCache.get(url.toString());
+        if (cached != null) {
+            if (cached.eTag != null) {
+                requestBuilder.header("If-None-Match", cached.eTag);
+            }
+            if (cached.lastModified != null) {
+                requestBuilder.header("If-Modified-Since", cached.lastModified);
+            }
         }
 
-        HttpsURLConnection urlConnection = null;
+        Response response = null;
         InputStream inputStream = null;
+        long startNanos = System.nanoTime();
+        long downloadStart = Metrics.getDefault().startTimer();
         try {
-            urlConnection = (HttpsURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            response = NewsHttpClient.getDefault().execute(requestBuilder.build(), cancellationToken);
+
+            int responseCode = response.code();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // If the request was successful (response code 200),
+                // then parse the response while reading the input stream.
+                CountingInputStream wireStream = new CountingInputStream(response.body().byteStream());
+                inputStream = wireStream;
+                if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+                CountingInputStream decodedStream = new CountingInputStream(inputStream);
+                inputStream = decodedStream;
+                newsList = extractFeatureFromStream(inputStream);
+                if (isCancelled(cancellationToken)) {
+                    // The parser stops at the aborted read, its news are incomplete.
+                    return null;
+                }
+                sTransferStats.recordResponse(wireStream.getCount(), decodedStream.getCount());
+                Metrics.getDefault().stopTimer(Metrics.STAGE_DOWNLOAD, downloadStart);
+                Metrics.getDefault().add(Metrics.COUNTER_BYTES_RECEIVED, wireStream.getCount());
+                sPageSizePolicy.recordTransfer(wireStream.getCount(),
+                        (System.nanoTime() - startNanos) / 1000000,
+                        newsList == null ? 0 : newsList.size());
+
+                // Remember the validators, so the next request of this URL can be conditional.
+                // The parser threw if the body was cut short, only a whole page gets here.
+                String eTag = response.header("ETag");
+                String lastModified = response.header("Last-Modified");
+                if ((eTag != null || lastModified != null) && newsList != null && !newsList.isEmpty()) {
+                    sConditionalCache.put(url.toString(), new ConditionalRequestCache.Entry(
+                            eTag, lastModified, newsList, decodedStream.getCount()));
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // Nothing changed since the previous response, reuse its news.
+                newsList = cached.newsList;
+                sTransferStats.recordNotModified(cached.bodySize);
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                throw new HttpStatusException(responseCode,
+                        parseRetryAfter(response.header("Retry-After")));
             }
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the news JSON results.", e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
             if (inputStream != null) {
                 // Closing the input stream could throw an IOException, which is why
                 // the makeHttpRequest(URL url) method signature specifies than an IOException
                 // could be thrown.
                 inputStream.close();
             }
+            if (response != null) {
+                // Closing the response, instead of disconnecting, hands the connection back
+                // to the pool so the next request can reuse it.
+                response.close();
+            }
+            if (cancellationToken != null) {
+                cancellationToken.setOnCancelListener(null);
+            }
         }
-        return jsonResponse;
+        return newsList;
     }
 
     /**
      * Convert the {@link InputStream} into a String which contains the
      * whole JSON response from the server.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
+    static String readFromStream(InputStream inputStream) throws IOException {
         StringBuilder output = new StringBuilder();
         if (inputStream != null) {
             InputStreamReader inputStreamReader =
@@ -141,8 +369,12 @@ public class QueryUtils {
     /**
      * Return a list of {@link News} objects that has been built up from
      * parsing the given JSON response.
+     * <p>
+     * This builds the whole JSON tree in memory. The app parses with
+     * {@link #extractFeatureFromStream(InputStream)} instead, this one is kept
+     * as the reference the streaming parser is tested against.
      */
-    private static List<News> extractFeatureFromJson(String newsJSON) {
+    static List<News> extractFeatureFromJson(String newsJSON) {
         // If the JSON string is empty or null, then return early.
         if (TextUtils.isEmpty(newsJSON)) {
             return null;
@@ -163,12 +395,6 @@ public class QueryUtils {
             // which contains all response of the request.
             JSONObject newsObject = baseJsonResponse.getJSONObject("response");
 
-            /*
-             * Get the current page of news.
-             * This is a global variable.
-             */
-            currentPage = newsObject.getInt("currentPage");
-
             // Extract the JSONArray associated with the key called "results",
             // which represents a list of news.
             JSONArray newsArray = newsObject.getJSONArray("results");
@@ -191,9 +417,14 @@ public class QueryUtils {
                 // key called "webUrl", which represents the URL of news.
                 String url = currentNews.getString("webUrl");
 
-                // Create a new {@link News} object with the title, time
-                // and URL from the JSON response.
-                News news = new News(title, time, url);
+                // The thumbnail is in the "fields" object, when it was asked for.
+                JSONObject fields = currentNews.optJSONObject("fields");
+                String thumbnailUrl = fields == null || !fields.has("thumbnail")
+                        ? null : fields.getString("thumbnail");
+
+                // Create a new {@link News} object with the title, time, URL
+                // and thumbnail from the JSON response.
+                News news = new News(title, time, url, thumbnailUrl);
 
                 // Add the new {@link News} to the list of news.
                 newsList.add(news);
@@ -209,4 +440,196 @@ public class QueryUtils {
         // Return the list of news.
         return newsList;
     }
+
+    /**
+     * Return a list of {@link News} objects parsed token by token from the given
+     * JSON response stream.
+     * <p>
+     * Each {@link News} is created as soon as its result object is closed, and every
+     * field the app does not use is skipped without being built, so the response
+     * never has to be held in memory as a whole.
+     * <p>
+     * A response cut short by the connection or malformed throws an {@link IOException},
+     * instead of returning the news parsed so far as if they were the whole page.
+     */
+    static List<News> extractFeatureFromStream(InputStream inputStream) throws IOException {
+        // If there is no stream to read, then return early.
+        if (inputStream == null) {
+            return null;
+        }
+
+        long start = Metrics.getDefault().startTimer();
+        // Create an empty ArrayList that can start adding news to.
+        List<News> newsList = new ArrayList<>();
+
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                // Only the "response" object is needed, skip anything else at the top level.
+                if (reader.nextName().equals("response")) {
+                    readResponse(reader, newsList);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            // Read up to the end of the body, so a gzip response is checked against its
+            // trailer and the news are known to be the whole page.
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new MalformedJsonException("Unexpected content after the response");
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            // Malformed JSON shows up as an IllegalStateException (unexpected token) or
+            // a NumberFormatException (malformed number). Broken syntax and a broken
+            // connection are already an IOException.
+            throw new MalformedJsonException(e.getMessage(), e);
+        }
+        Metrics.getDefault().stopTimer(Metrics.STAGE_PARSE, start);
+
+        // Return the list of news.
+        return newsList;
+    }
+
+    /**
+     * Read the "response" object, which contains the list of results. The page of the
+     * response isn't read, the caller knows which page it requested.
+     */
+    private static void readResponse(JsonReader reader, List<News> newsList) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "results":
+                    // Each element of the results array represents a single news.
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        newsList.add(readNews(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read a single result object and create a {@link News} object with its title, time, URL
+     * and thumbnail.
+     */
+    private static News readNews(JsonReader reader) throws IOException {
+        String title = null;
+        String time = null;
+        String url = null;
+        String thumbnailUrl = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "webTitle":
+                    title = reader.nextString();
+                    break;
+                case "webPublicationDate":
+                    time = reader.nextString();
+                    break;
+                case "webUrl":
+                    url = reader.nextString();
+                    break;
+                case "fields":
+                    thumbnailUrl = readThumbnailUrl(reader);
+                    break;
+                default:
+                    // Skip fields like "tags" without building them.
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // A result without any of the three fields can't be shown,
+        // which is an error just like a missing key in extractFeatureFromJson.
+        if (title == null || time == null || url == null) {
+            throw new IllegalStateException("Result is missing webTitle, webPublicationDate or webUrl");
+        }
+        return new News(title, time, url, thumbnailUrl);
+    }
+
+    /**
+     * Read the "fields" object of a result, and return its thumbnail or null when it has none.
+     * The other fields, like the body, are skipped without being built.
+     */
+    private static String readThumbnailUrl(JsonReader reader) throws IOException {
+        String thumbnailUrl = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("thumbnail")) {
+                thumbnailUrl = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return thumbnailUrl;
+    }
+
+    /**
+     * An HTTP response that is neither 200 OK nor a usable 304 Not Modified.
+     */
+    private static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int responseCode;
+
+        /**
+         * Delay in milliseconds of the Retry-After header, -1 when there is none.
+         */
+        final long retryAfter;
+
+        HttpStatusException(int responseCode, long retryAfter) {
+            super("Error response code: " + responseCode);
+            this.responseCode = responseCode;
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    /**
+     * An {@link InputStream} that counts the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                mCount += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return mCount;
+        }
+    }
 }
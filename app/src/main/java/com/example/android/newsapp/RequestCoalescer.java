@@ -0,0 +1,204 @@
+package com.example.android.newsapp;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one network request and parse between the callers that ask for the same URL
+ * at the same time, like a rotation, a swipe refresh and a scroll that all load one page.
+ * <p>
+ * The first caller of a URL performs the request on its own thread. The callers that come
+ * while it is in flight wait for it and get the same list of news, which must not be
+ * modified. A URL is requested again once its request has finished.
+ */
+public class RequestCoalescer {
+    /**
+     * Performs the request of a URL.
+     */
+    public interface Fetcher {
+        /**
+         * Return the news of the given URL, or null when the request failed or was cancelled
+         * by the given token, which can be null. This is on a background thread.
+         */
+        List<News> fetch(String url, CancellationToken cancellationToken);
+    }
+
+    /**
+     * How often in milliseconds a waiting caller checks whether it was cancelled.
+     */
+    private static final long CANCELLATION_POLL_INTERVAL = 50;
+
+    /**
+     * A request in flight, performed by the caller that owns the token.
+     */
+    private class Flight extends FutureTask<List<News>> {
+        private final CancellationToken mCancellationToken;
+
+        Flight(final String url, final CancellationToken cancellationToken) {
+            super(new Callable<List<News>>() {
+                @Override
+                public List<News> call() {
+                    return mFetcher.fetch(url, cancellationToken);
+                }
+            });
+            mCancellationToken = cancellationToken;
+        }
+
+        /**
+         * Whether the caller that performed the request was cancelled, so its result is empty.
+         */
+        boolean isAborted() {
+            return mCancellationToken != null && mCancellationToken.isCancelled();
+        }
+    }
+
+    private final Fetcher mFetcher;
+
+    /**
+     * The requests in flight, by URL.
+     */
+    private final ConcurrentMap<String, Flight> mInFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Number of requests that were performed.
+     */
+    private final AtomicLong mIssuedCount = new AtomicLong();
+
+    /**
+     * Number of callers that shared a request in flight instead of performing one.
+     */
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+
+    /**
+     * Create a new {@link RequestCoalescer} object.
+     *
+     * @param fetcher performs the requests.
+     */
+    public RequestCoalescer(Fetcher fetcher) {
+        mFetcher = fetcher;
+    }
+
+    /**
+     * Return the news of the given URL, from the request in flight when there is one.
+     * Return null when the request failed, or when the thread is interrupted while waiting.
+     * This is on a background thread.
+     *
+     * @param url to load data from.
+     */
+    public List<News> fetch(String url) {
+        return fetch(url, null);
+    }
+
+    /**
+     * Same as {@link #fetch(String)}, and return null as soon as the given token is cancelled.
+     * <p>
+     * Cancelling the caller that performs the request aborts it. The callers that shared it,
+     * and that are not cancelled, then perform the request again.
+     *
+     * @param url               to load data from.
+     * @param cancellationToken cancels the caller, it can be null.
+     */
+    public List<News> fetch(String url, CancellationToken cancellationToken) {
+        while (cancellationToken == null || !cancellationToken.isCancelled()) {
+            Flight flight = new Flight(url, cancellationToken);
+            Flight inFlight = mInFlight.putIfAbsent(url, flight);
+            if (inFlight == null) {
+                mIssuedCount.incrementAndGet();
+                try {
+                    flight.run();
+                } finally {
+                    mInFlight.remove(url, flight);
+                }
+                return get(flight);
+            }
+
+            List<News> newsList = await(inFlight, cancellationToken);
+            if (cancellationToken != null && cancellationToken.isCancelled()) {
+                break;
+            }
+            if (!inFlight.isAborted()) {
+                mCoalescedCount.incrementAndGet();
+                return newsList;
+            }
+            // The owner of the request was cancelled, drop its request and perform it again.
+            mInFlight.remove(url, inFlight);
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the given request, and return null when the given token is cancelled first.
+     */
+    private List<News> await(Flight flight, CancellationToken cancellationToken) {
+        if (cancellationToken == null) {
+            return get(flight);
+        }
+        // Poll rather than interrupt, an interrupt could leak into the next work of the thread.
+        while (!cancellationToken.isCancelled()) {
+            try {
+                return get(flight, CANCELLATION_POLL_INTERVAL);
+            } catch (TimeoutException e) {
+                // Check the token again.
+            }
+        }
+        return null;
+    }
+
+    private static List<News> get(Flight flight) {
+        try {
+            return get(flight, 0);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the result of the given request, waiting at most the given milliseconds,
+     * or without limit when it is zero.
+     */
+    private static List<News> get(Flight flight, long timeout) throws TimeoutException {
+        try {
+            return timeout == 0 ? flight.get() : flight.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public long getIssuedCount() {
+        return mIssuedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    /**
+     * Set every counter back to zero.
+     */
+    public void reset() {
+        mIssuedCount.set(0);
+        mCoalescedCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "RequestCoalescer{issued=" + getIssuedCount()
+                + ", coalesced=" + getCoalescedCount() + "}";
+    }
+}
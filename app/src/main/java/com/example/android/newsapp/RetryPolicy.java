@@ -0,0 +1,95 @@
+package com.example.android.newsapp;
+
+import java.util.Random;
+
+/**
+ * Decides whether a failed news request is tried again, and how long to wait before.
+ * <p>
+ * The delays grow exponentially from the base delay up to the max delay, with a random
+ * jitter so that many clients failing together don't retry together. A Retry-After delay
+ * sent by the server is honored instead, unless it is longer than the max delay.
+ */
+public class RetryPolicy {
+    /**
+     * Default number of attempts of a request, the first one included.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default delay in milliseconds before the first retry.
+     */
+    public static final long DEFAULT_BASE_DELAY = 500;
+
+    /**
+     * Default longest delay in milliseconds before a retry.
+     */
+    public static final long DEFAULT_MAX_DELAY = 8000;
+
+    /**
+     * No more attempt should be made.
+     */
+    public static final long NO_RETRY = -1;
+
+    private final int mMaxAttempts;
+    private final long mBaseDelay;
+    private final long mMaxDelay;
+    private final Random mRandom;
+
+    /**
+     * Create a new {@link RetryPolicy} object.
+     *
+     * @param maxAttempts is the number of attempts of a request, the first one included.
+     * @param baseDelay   is the delay in milliseconds before the first retry.
+     * @param maxDelay    is the longest delay in milliseconds before a retry.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay) {
+        this(maxAttempts, baseDelay, maxDelay, new Random());
+    }
+
+    RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, Random random) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelay = baseDelay;
+        mMaxDelay = maxDelay;
+        mRandom = random;
+    }
+
+    /**
+     * Return the policy with the default settings.
+     */
+    public static RetryPolicy createDefault() {
+        return new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Return whether a response with the given code may succeed when tried again.
+     * Timeouts, rate limits and server errors are transient, other client errors are not.
+     */
+    public boolean isRetryable(int responseCode) {
+        return responseCode == 408 || responseCode == 429 || responseCode >= 500;
+    }
+
+    /**
+     * Return the delay in milliseconds before the attempt after the given failed one,
+     * or {@link #NO_RETRY} when there should be no more attempt.
+     *
+     * @param attempt    is the number of the failed attempt, starting at one.
+     * @param retryAfter is the delay in milliseconds the server asked for, or -1 when none.
+     */
+    public long getDelay(int attempt, long retryAfter) {
+        if (attempt >= mMaxAttempts) {
+            return NO_RETRY;
+        }
+        if (retryAfter >= 0) {
+            // Waiting longer than the max delay would leave users without news for too long.
+            return retryAfter <= mMaxDelay ? retryAfter : NO_RETRY;
+        }
+        long delay = Math.min(mMaxDelay, mBaseDelay << Math.min(attempt - 1, 30));
+        // Wait at least half of the delay, plus a random part of the other half.
+        long half = delay / 2;
+        return half + (long) (mRandom.nextDouble() * (delay - half));
+    }
+}
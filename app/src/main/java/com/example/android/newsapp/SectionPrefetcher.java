@@ -0,0 +1,228 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the first page of several sections at the same time, and keeps them in memory,
+ * so switching to another section of the navigation drawer doesn't wait for the network.
+ * <p>
+ * The sections are loaded on the {@link LoadExecutor} with the priority of the prefetched
+ * pages, so they never hold up the list on screen, and only a few at a time, which caps the
+ * number of connections open at the same time. Every load has its own
+ * {@link CancellationToken}. {@link #cancel()} stops every load, and closes the connections
+ * of the running ones, like when the activity is destroyed.
+ */
+public class SectionPrefetcher {
+    /**
+     * Loads the first page of a section.
+     */
+    public interface PageSource {
+        /**
+         * Return the news on the first page of the section, or null when it failed or was
+         * cancelled by the given token. This is on a background thread.
+         */
+        List<News> loadFirstPage(String section, CancellationToken cancellationToken);
+    }
+
+    /**
+     * Key of the overview, which has no section, in the maps.
+     */
+    private static final String OVERVIEW_KEY = "";
+
+    /**
+     * A loaded first page of a section, and when it was loaded.
+     */
+    private static class Page {
+        final List<News> newsList;
+        final long loadedAt;
+
+        Page(List<News> newsList, long loadedAt) {
+            this.newsList = newsList;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * The load of a section, waiting for a connection, waiting for a thread or running.
+     */
+    private static class Load {
+        final CancellationToken cancellationToken = new CancellationToken();
+
+        /**
+         * The load submitted to the executor, null while it waits for a connection.
+         */
+        Future<?> future;
+    }
+
+    private final PageSource mPageSource;
+
+    /**
+     * Runs the loads.
+     */
+    private final LoadExecutor mExecutor;
+
+    /**
+     * Number of sections loaded at the same time.
+     */
+    private final int mMaxConnections;
+
+    /**
+     * How long in milliseconds a loaded page can be served.
+     */
+    private final long mTimeToLive;
+
+    /**
+     * The loaded first page of each section.
+     */
+    private final Map<String, Page> mPages = new ConcurrentHashMap<>();
+
+    /**
+     * The loads that are not done, by section key. Guarded by this object, like the fields
+     * below.
+     */
+    private final Map<String, Load> mLoads = new HashMap<>();
+
+    /**
+     * The sections waiting for a connection, in the order they were asked for.
+     */
+    private final List<String> mPendingSections = new ArrayList<>();
+
+    /**
+     * Number of loads submitted to the executor and not done.
+     */
+    private int mSubmittedCount;
+
+    private boolean mIsCancelled;
+
+    /**
+     * Create a new {@link SectionPrefetcher} object.
+     *
+     * @param pageSource     loads the pages.
+     * @param executor       runs the loads.
+     * @param maxConnections is the number of sections loaded at the same time.
+     * @param timeToLive     is how long in milliseconds a loaded page can be served.
+     */
+    public SectionPrefetcher(PageSource pageSource, LoadExecutor executor, int maxConnections,
+                             long timeToLive) {
+        mPageSource = pageSource;
+        mExecutor = executor;
+        mMaxConnections = maxConnections;
+        mTimeToLive = timeToLive;
+    }
+
+    /**
+     * Load the first page of every given section that isn't loaded or being loaded.
+     *
+     * @param sections are the sections, null means the overview.
+     */
+    public synchronized void prefetch(List<String> sections) {
+        if (mIsCancelled) {
+            return;
+        }
+        for (String section : sections) {
+            String key = keyOf(section);
+            if (get(section) != null || mLoads.containsKey(key)) {
+                continue;
+            }
+            mLoads.put(key, new Load());
+            mPendingSections.add(section);
+        }
+        submitPendingLoads();
+    }
+
+    /**
+     * Submit the loads waiting for a connection, as long as there are connections left.
+     */
+    private synchronized void submitPendingLoads() {
+        while (mSubmittedCount < mMaxConnections && !mPendingSections.isEmpty()) {
+            final String section = mPendingSections.remove(0);
+            final String key = keyOf(section);
+            final Load load = mLoads.get(key);
+            mSubmittedCount++;
+            load.future = mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (load.cancellationToken.isCancelled()) {
+                            return;
+                        }
+                        List<News> newsList =
+                                mPageSource.loadFirstPage(section, load.cancellationToken);
+                        if (newsList != null && !newsList.isEmpty()
+                                && !load.cancellationToken.isCancelled()) {
+                            mPages.put(key, new Page(newsList, System.currentTimeMillis()));
+                        }
+                    } finally {
+                        onLoadDone(key);
+                    }
+                }
+            }, LoadExecutor.PRIORITY_PREFETCH);
+        }
+    }
+
+    /**
+     * Give the connection of the done load of the given section to the next one.
+     */
+    private synchronized void onLoadDone(String key) {
+        mSubmittedCount--;
+        mLoads.remove(key);
+        if (!mIsCancelled) {
+            submitPendingLoads();
+        }
+    }
+
+    /**
+     * Return the first page of the given section, or null when it isn't loaded
+     * or is too old to be served.
+     *
+     * @param section is the section, null means the overview.
+     */
+    public List<News> get(String section) {
+        Page page = mPages.get(keyOf(section));
+        if (page == null || System.currentTimeMillis() - page.loadedAt >= mTimeToLive) {
+            return null;
+        }
+        return page.newsList;
+    }
+
+    /**
+     * Save the first page of the given section, like when it was loaded some other way.
+     *
+     * @param section  is the section, null means the overview.
+     * @param newsList is the first page of the section.
+     */
+    public void put(String section, List<News> newsList) {
+        Page page = mPages.get(keyOf(section));
+        if (page != null && page.newsList == newsList) {
+            // The page served from here is shown, it is not loaded again.
+            return;
+        }
+        mPages.put(keyOf(section), new Page(newsList, System.currentTimeMillis()));
+    }
+
+    /**
+     * Stop every load, the running ones close their connection. The prefetcher can't be used
+     * anymore.
+     */
+    public synchronized void cancel() {
+        mIsCancelled = true;
+        for (Load load : mLoads.values()) {
+            load.cancellationToken.cancel();
+            if (load.future != null) {
+                // Drop it from the queue when it didn't start.
+                load.future.cancel(false);
+            }
+        }
+        mLoads.clear();
+        mPendingSections.clear();
+    }
+
+    private static String keyOf(String section) {
+        return section == null ? OVERVIEW_KEY : section;
+    }
+}
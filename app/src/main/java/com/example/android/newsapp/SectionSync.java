@@ -0,0 +1,146 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fetches the first page of several sections into the {@link NewsCache}, while the app is
+ * in the background, so opening the app or a section shows cached news without waiting.
+ * <p>
+ * The pages are fetched one after the other, a background sync has no reason to open
+ * several connections. A {@link Report} tells how old the cached first page of every
+ * section is, from the time it was saved in the cache.
+ */
+public class SectionSync {
+    private final SectionPrefetcher.PageSource mPageSource;
+    private final NewsCache mCache;
+    private final int mPageSize;
+
+    /**
+     * Create a new {@link SectionSync} object.
+     *
+     * @param pageSource fetches a first page and saves it in the cache, even when the cached
+     *                   one is still fresh.
+     * @param cache      is the cache the page source saves into.
+     * @param pageSize   is the number of news on the pages of the page source.
+     */
+    public SectionSync(SectionPrefetcher.PageSource pageSource, NewsCache cache, int pageSize) {
+        mPageSource = pageSource;
+        mCache = cache;
+        mPageSize = pageSize;
+    }
+
+    /**
+     * Fetch the first page of the given sections, until they are all fetched or the sync
+     * is cancelled. This is on a background thread.
+     *
+     * @param sections          are the sections, null means the overview.
+     * @param cancellationToken stops the sync, and cancels the request of the section being
+     *                          fetched.
+     * @return the report of the sync.
+     */
+    public Report sync(List<String> sections, CancellationToken cancellationToken) {
+        List<String> failedSections = new ArrayList<>();
+        for (String section : sections) {
+            if (cancellationToken.isCancelled()) {
+                break;
+            }
+            List<News> newsList = mPageSource.loadFirstPage(section, cancellationToken);
+            if (newsList == null || newsList.isEmpty()) {
+                failedSections.add(section);
+            }
+        }
+        return getReport(sections, failedSections);
+    }
+
+    /**
+     * Return how old the cached first page of the given sections is, without fetching them.
+     *
+     * @param sections are the sections, null means the overview.
+     */
+    public Report getReport(List<String> sections) {
+        return getReport(sections, Collections.<String>emptyList());
+    }
+
+    private Report getReport(List<String> sections, List<String> failedSections) {
+        long now = System.currentTimeMillis();
+        List<SectionState> states = new ArrayList<>(sections.size());
+        for (String section : sections) {
+            NewsCache.Entry entry = mCache.get(section, 1, mPageSize);
+            long ageMillis = entry == null ? -1 : Math.max(0, now - entry.savedAt);
+            states.add(new SectionState(section, ageMillis, failedSections.contains(section)));
+        }
+        return new Report(now, states);
+    }
+
+    /**
+     * The state of the cached first page of a section.
+     */
+    public static class SectionState {
+        /**
+         * Section of news, null means the overview.
+         */
+        public final String section;
+
+        /**
+         * How long ago in milliseconds the page was saved, -1 when it isn't cached.
+         */
+        public final long ageMillis;
+
+        /**
+         * Whether the last sync failed to fetch the page.
+         */
+        public final boolean hasFailed;
+
+        SectionState(String section, long ageMillis, boolean hasFailed) {
+            this.section = section;
+            this.ageMillis = ageMillis;
+            this.hasFailed = hasFailed;
+        }
+
+        @Override
+        public String toString() {
+            return (section == null ? "overview" : section) + "{age="
+                    + (ageMillis < 0 ? "none" : ageMillis / 1000 + "s")
+                    + (hasFailed ? ", failed" : "") + "}";
+        }
+    }
+
+    /**
+     * The state of the cached first page of every section, at a point in time.
+     */
+    public static class Report {
+        /**
+         * Time in milliseconds when the report was made.
+         */
+        public final long madeAt;
+
+        public final List<SectionState> sections;
+
+        Report(long madeAt, List<SectionState> sections) {
+            this.madeAt = madeAt;
+            this.sections = Collections.unmodifiableList(sections);
+        }
+
+        /**
+         * Return the age in milliseconds of the oldest cached page, -1 when a section has
+         * none.
+         */
+        public long getOldestAgeMillis() {
+            long oldest = 0;
+            for (SectionState state : sections) {
+                if (state.ageMillis < 0) {
+                    return -1;
+                }
+                oldest = Math.max(oldest, state.ageMillis);
+            }
+            return oldest;
+        }
+
+        @Override
+        public String toString() {
+            return "SyncReport" + sections;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.android.newsapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Receives the alarm of the periodic {@link SectionSync} below API level 21, and runs the
+ * sync when the device meets its constraints. A sync skipped for the constraints waits for
+ * the next alarm.
+ */
+public class SyncAlarmReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final Context appContext = context.getApplicationContext();
+        if (!SyncScheduler.areConstraintsMet(appContext)) {
+            return;
+        }
+        // Keep the receiver alive while the sync runs in the background.
+        final PendingResult result = goAsync();
+        LoadExecutor.getDefault().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SyncScheduler.sync(appContext, new CancellationToken());
+                } finally {
+                    result.finish();
+                }
+            }
+        }, LoadExecutor.PRIORITY_PREFETCH);
+    }
+}
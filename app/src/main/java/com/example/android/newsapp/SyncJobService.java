@@ -0,0 +1,49 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+
+/**
+ * The job of the {@link android.app.job.JobScheduler} that runs the {@link SectionSync},
+ * from API level 21. The job starts on the main thread, the sync runs on the
+ * {@link LoadExecutor} behind the loads of the app.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class SyncJobService extends JobService {
+    /**
+     * Stops the running sync when the job is stopped, null when none runs.
+     */
+    private CancellationToken mCancellationToken;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final CancellationToken cancellationToken = new CancellationToken();
+        mCancellationToken = cancellationToken;
+        LoadExecutor.getDefault().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SyncScheduler.sync(getApplicationContext(), cancellationToken);
+                } finally {
+                    // The next sync is the next period, even when some sections failed.
+                    jobFinished(params, false);
+                }
+            }
+        }, LoadExecutor.PRIORITY_PREFETCH);
+        // The job goes on in the background.
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints are not met anymore, the sync stops before the next section.
+        if (mCancellationToken != null) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
+        }
+        // Try again once the constraints are met.
+        return true;
+    }
+}
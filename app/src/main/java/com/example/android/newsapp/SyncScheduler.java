@@ -0,0 +1,185 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Resources;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Schedules the periodic {@link SectionSync} of the sections of the navigation drawer,
+ * with the interval and the constraints of res/values/sync.xml.
+ * <p>
+ * From API level 21 the sync is a job of the {@link JobScheduler}, which waits for the
+ * constraints and batches it with the work of other apps. Below, an inexact repeating
+ * alarm wakes the {@link SyncAlarmReceiver}, which checks the constraints itself.
+ */
+public class SyncScheduler {
+    /**
+     * Tag for the log messages.
+     */
+    private static final String LOG_TAG = SyncScheduler.class.getSimpleName();
+
+    /**
+     * ID of the sync job, unique in the app.
+     */
+    private static final int JOB_ID = 1;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link SyncScheduler}
+     * object.
+     */
+    private SyncScheduler() {
+    }
+
+    /**
+     * Schedule the periodic sync, unless it is already scheduled the same way, so opening
+     * the app doesn't push it back.
+     */
+    public static void schedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        Resources resources = appContext.getResources();
+        long intervalMillis = getIntervalMillis(resources);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleJob(appContext, intervalMillis,
+                    resources.getBoolean(R.bool.sync_requires_unmetered),
+                    resources.getBoolean(R.bool.sync_requires_charging));
+        } else {
+            scheduleAlarm(appContext, intervalMillis);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context, long intervalMillis,
+                                    boolean requiresUnmetered, boolean requiresCharging) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        int networkType = requiresUnmetered
+                ? JobInfo.NETWORK_TYPE_UNMETERED : JobInfo.NETWORK_TYPE_ANY;
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID && job.getIntervalMillis() == intervalMillis
+                    && job.getNetworkType() == networkType
+                    && job.isRequireCharging() == requiresCharging) {
+                return;
+            }
+        }
+        ComponentName service = new ComponentName(context, SyncJobService.class);
+        JobInfo job = new JobInfo.Builder(JOB_ID, service)
+                .setPeriodic(intervalMillis)
+                .setRequiredNetworkType(networkType)
+                .setRequiresCharging(requiresCharging)
+                // Keep syncing after the device restarts.
+                .setPersisted(true)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    private static void scheduleAlarm(Context context, long intervalMillis) {
+        Intent intent = new Intent(context, SyncAlarmReceiver.class);
+        if (PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_NO_CREATE) != null) {
+            return;
+        }
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        // An inexact alarm that doesn't wake the device up, it fires with the other ones.
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + intervalMillis, intervalMillis,
+                PendingIntent.getBroadcast(context, 0, intent, 0));
+    }
+
+    /**
+     * Return the interval in milliseconds between two syncs.
+     */
+    private static long getIntervalMillis(Resources resources) {
+        return resources.getInteger(R.integer.sync_interval_minutes) * 60 * 1000L;
+    }
+
+    /**
+     * Return whether the device meets the constraints of the sync: connected, on an
+     * unmetered network and charging when they are required.
+     */
+    static boolean areConstraintsMet(Context context) {
+        ConnectivityManager connMgr =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return false;
+        }
+        Resources resources = context.getResources();
+        if (resources.getBoolean(R.bool.sync_requires_unmetered)
+                && ConnectivityManagerCompat.isActiveNetworkMetered(connMgr)) {
+            return false;
+        }
+        if (resources.getBoolean(R.bool.sync_requires_charging)) {
+            // The battery status is a sticky broadcast, reading it registers nothing.
+            Intent battery = context.registerReceiver(null,
+                    new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        }
+        return true;
+    }
+
+    /**
+     * Fetch the first page of the sections of the navigation drawer into the cache, and log
+     * the report. This is on a background thread.
+     */
+    static SectionSync.Report sync(Context context, CancellationToken cancellationToken) {
+        SectionSync.Report report = createSectionSync(context.getApplicationContext())
+                .sync(MainActivity.DRAWER_SECTIONS, cancellationToken);
+        Log.i(LOG_TAG, report.toString());
+        return report;
+    }
+
+    /**
+     * Return how old the cached first page of every section of the navigation drawer is.
+     */
+    public static SectionSync.Report getReport(Context context) {
+        return createSectionSync(context.getApplicationContext())
+                .getReport(MainActivity.DRAWER_SECTIONS);
+    }
+
+    /**
+     * Return a {@link SectionSync} of pages as big as the ones the app asks for on the current
+     * network, so it finds them in the cache. The synced pages stay fresh until the next sync,
+     * instead of being revalidated a few minutes after it. The sync fetches them even when
+     * they are still fresh, since it can run before a whole interval went by.
+     */
+    private static SectionSync createSectionSync(Context context) {
+        ConnectivityManager connMgr =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        boolean isMetered = ConnectivityManagerCompat.isActiveNetworkMetered(connMgr);
+        final int pageSize = QueryUtils.getPageSizePolicy().getPageSize(isMetered);
+        final NewsCache cache = NewsCache.getInstance(context)
+                .withTimeToLive(getIntervalMillis(context.getResources()));
+        final ArticleStore articleStore = ArticleStore.getInstance(context);
+        return new SectionSync(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section,
+                                            CancellationToken cancellationToken) {
+                GuardianRequest request = new GuardianRequest.Builder()
+                        .baseUrl(BuildConfig.NEWS_API_BASE_URL)
+                        .section(section)
+                        .page(1)
+                        .pageSize(pageSize)
+                        .showFields(GuardianRequest.FIELD_THUMBNAIL)
+                        .orderBy(GuardianRequest.ORDER_BY_NEWEST)
+                        .build();
+                return NewsLoader.loadPage(cache, articleStore, request, true,
+                        cancellationToken);
+            }
+        }, cache, pageSize);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.android.newsapp;
+
+/**
+ * Helper methods that convert the publication time of the Guardian API.
+ * <p>
+ * The API always returns the time in UTC, in the ISO-8601 format "yyyy-MM-dd'T'HH:mm:ss'Z'".
+ * Parsing it by hand is much cheaper than with a {@link java.text.SimpleDateFormat},
+ * which isn't thread safe either.
+ */
+public final class TimeUtils {
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TimeUtils} object.
+     */
+    private TimeUtils() {
+    }
+
+    /**
+     * Return the milliseconds since the epoch of the given ISO-8601 time,
+     * or -1 when it isn't in the "yyyy-MM-dd'T'HH:mm:ss'Z'" format.
+     */
+    public static long parseIsoTime(String time) {
+        if (time == null || time.length() != 20 || time.charAt(4) != '-' || time.charAt(7) != '-'
+                || time.charAt(10) != 'T' || time.charAt(13) != ':' || time.charAt(16) != ':'
+                || time.charAt(19) != 'Z') {
+            return -1;
+        }
+        int year = parseDigits(time, 0, 4);
+        int month = parseDigits(time, 5, 7);
+        int day = parseDigits(time, 8, 10);
+        int hour = parseDigits(time, 11, 13);
+        int minute = parseDigits(time, 14, 16);
+        int second = parseDigits(time, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+        long seconds = daysFromCivil(year, month, day) * SECONDS_PER_DAY
+                + hour * 3600 + minute * 60 + second;
+        return seconds * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Return the given time in milliseconds since the epoch in the "yyyy-MM-dd HH:mm:ss"
+     * format, in UTC like the API.
+     */
+    public static String formatDisplayTime(long timeInMillis) {
+        return new String(format(timeInMillis, ' ', 19));
+    }
+
+    /**
+     * Return the given time in milliseconds since the epoch in the ISO-8601 format of the API,
+     * "yyyy-MM-dd'T'HH:mm:ss'Z'". The milliseconds are dropped.
+     */
+    public static String formatIsoTime(long timeInMillis) {
+        char[] out = format(timeInMillis, 'T', 20);
+        out[19] = 'Z';
+        return new String(out);
+    }
+
+    /**
+     * Return the characters of the given time in the "yyyy-MM-dd HH:mm:ss" format, with the
+     * given separator between the date and the time, in an array of the given length.
+     */
+    private static char[] format(long timeInMillis, char separator, int length) {
+        long seconds = floorDiv(timeInMillis, MILLIS_PER_SECOND);
+        long days = floorDiv(seconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) (seconds - days * SECONDS_PER_DAY);
+
+        // Convert the days since the epoch to a civil date, see daysFromCivil().
+        long z = days + 719468;
+        long era = floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] out = new char[length];
+        appendDigits(out, 0, year, 4);
+        out[4] = '-';
+        appendDigits(out, 5, month, 2);
+        out[7] = '-';
+        appendDigits(out, 8, day, 2);
+        out[10] = separator;
+        appendDigits(out, 11, secondOfDay / 3600, 2);
+        out[13] = ':';
+        appendDigits(out, 14, secondOfDay / 60 % 60, 2);
+        out[16] = ':';
+        appendDigits(out, 17, secondOfDay % 60, 2);
+        return out;
+    }
+
+    /**
+     * Return the number of days since 1970-01-01 of the given civil date,
+     * with the algorithm of Howard Hinnant's "chrono-Compatible Low-Level Date Algorithms".
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Return the number made of the digits between start and end, or -1 if one is not a digit.
+     */
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Write the given value with the given number of digits, padded with zeros.
+     */
+    private static void appendDigits(char[] out, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Same as Math.floorDiv(), which isn't available on older Android versions.
+     */
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the bytes transferred by the news requests, and of the bytes that
+ * gzip compression and 304 Not Modified responses saved.
+ */
+public class TransferStats {
+    /**
+     * Number of requests that got a response body.
+     */
+    private final AtomicLong mResponseCount = new AtomicLong();
+
+    /**
+     * Number of requests answered with 304 Not Modified.
+     */
+    private final AtomicLong mNotModifiedCount = new AtomicLong();
+
+    /**
+     * Bytes received on the wire, before decompression.
+     */
+    private final AtomicLong mBytesReceived = new AtomicLong();
+
+    /**
+     * Bytes of the decoded response bodies.
+     */
+    private final AtomicLong mBytesDecoded = new AtomicLong();
+
+    /**
+     * Bytes that did not need to be transferred.
+     */
+    private final AtomicLong mBytesSaved = new AtomicLong();
+
+    /**
+     * Record a response with a body.
+     *
+     * @param bytesReceived is the size of the body on the wire.
+     * @param bytesDecoded  is the size of the body after decompression.
+     */
+    public void recordResponse(long bytesReceived, long bytesDecoded) {
+        mResponseCount.incrementAndGet();
+        mBytesReceived.addAndGet(bytesReceived);
+        mBytesDecoded.addAndGet(bytesDecoded);
+        mBytesSaved.addAndGet(Math.max(0, bytesDecoded - bytesReceived));
+    }
+
+    /**
+     * Record a 304 Not Modified response.
+     *
+     * @param bytesSaved is the size of the decoded body that was reused.
+     */
+    public void recordNotModified(long bytesSaved) {
+        mNotModifiedCount.incrementAndGet();
+        mBytesSaved.addAndGet(bytesSaved);
+    }
+
+    public long getResponseCount() {
+        return mResponseCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    public long getBytesReceived() {
+        return mBytesReceived.get();
+    }
+
+    public long getBytesDecoded() {
+        return mBytesDecoded.get();
+    }
+
+    public long getBytesSaved() {
+        return mBytesSaved.get();
+    }
+
+    /**
+     * Return the average bytes saved by each request, or zero when there was no request.
+     */
+    public long getBytesSavedPerRequest() {
+        long requestCount = mResponseCount.get() + mNotModifiedCount.get();
+        return requestCount == 0 ? 0 : mBytesSaved.get() / requestCount;
+    }
+
+    /**
+     * Set every counter back to zero.
+     */
+    public void reset() {
+        mResponseCount.set(0);
+        mNotModifiedCount.set(0);
+        mBytesReceived.set(0);
+        mBytesDecoded.set(0);
+        mBytesSaved.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "TransferStats{responses=" + getResponseCount()
+                + ", notModified=" + getNotModifiedCount()
+                + ", bytesReceived=" + getBytesReceived()
+                + ", bytesDecoded=" + getBytesDecoded()
+                + ", bytesSaved=" + getBytesSaved() + "}";
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opens_afterFailuresInARow() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 60000);
+
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void letsOneTrialRequest_afterTheOpenDuration() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.recordFailure();
+
+        Thread.sleep(100);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+        circuitBreaker.recordSuccess();
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void opensAgain_whenTheTrialRequestFails() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 50);
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        Thread.sleep(100);
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.recordFailure();
+
+        assertFalse(circuitBreaker.allowRequest());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local unit tests of {@link GuardianRequest}.
+ */
+public class GuardianRequestTest {
+
+    @Test
+    public void toUrl_ofTheDefaultRequest_onlySendsThePageAndTheKey() {
+        GuardianRequest request = new GuardianRequest.Builder().orderBy(null).build();
+
+        assertEquals("https://content.guardianapis.com/search?page=1&format=json&api-key=test",
+                request.toUrl());
+    }
+
+    @Test
+    public void toUrl_sendsEveryParameter() {
+        GuardianRequest request = new GuardianRequest.Builder()
+                .section("sport")
+                .page(3)
+                .pageSize(30)
+                .showFields("thumbnail", "trailText")
+                .orderBy(GuardianRequest.ORDER_BY_NEWEST)
+                .build();
+
+        HttpUrl url = HttpUrl.get(request.toUrl());
+        assertEquals("sport", url.queryParameter("section"));
+        assertEquals("3", url.queryParameter("page"));
+        assertEquals("30", url.queryParameter("page-size"));
+        assertEquals("thumbnail,trailText", url.queryParameter("show-fields"));
+        assertEquals("newest", url.queryParameter("order-by"));
+    }
+
+    @Test
+    public void withPage_keepsTheOtherParameters() {
+        GuardianRequest request = new GuardianRequest.Builder()
+                .section("culture")
+                .pageSize(20)
+                .build();
+
+        GuardianRequest nextPage = request.withPage(2);
+
+        assertEquals(2, nextPage.getPage());
+        assertEquals("culture", nextPage.getSection());
+        assertEquals(20, nextPage.getPageSize());
+        assertEquals(1, request.getPage());
+    }
+
+    @Test
+    public void toUrl_ofTheOverview_hasNoSection() {
+        HttpUrl url = HttpUrl.get(new GuardianRequest.Builder().build().toUrl());
+
+        assertNull(url.queryParameter("section"));
+        assertNull(url.queryParameter("page-size"));
+        assertNull(url.queryParameter("show-fields"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSize_overTheLimitOfTheApi_throws() {
+        new GuardianRequest.Builder().pageSize(GuardianRequest.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void page_zero_throws() {
+        new GuardianRequest.Builder().page(0);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link HeadlineIndex}.
+ */
+public class HeadlineIndexTest {
+
+    private static final News MOON = new News(
+            "Super blue blood moon: rare lunar event lights up skies around the world",
+            "2018-01-31T10:00:00Z", "https://www.theguardian.com/science/1");
+    private static final News MOONLIGHT = new News(
+            "Moonlight review – a tender coming-of-age story",
+            "2018-01-30T10:00:00Z", "https://www.theguardian.com/film/2");
+    private static final News FOOTBALL = new News(
+            "Premier League: Chelsea v Bournemouth – live!",
+            "2018-01-31T19:45:00Z", "https://www.theguardian.com/football/3");
+    private static final News CAFE = new News(
+            "The café where the world's best coffee is made",
+            "2018-01-29T08:00:00Z", "https://www.theguardian.com/food/4");
+
+    private HeadlineIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new HeadlineIndex();
+        mIndex.addAll(Arrays.asList(MOON, MOONLIGHT, FOOTBALL, CAFE));
+    }
+
+    @Test
+    public void tokenize_lowersCaseAndDropsAccentsAndPunctuation() {
+        assertEquals(Arrays.asList("the", "cafe", "where", "the", "world", "s", "best"),
+                HeadlineIndex.tokenize("The café where the world's best"));
+        assertEquals(Collections.<String>emptyList(), HeadlineIndex.tokenize(" – !"));
+    }
+
+    @Test
+    public void search_ranksWholeWordsBeforePrefixes() {
+        assertEquals(urlsOf(MOON, MOONLIGHT), mIndex.search("moon", 10));
+    }
+
+    @Test
+    public void search_matchesEveryWord_asPrefixes() {
+        assertEquals(urlsOf(FOOTBALL), mIndex.search("prem leag", 10));
+        assertEquals(urlsOf(MOON), mIndex.search("lunar moo", 10));
+        assertTrue(mIndex.search("lunar chelsea", 10).isEmpty());
+    }
+
+    @Test
+    public void search_ranksNewerFirst_whenScoresAreEqual() {
+        assertEquals(urlsOf(MOON, CAFE), mIndex.search("world", 10));
+    }
+
+    @Test
+    public void search_ignoresAccentsAndCase() {
+        assertEquals(urlsOf(CAFE), mIndex.search("CAFÉ", 10));
+        assertEquals(urlsOf(CAFE), mIndex.search("cafe", 10));
+    }
+
+    @Test
+    public void search_respectsLimit() {
+        assertEquals(urlsOf(MOON), mIndex.search("moon", 1));
+        assertTrue(mIndex.search("", 10).isEmpty());
+    }
+
+    @Test
+    public void addAll_indexesNewNews_andSkipsKnownOnes() {
+        News eclipse = new News("Lunar eclipse seen from Sydney", "2018-02-01T10:00:00Z",
+                "https://www.theguardian.com/science/5");
+
+        mIndex.addAll(Arrays.asList(MOON, eclipse));
+
+        assertEquals(5, mIndex.size());
+        List<String> results = mIndex.search("lunar", 10);
+        assertEquals(urlsOf(eclipse, MOON), results);
+    }
+
+    @Test
+    public void addAll_indexesLargeLists_inBatches() {
+        List<News> newsList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            newsList.add(new News("Story " + i, "2018-02-01T10:00:00Z",
+                    "https://www.theguardian.com/news/" + i));
+        }
+
+        mIndex.addAll(newsList);
+
+        assertEquals(1004, mIndex.size());
+        assertEquals(urlsOf(newsList.get(999)), mIndex.search("story 999", 10));
+    }
+
+    private static List<String> urlsOf(News... newsList) {
+        List<String> urls = new ArrayList<>();
+        for (News news : newsList) {
+            urls.add(news.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Local unit tests of the on-disk {@link ImageDiskCache}.
+ */
+public class ImageDiskCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsSavedImage() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(folder.newFolder(), 1024);
+        byte[] image = createImage(100, 1);
+
+        cache.put("https://media.guim.co.uk/1/500.jpg", image);
+
+        assertArrayEquals(image, cache.get("https://media.guim.co.uk/1/500.jpg"));
+        assertNull(cache.get("https://media.guim.co.uk/2/500.jpg"));
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedImages() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(folder.newFolder(), 300);
+        cache.put("a", createImage(100, 1));
+        cache.put("b", createImage(100, 2));
+        cache.put("c", createImage(100, 3));
+        // Reading "a" makes "b" the least recently used.
+        cache.get("a");
+
+        cache.put("d", createImage(100, 4));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(300, cache.size());
+    }
+
+    @Test
+    public void put_replacesImageOfTheSameUrl() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(folder.newFolder(), 1024);
+        cache.put("a", createImage(100, 1));
+
+        cache.put("a", createImage(50, 2));
+
+        assertArrayEquals(createImage(50, 2), cache.get("a"));
+        assertEquals(50, cache.size());
+    }
+
+    @Test
+    public void put_skipsImageLargerThanTheCache() throws Exception {
+        ImageDiskCache cache = new ImageDiskCache(folder.newFolder(), 100);
+
+        cache.put("a", createImage(101, 1));
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void get_findsImagesOfAPreviousProcess() throws Exception {
+        File directory = folder.newFolder();
+        new ImageDiskCache(directory, 1024).put("a", createImage(100, 1));
+
+        ImageDiskCache cache = new ImageDiskCache(directory, 1024);
+
+        assertEquals(100, cache.size());
+        assertArrayEquals(createImage(100, 1), cache.get("a"));
+    }
+
+    private static byte[] createImage(int size, int seed) {
+        byte[] image = new byte[size];
+        for (int i = 0; i < size; i++) {
+            image[i] = (byte) (i * seed);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests of the downsampling of the {@link ImageLoader}.
+ */
+public class ImageLoaderTest {
+
+    @Test
+    public void calculateInSampleSize_keepsTheImageLargerThanTheView() {
+        // A thumbnail of the API for a row of 240x144 pixels.
+        assertEquals(2, ImageLoader.calculateInSampleSize(500, 300, 240, 144));
+        assertEquals(4, ImageLoader.calculateInSampleSize(1000, 600, 240, 144));
+        assertEquals(1, ImageLoader.calculateInSampleSize(500, 300, 300, 180));
+    }
+
+    @Test
+    public void calculateInSampleSize_coversBothSidesOfTheView() {
+        // A wide image is not downsampled under the height of the view.
+        assertEquals(2, ImageLoader.calculateInSampleSize(2000, 300, 240, 144));
+    }
+
+    @Test
+    public void calculateInSampleSize_neverUpsamples() {
+        assertEquals(1, ImageLoader.calculateInSampleSize(100, 60, 240, 144));
+        assertEquals(1, ImageLoader.calculateInSampleSize(500, 300, 0, 0));
+    }
+}
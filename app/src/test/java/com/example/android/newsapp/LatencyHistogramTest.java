@@ -0,0 +1,79 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketOf_andLowerBoundOf_agree() {
+        for (long micros = 0; micros < 100000; micros++) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue("micros " + micros, LatencyHistogram.lowerBoundOf(bucket) <= micros);
+            assertTrue("micros " + micros, LatencyHistogram.lowerBoundOf(bucket + 1) > micros);
+        }
+    }
+
+    @Test
+    public void getPercentileMicros_isWithinAQuarter() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // One to a thousand milliseconds.
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMeanMicros());
+        assertEquals(1000000, histogram.getMaxMicros());
+        assertWithinAQuarter(500000, histogram.getPercentileMicros(50));
+        assertWithinAQuarter(990000, histogram.getPercentileMicros(99));
+        assertEquals(1000000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void reset_forgetsEveryLatency() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(50));
+        assertEquals(0, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void record_fromManyThreads_losesNothing() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.record(j * 1000L);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(9999, histogram.getMaxMicros());
+    }
+
+    private static void assertWithinAQuarter(long expected, long actual) {
+        assertTrue("expected " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 5 / 4);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the {@link ListSnapshot} saved to restore the list.
+ */
+public class ListSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void read_returnsWrittenSnapshot() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot");
+        List<News> newsList = createNewsList("sport", 30);
+        ListSnapshot snapshot = new ListSnapshot(42, "sport", 3, 10, 17, -25, true, newsList);
+
+        assertTrue(snapshot.write(file));
+        ListSnapshot restored = ListSnapshot.read(file, 42);
+
+        assertNotNull(restored);
+        assertEquals("sport", restored.section);
+        assertEquals(3, restored.lastPage);
+        assertEquals(10, restored.pageSize);
+        assertEquals(17, restored.firstVisiblePosition);
+        assertEquals(-25, restored.scrollOffset);
+        assertTrue(restored.isOffline);
+        assertEquals(newsList, new ArrayList<>(restored.newsList));
+    }
+
+    @Test
+    public void read_keepsOverviewSection() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot");
+        new ListSnapshot(1, null, 1, 20, 0, 0, false, createNewsList("news", 20)).write(file);
+
+        ListSnapshot restored = ListSnapshot.read(file, 1);
+
+        assertNotNull(restored);
+        assertNull(restored.section);
+        assertFalse(restored.isOffline);
+    }
+
+    @Test
+    public void read_ignoresOtherSnapshot() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot");
+        new ListSnapshot(1, "news", 1, 10, 0, 0, false, createNewsList("news", 10)).write(file);
+
+        assertNull(ListSnapshot.read(file, 2));
+        assertNull(ListSnapshot.read(new File(folder.getRoot(), "missing"), 1));
+    }
+
+    @Test
+    public void read_ignoresTruncatedFile() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot");
+        new ListSnapshot(1, "news", 1, 10, 0, 0, false, createNewsList("news", 10)).write(file);
+        RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+        truncated.setLength(20);
+        truncated.close();
+
+        assertNull(ListSnapshot.read(file, 1));
+    }
+
+    @Test
+    public void write_keepsLongListOfSpilledPages() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot");
+        NewsPagePool pool = new NewsPagePool(new File(folder.getRoot(), "spill"), 100);
+        List<News> newsList = createNewsList("world", 1000);
+        PagedNewsList pagedList = new PagedNewsList(pool);
+        for (int i = 0; i < newsList.size(); i += 10) {
+            pagedList = pagedList.append(newsList.subList(i, i + 10));
+        }
+
+        assertTrue(new ListSnapshot(7, "world", 100, 10, 990, 0, false, pagedList).write(file));
+        ListSnapshot restored = ListSnapshot.read(file, 7);
+        pool.close();
+
+        assertNotNull(restored);
+        assertEquals(newsList, new ArrayList<>(restored.newsList));
+    }
+
+    private static List<News> createNewsList(String section, int size) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            newsList.add(new News("Headline " + i + " about " + section,
+                    "2018-01-31T10:" + (10 + i % 50) + ":00Z",
+                    "https://www.theguardian.com/" + section + "/2018/jan/31/story-" + i));
+        }
+        return newsList;
+    }
+}
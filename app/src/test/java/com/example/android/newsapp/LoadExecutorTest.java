@@ -0,0 +1,88 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link LoadExecutor}.
+ */
+public class LoadExecutorTest {
+
+    @Test
+    public void submit_runsWaitingLoads_byPriorityThenInOrder() throws Exception {
+        LoadExecutor executor = new LoadExecutor(1);
+        final List<String> runOrder = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+
+        // Keep the only thread busy, so the next loads wait in the queue.
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, LoadExecutor.PRIORITY_LOAD);
+        executor.submit(record("prefetch 1", runOrder, done), LoadExecutor.PRIORITY_PREFETCH);
+        executor.submit(record("prefetch 2", runOrder, done), LoadExecutor.PRIORITY_PREFETCH);
+        executor.submit(record("load", runOrder, done), LoadExecutor.PRIORITY_LOAD);
+        executor.submit(record("refresh 1", runOrder, done), LoadExecutor.PRIORITY_REFRESH);
+        executor.submit(record("refresh 2", runOrder, done), LoadExecutor.PRIORITY_REFRESH);
+        blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("refresh 1", "refresh 2", "load", "prefetch 1", "prefetch 2"),
+                runOrder);
+    }
+
+    @Test
+    public void submit_skipsLoads_cancelledWhileWaiting() throws Exception {
+        LoadExecutor executor = new LoadExecutor(1);
+        final List<String> runOrder = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, LoadExecutor.PRIORITY_LOAD);
+        Future<?> cancelled = executor.submit(record("cancelled", runOrder, done),
+                LoadExecutor.PRIORITY_REFRESH);
+        executor.submit(record("prefetch", runOrder, done), LoadExecutor.PRIORITY_PREFETCH);
+        cancelled.cancel(false);
+        blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("prefetch"), runOrder);
+    }
+
+    private static Runnable record(final String name, final List<String> runOrder,
+                                   final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runOrder.add(name);
+                done.countDown();
+            }
+        };
+    }
+}
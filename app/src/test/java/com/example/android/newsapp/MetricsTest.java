@@ -0,0 +1,114 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link Metrics} and its {@link InMemoryMetricsExporter}.
+ */
+public class MetricsTest {
+
+    @Test
+    public void disabledMetrics_recordNothing() {
+        Metrics metrics = new Metrics();
+
+        long start = metrics.startTimer();
+        metrics.stopTimer(Metrics.STAGE_PARSE, start);
+        metrics.recordMillis(Metrics.STAGE_CONNECT, 100);
+        metrics.increment(Metrics.COUNTER_ERRORS);
+
+        assertEquals(0, start);
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.getStage(Metrics.STAGE_PARSE).count);
+        assertEquals(0, snapshot.getStage(Metrics.STAGE_CONNECT).count);
+        assertEquals(0, snapshot.getCounter(Metrics.COUNTER_ERRORS));
+    }
+
+    @Test
+    public void enabledMetrics_recordStagesAndCounters() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+
+        metrics.stopTimer(Metrics.STAGE_PARSE, metrics.startTimer());
+        metrics.recordMillis(Metrics.STAGE_CONNECT, 100);
+        metrics.add(Metrics.COUNTER_BYTES_RECEIVED, 2048);
+        metrics.increment(Metrics.COUNTER_CACHE_HITS);
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getStage(Metrics.STAGE_PARSE).count);
+        assertEquals("connect", snapshot.getStage(Metrics.STAGE_CONNECT).name);
+        assertEquals(100000, snapshot.getStage(Metrics.STAGE_CONNECT).maxMicros);
+        assertEquals(2048, snapshot.getCounter(Metrics.COUNTER_BYTES_RECEIVED));
+        assertEquals(1, snapshot.getCounter(Metrics.COUNTER_CACHE_HITS));
+        assertEquals("cacheHits", snapshot.getCounterName(Metrics.COUNTER_CACHE_HITS));
+    }
+
+    @Test
+    public void timerStartedWhileDisabled_recordsNothing() {
+        Metrics metrics = new Metrics();
+
+        long start = metrics.startTimer();
+        metrics.setEnabled(true);
+        metrics.stopTimer(Metrics.STAGE_DIFF, start);
+
+        assertEquals(0, metrics.snapshot().getStage(Metrics.STAGE_DIFF).count);
+    }
+
+    @Test
+    public void snapshot_tellsTheStagesOverBudget() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        metrics.setBudget(Metrics.STAGE_DOWNLOAD, 100);
+        metrics.setBudget(Metrics.STAGE_CONNECT, 100);
+
+        for (int i = 0; i < 10; i++) {
+            metrics.recordMillis(Metrics.STAGE_DOWNLOAD, 500);
+            metrics.recordMillis(Metrics.STAGE_CONNECT, 50);
+        }
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertTrue(snapshot.getStage(Metrics.STAGE_DOWNLOAD).isOverBudget());
+        assertFalse(snapshot.getStage(Metrics.STAGE_CONNECT).isOverBudget());
+        // Without a budget, a stage is never over it.
+        assertFalse(snapshot.getStage(Metrics.STAGE_BIND).isOverBudget());
+    }
+
+    @Test
+    public void reset_keepsTheBudgets() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        metrics.setBudget(Metrics.STAGE_BIND, 1);
+        metrics.recordMillis(Metrics.STAGE_BIND, 5);
+        metrics.increment(Metrics.COUNTER_ERRORS);
+
+        metrics.reset();
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.getStage(Metrics.STAGE_BIND).count);
+        assertEquals(1000, snapshot.getStage(Metrics.STAGE_BIND).budgetMicros);
+        assertEquals(0, snapshot.getCounter(Metrics.COUNTER_ERRORS));
+    }
+
+    @Test
+    public void inMemoryExporter_keepsTheLatestSnapshots() {
+        Metrics metrics = new Metrics();
+        metrics.setEnabled(true);
+        InMemoryMetricsExporter exporter = new InMemoryMetricsExporter(2);
+        assertNull(exporter.getLatest());
+
+        for (int i = 0; i < 3; i++) {
+            metrics.increment(Metrics.COUNTER_CACHE_MISSES);
+            metrics.export(exporter);
+        }
+
+        assertEquals(2, exporter.getSnapshots().size());
+        assertEquals(2, exporter.getSnapshots().get(0).getCounter(Metrics.COUNTER_CACHE_MISSES));
+        assertSame(exporter.getSnapshots().get(1), exporter.getLatest());
+        assertEquals(3, exporter.getLatest().getCounter(Metrics.COUNTER_CACHE_MISSES));
+    }
+}
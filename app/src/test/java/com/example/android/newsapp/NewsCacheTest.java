@@ -0,0 +1,104 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the on-disk {@link NewsCache}.
+ */
+public class NewsCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsSavedPage() throws Exception {
+        NewsCache cache = new NewsCache(folder.newFolder(), 60000, 1024 * 1024);
+        List<News> newsList = createNewsList("sport", 10);
+
+        cache.put("sport", 2, 10, newsList);
+        NewsCache.Entry entry = cache.get("sport", 2, 10);
+
+        assertNotNull(entry);
+        assertTrue(entry.isFresh);
+        assertEquals(newsList, entry.newsList);
+        assertNull(cache.get("sport", 1, 10));
+        assertNull(cache.get(null, 2, 10));
+    }
+
+    @Test
+    public void get_missesPage_ofAnotherPageSize() throws Exception {
+        NewsCache cache = new NewsCache(folder.newFolder(), 60000, 1024 * 1024);
+
+        cache.put("sport", 1, 10, createNewsList("sport", 10));
+
+        assertNull(cache.get("sport", 1, 20));
+        assertNotNull(cache.get("sport", 1, 10));
+    }
+
+    @Test
+    public void get_marksOldPageAsStale() throws Exception {
+        NewsCache cache = new NewsCache(folder.newFolder(), 0, 1024 * 1024);
+
+        cache.put(null, 1, 10, createNewsList("overview", 10));
+        NewsCache.Entry entry = cache.get(null, 1, 10);
+
+        assertNotNull(entry);
+        assertFalse(entry.isFresh);
+        assertEquals(10, entry.newsList.size());
+    }
+
+    @Test
+    public void get_keepsTheTimeToLive_ofTheCacheThatSavedThePage() throws Exception {
+        NewsCache cache = new NewsCache(folder.newFolder(), 0, 1024 * 1024);
+        NewsCache syncCache = cache.withTimeToLive(60000);
+
+        syncCache.put("sport", 1, 10, createNewsList("sport", 10));
+        cache.put("news", 1, 10, createNewsList("news", 10));
+
+        assertTrue(cache.get("sport", 1, 10).isFresh);
+        assertFalse(syncCache.get("news", 1, 10).isFresh);
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedPages() throws Exception {
+        File directory = folder.newFolder();
+        NewsCache cache = new NewsCache(directory, 60000, Long.MAX_VALUE);
+        cache.put("news", 1, 10, createNewsList("news", 10));
+        long fileSize = new File(directory, "news_10_1").length();
+
+        // Leave room for two pages only.
+        cache = new NewsCache(directory, 60000, 2 * fileSize);
+        cache.put("news", 2, 10, createNewsList("news", 10));
+        Thread.sleep(20);
+        // Use the first page, so the second one becomes the least recently used.
+        assertNotNull(cache.get("news", 1, 10));
+        Thread.sleep(20);
+        cache.put("news", 3, 10, createNewsList("news", 10));
+
+        assertNotNull(cache.get("news", 1, 10));
+        assertNull(cache.get("news", 2, 10));
+        assertNotNull(cache.get("news", 3, 10));
+    }
+
+    private static List<News> createNewsList(String section, int size) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            newsList.add(new News("Headline " + i + " about " + section,
+                    "2018-01-31T10:" + (10 + i) + ":00Z",
+                    "https://www.theguardian.com/" + section + "/2018/jan/31/story-" + i));
+        }
+        return newsList;
+    }
+}
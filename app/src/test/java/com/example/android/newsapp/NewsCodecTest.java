@@ -0,0 +1,107 @@
+package com.example.android.newsapp;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the binary format of {@link NewsCodec}.
+ */
+public class NewsCodecTest {
+
+    @Test
+    public void decode_returnsTheEncodedNews() {
+        List<News> newsList = Arrays.asList(
+                new News("Super blue blood moon lights up skies", "2018-01-31T10:24:56Z",
+                        "https://www.theguardian.com/world/2018/jan/31/super-blue-blood-moon"),
+                // An older news, its time is before the base time.
+                new News("Wozniacki’s long wait finally ends", "2018-01-30T09:15:40Z",
+                        "https://www.theguardian.com/sport/2018/jan/30/wozniacki"),
+                // A time in another format is kept as it is.
+                new News("Ünïcödé headline", "yesterday", "https://www.theguardian.com"),
+                new News("", "2018-01-31T10:24:56Z", "no-url"),
+                new News("With a thumbnail", "2018-01-31T08:00:00Z",
+                        "https://www.theguardian.com/sport/2018/jan/31/six-nations",
+                        "https://media.guim.co.uk/1000/500.jpg"));
+
+        byte[] bytes = NewsCodec.encode(newsList);
+
+        assertEquals(newsList, NewsCodec.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void decode_anEmptyPage() {
+        byte[] bytes = NewsCodec.encode(Collections.<News>emptyList());
+
+        assertEquals(0, NewsCodec.decode(ByteBuffer.wrap(bytes)).size());
+    }
+
+    @Test
+    public void view_decodesEachNewsOnItsOwn_fromADirectBuffer() throws Exception {
+        List<News> newsList = readRecordedNews();
+        byte[] bytes = NewsCodec.encode(newsList);
+        // Like a memory-mapped file, the buffer has no array.
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+        buffer.put(new byte[]{7, 7}).put(bytes).flip();
+        buffer.position(2);
+
+        NewsCodec.PageView view = NewsCodec.view(buffer);
+
+        assertEquals(newsList.size(), view.size());
+        for (int i = newsList.size() - 1; i >= 0; i--) {
+            assertEquals(newsList.get(i), view.get(i));
+        }
+        // The view reads the buffer without moving it.
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void encode_isMuchSmallerThanJson() throws Exception {
+        List<News> newsList = readRecordedNews();
+        JSONArray json = new JSONArray();
+        for (News news : newsList) {
+            json.put(new JSONObject()
+                    .put("webTitle", news.getTitle())
+                    .put("webPublicationDate", news.getTime())
+                    .put("webUrl", news.getUrl()));
+        }
+
+        int binarySize = NewsCodec.encode(newsList).length;
+        int jsonSize = json.toString().getBytes("UTF-8").length;
+
+        // Even against JSON of only the three fields the app reads.
+        assertTrue(binarySize + " bytes, JSON " + jsonSize, binarySize < jsonSize * 3 / 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_anotherFormat_throws() {
+        NewsCodec.decode(ByteBuffer.wrap("{\"response\":{}}".getBytes()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_aTruncatedPage_throws() throws Exception {
+        byte[] bytes = NewsCodec.encode(readRecordedNews());
+
+        NewsCodec.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length / 2)));
+    }
+
+    private static List<News> readRecordedNews() throws Exception {
+        InputStream inputStream = NewsCodecTest.class.getClassLoader()
+                .getResourceAsStream("guardian_overview_page1.json");
+        try {
+            return new ArrayList<>(QueryUtils.extractFeatureFromStream(inputStream));
+        } finally {
+            inputStream.close();
+        }
+    }
+}
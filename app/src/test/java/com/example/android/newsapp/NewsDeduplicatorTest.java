@@ -0,0 +1,99 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link NewsDeduplicator}.
+ */
+public class NewsDeduplicatorTest {
+
+    @Test
+    public void filter_dropsTheNewsOfPreviousPages() {
+        NewsDeduplicator deduplicator = new NewsDeduplicator();
+        deduplicator.addAll(createNewsList(0, 10));
+
+        // Two stories were published since page 1, which pushed its last two onto page 2.
+        List<News> page = deduplicator.filter(createNewsList(8, 18));
+
+        assertEquals(createNewsList(10, 18), page);
+        // The set only changes when the page is added.
+        assertFalse(deduplicator.contains(createNews(12).getUrl()));
+        deduplicator.addAll(page);
+        assertTrue(deduplicator.contains(createNews(12).getUrl()));
+        assertEquals(18, deduplicator.size());
+    }
+
+    @Test
+    public void filter_returnsTheSameList_withoutRepeats() {
+        NewsDeduplicator deduplicator = new NewsDeduplicator();
+        deduplicator.addAll(createNewsList(0, 10));
+        List<News> page = createNewsList(10, 20);
+
+        assertSame(page, deduplicator.filter(page));
+    }
+
+    @Test
+    public void filter_dropsRepeatsWithinTheList() {
+        List<News> newsList = Arrays.asList(createNews(1), createNews(2), createNews(1));
+
+        assertEquals(Arrays.asList(createNews(1), createNews(2)),
+                new NewsDeduplicator().filter(newsList));
+    }
+
+    @Test
+    public void addAll_keepsEveryUrl_acrossResizes() {
+        NewsDeduplicator deduplicator = new NewsDeduplicator();
+        List<News> newsList = createNewsList(0, 5000);
+
+        deduplicator.addAll(newsList);
+        deduplicator.addAll(newsList);
+
+        assertEquals(5000, deduplicator.size());
+        for (News news : newsList) {
+            assertTrue(deduplicator.contains(news.getUrl()));
+        }
+        assertFalse(deduplicator.contains(createNews(5000).getUrl()));
+        assertTrue(deduplicator.filter(createNewsList(0, 5000)).isEmpty());
+    }
+
+    @Test
+    public void clear_removesEveryUrl() {
+        NewsDeduplicator deduplicator = new NewsDeduplicator();
+        deduplicator.addAll(createNewsList(0, 500));
+
+        deduplicator.clear();
+
+        assertEquals(0, deduplicator.size());
+        assertFalse(deduplicator.contains(createNews(0).getUrl()));
+    }
+
+    @Test
+    public void hash_differsForSimilarUrls() {
+        assertNotEquals(NewsDeduplicator.hash("https://www.theguardian.com/a/1"),
+                NewsDeduplicator.hash("https://www.theguardian.com/a/2"));
+        assertNotEquals(0, NewsDeduplicator.hash(""));
+    }
+
+    private static List<News> createNewsList(int from, int to) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            newsList.add(createNews(i));
+        }
+        return newsList;
+    }
+
+    private static News createNews(int i) {
+        return new News("Headline " + i, "2018-01-31T10:00:00Z",
+                "https://www.theguardian.com/news/2018/jan/31/story-" + i);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the connection reuse and timing of {@link NewsHttpClient}.
+ */
+public class NewsHttpClientTest {
+
+    private MockWebServer mServer;
+    private final List<NewsHttpClient.RequestTiming> mTimings = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        NewsHttpClient client = new NewsHttpClient(1000, 1000, 2, 60000);
+        client.setTimingListener(new NewsHttpClient.TimingListener() {
+            @Override
+            public void onRequestTiming(NewsHttpClient.RequestTiming timing) {
+                mTimings.add(timing);
+            }
+        });
+        NewsHttpClient.setDefault(client);
+        // A single attempt, so each call makes one request.
+        QueryUtils.setRetryPolicy(new RetryPolicy(1, 0, 0));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryUtils.setRetryPolicy(RetryPolicy.createDefault());
+        NewsHttpClient.setDefault(null);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fetchNewsData_reusesPooledConnection() throws Exception {
+        String json = "{\"response\":{\"currentPage\":1,\"results\":[]}}";
+        mServer.enqueue(new MockResponse().setBody(json));
+        mServer.enqueue(new MockResponse().setBody(json));
+
+        QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+        QueryUtils.fetchNewsData(mServer.url("/search?page=2").toString());
+
+        assertEquals(2, mTimings.size());
+        assertFalse(mTimings.get(0).connectionReused);
+        assertTrue(mTimings.get(1).connectionReused);
+        assertEquals(0, mServer.takeRequest().getSequenceNumber());
+        // The second request went over the same connection as the first one.
+        assertEquals(1, mServer.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void fetchNewsData_reportsTiming_whenRequestFails() throws Exception {
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+
+        assertEquals(1, mTimings.size());
+        assertTrue(mTimings.get(0).totalMillis >= mTimings.get(0).firstByteMillis);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link NewsPaginator}, with page loads run by hand.
+ */
+public class NewsPaginatorTest {
+
+    /**
+     * Page loads waiting to be run.
+     */
+    private final List<Runnable> mPendingLoads = new ArrayList<>();
+
+    /**
+     * Pages requested from the page source.
+     */
+    private final List<Integer> mRequestedPages = new ArrayList<>();
+
+    /**
+     * Pages appended to the list.
+     */
+    private final List<Integer> mAppendedPages = new ArrayList<>();
+
+    /**
+     * Page the page source throws on, zero means none.
+     */
+    private int mThrowingPage;
+
+    private NewsPaginator mPaginator;
+
+    @Before
+    public void setUp() {
+        NewsPaginator.PageSource pageSource = new NewsPaginator.PageSource() {
+            @Override
+            public List<News> loadPage(String section, int page) {
+                mRequestedPages.add(page);
+                if (page == mThrowingPage) {
+                    throw new IllegalStateException("Like the database failing.");
+                }
+                return Collections.singletonList(new News("Title " + page, "2018-01-31T10:00:00Z",
+                        "https://www.theguardian.com/" + section + "/" + page));
+            }
+        };
+        NewsPaginator.Callback callback = new NewsPaginator.Callback() {
+            @Override
+            public void onPageReady(int page, List<News> newsList) {
+                mAppendedPages.add(page);
+            }
+        };
+        Executor loadExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPendingLoads.add(command);
+            }
+        };
+        Executor directExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        mPaginator = new NewsPaginator(pageSource, callback, loadExecutor, directExecutor, 5, 2);
+        mPaginator.reset("sport", 1);
+    }
+
+    @Test
+    public void onScrolled_farFromEnd_loadsNothing() {
+        mPaginator.onScrolled(3, 10);
+
+        assertTrue(mPendingLoads.isEmpty());
+    }
+
+    @Test
+    public void onScrolled_nearEnd_prefetchesTwoPagesOnce() {
+        mPaginator.onScrolled(5, 10);
+        mPaginator.onScrolled(6, 10);
+        mPaginator.onScrolled(9, 10);
+        runPendingLoads();
+
+        assertEquals(Arrays.asList(2, 3), mRequestedPages);
+        assertEquals(Collections.singletonList(2), mAppendedPages);
+        assertEquals(2, mPaginator.getLastPage());
+    }
+
+    @Test
+    public void onScrolled_appendsPrefetchedPageWithoutWaiting() {
+        mPaginator.onScrolled(9, 10);
+        runPendingLoads();
+
+        // Page 3 is already loaded, so it is appended right away.
+        mPaginator.onScrolled(15, 20);
+
+        assertEquals(Arrays.asList(2, 3), mAppendedPages);
+        // And pages 4 and 5 are prefetched.
+        runPendingLoads();
+        assertEquals(Arrays.asList(2, 3, 4, 5), mRequestedPages);
+    }
+
+    @Test
+    public void onScrolled_pageSourceThrows_failsThePage() {
+        mThrowingPage = 2;
+
+        mPaginator.onScrolled(9, 10);
+        runPendingLoads();
+
+        // The page isn't loading anymore, so it can be requested again.
+        assertTrue(mAppendedPages.isEmpty());
+        assertFalse(mPaginator.isWaiting());
+    }
+
+    @Test
+    public void reset_dropsPagesOfPreviousSection() {
+        mPaginator.onScrolled(9, 10);
+        mPaginator.reset("culture", 1);
+        runPendingLoads();
+
+        assertTrue(mAppendedPages.isEmpty());
+        assertEquals(1, mPaginator.getLastPage());
+    }
+
+    @Test
+    public void onPageAppended_mostlyRepeats_appendsTheNextPageWithoutScrolling() {
+        mPaginator.onScrolled(9, 10);
+        runPendingLoads();
+        assertEquals(Arrays.asList(2), mAppendedPages);
+
+        // Only 2 of the 10 news of page 2 were new.
+        mPaginator.onPageAppended(2, 2, 10);
+
+        assertEquals(Arrays.asList(2, 3), mAppendedPages);
+        runPendingLoads();
+        assertEquals(Arrays.asList(2, 3, 4, 5), mRequestedPages);
+    }
+
+    @Test
+    public void onPageAppended_mostlyNew_waitsForScrolling() {
+        mPaginator.onScrolled(9, 10);
+        runPendingLoads();
+
+        mPaginator.onPageAppended(2, 6, 10);
+        // A report of a page appended before is of no use.
+        mPaginator.onPageAppended(1, 0, 10);
+
+        assertEquals(Arrays.asList(2), mAppendedPages);
+    }
+
+    @Test
+    public void onPageAppended_stopsAfterManyRepeatedPagesInARow() {
+        mPaginator.onScrolled(9, 10);
+        runPendingLoads();
+
+        for (int i = 0; i < 10; i++) {
+            mPaginator.onPageAppended(mPaginator.getLastPage(), 0, 10);
+            runPendingLoads();
+        }
+
+        // Page 2 was appended by the scroll, the 5 next ones because of the repeats.
+        assertEquals(7, mPaginator.getLastPage());
+    }
+
+    private void runPendingLoads() {
+        while (!mPendingLoads.isEmpty()) {
+            mPendingLoads.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link NewsRepository}, with threads that append and refresh the same
+ * section at the same time.
+ */
+public class NewsRepositoryTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final int THREAD_COUNT = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private NewsRepository mRepository;
+
+    @Before
+    public void setUp() {
+        // Few news in memory, so the pages are spilled while the threads read them.
+        mRepository = new NewsRepository(new NewsPagePool(
+                new File(folder.getRoot(), "news_list.spill"), 5 * PAGE_SIZE));
+    }
+
+    @After
+    public void tearDown() {
+        mRepository.close();
+    }
+
+    @Test
+    public void replaceFirstPage_keepsTheFollowingPages_andTheGeneration() {
+        NewsRepository.Snapshot first = mRepository.replace("news", 1, createPage(0, 1));
+        NewsRepository.Snapshot second = mRepository.append(first, 2, createPage(0, 2));
+        // The revalidated first page has a new story, which pushed the last one to page 2.
+        List<News> firstPage = new ArrayList<>();
+        firstPage.add(createNews(1, 1, 0));
+        firstPage.addAll(createPage(0, 1).subList(0, PAGE_SIZE - 1));
+
+        NewsRepository.Snapshot revalidated = mRepository.replaceFirstPage(second, firstPage);
+
+        assertNotNull(revalidated);
+        assertEquals(first.generation, revalidated.generation);
+        assertEquals(2, revalidated.lastPage);
+        List<News> expected = new ArrayList<>(firstPage);
+        expected.add(createNews(0, 1, PAGE_SIZE - 1));
+        expected.addAll(createPage(0, 2));
+        assertEquals(expected, new ArrayList<>(revalidated.newsList));
+        // The next page still follows the list.
+        assertNotNull(mRepository.append(revalidated, 3, createPage(0, 3)));
+        // The list changed since, so the first page is not replaced on it.
+        assertNull(mRepository.replaceFirstPage(revalidated, firstPage));
+    }
+
+    @Test
+    public void get_returnsAnEmptySnapshot_ofANewSection() {
+        NewsRepository.Snapshot snapshot = mRepository.get(null);
+
+        assertNull(snapshot.section);
+        assertEquals(0, snapshot.lastPage);
+        assertEquals(1, snapshot.getNextPage());
+        assertTrue(snapshot.newsList.isEmpty());
+    }
+
+    @Test
+    public void append_addsOnlyTheNextPage() {
+        NewsRepository.Snapshot first = mRepository.replace("news", 1, createPage(0, 1));
+
+        assertNull(mRepository.append(first, 3, createPage(first.generation, 3)));
+        NewsRepository.Snapshot second = mRepository.append(first, 2, createPage(0, 2));
+        assertNotNull(second);
+        // The same page loaded twice is appended once.
+        assertNull(mRepository.append(first, 2, createPage(0, 2)));
+
+        assertEquals(2, mRepository.get("news").lastPage);
+        assertEquals(2 * PAGE_SIZE, mRepository.get("news").newsList.size());
+        // The previous snapshot never changes.
+        assertEquals(1, first.lastPage);
+        assertEquals(PAGE_SIZE, first.newsList.size());
+    }
+
+    @Test
+    public void append_dropsAPage_ofAReplacedList() {
+        NewsRepository.Snapshot first = mRepository.replace("news", 1, createPage(0, 1));
+        mRepository.replace("news", 1, createPage(0, 1));
+
+        assertNull(mRepository.append(first, 2, createPage(0, 2)));
+        assertEquals(1, mRepository.get("news").lastPage);
+    }
+
+    @Test
+    public void replace_keepsTheOtherSections() {
+        mRepository.replace("news", 1, createPage(0, 1));
+        mRepository.replace(null, 1, createPage(0, 1));
+
+        mRepository.clear("sport");
+
+        assertEquals(PAGE_SIZE, mRepository.get("news").newsList.size());
+        assertEquals(PAGE_SIZE, mRepository.get(null).newsList.size());
+        assertTrue(mRepository.get("sport").newsList.isEmpty());
+    }
+
+    @Test
+    public void trim_keepsThePagesOfEverySection() {
+        NewsRepository.Snapshot news = mRepository.replace("news", 1, createPage(0, 1));
+        NewsRepository.Snapshot sport = mRepository.replace("sport", 1, createPage(0, 1));
+        for (int page = 2; page <= 4; page++) {
+            news = mRepository.append(news, page, createPage(news.generation, page));
+            sport = mRepository.append(sport, page, createPage(sport.generation, page));
+        }
+        // Replaced, its pages are dropped.
+        mRepository.replace("sport", 1, createPage(0, 1));
+
+        mRepository.trim(sport.newsList);
+
+        assertPagesInOrder(mRepository.get("news"));
+        assertPagesInOrder(sport);
+        assertPagesInOrder(mRepository.get("sport"));
+    }
+
+    @Test
+    public void concurrentAppends_appendEveryPageOnceInOrder() throws Exception {
+        final int lastPage = 40;
+        mRepository.replace("news", 1, createPage(0, 1));
+        final AtomicInteger appendedCount = new AtomicInteger();
+
+        runConcurrently(new Callable<Void>() {
+            @Override
+            public Void call() {
+                while (true) {
+                    NewsRepository.Snapshot snapshot = mRepository.get("news");
+                    if (snapshot.lastPage >= lastPage) {
+                        return null;
+                    }
+                    int page = snapshot.getNextPage();
+                    if (mRepository.append(snapshot, page,
+                            createPage(snapshot.generation, page)) != null) {
+                        appendedCount.incrementAndGet();
+                    }
+                }
+            }
+        }, THREAD_COUNT);
+
+        NewsRepository.Snapshot snapshot = mRepository.get("news");
+        assertEquals(lastPage - 1, appendedCount.get());
+        assertEquals(lastPage, snapshot.lastPage);
+        assertEquals(lastPage * PAGE_SIZE, snapshot.newsList.size());
+        assertPagesInOrder(snapshot);
+    }
+
+    @Test
+    public void concurrentRefreshesAndAppends_neverMixTwoLists() throws Exception {
+        final int lastPage = 20;
+        final int refreshCount = 200;
+        mRepository.replace("news", 1, createPage(0, 1));
+        final AtomicBoolean isRefreshing = new AtomicBoolean(true);
+        final AtomicInteger finishedRefreshers = new AtomicInteger();
+
+        runConcurrently(new Callable<Void>() {
+            private final AtomicInteger mThreadIndex = new AtomicInteger();
+
+            @Override
+            public Void call() {
+                int index = mThreadIndex.getAndIncrement();
+                if (index < 2) {
+                    // Refresh the section, like users pulling to refresh while it scrolls.
+                    for (int i = 0; i < refreshCount; i++) {
+                        mRepository.replace("news", 1, createPage(0, 1));
+                    }
+                    if (finishedRefreshers.incrementAndGet() == 2) {
+                        isRefreshing.set(false);
+                    }
+                } else if (index < 5) {
+                    // Append the next pages, built for the snapshot they were loaded for.
+                    while (isRefreshing.get() || mRepository.get("news").lastPage < lastPage) {
+                        NewsRepository.Snapshot snapshot = mRepository.get("news");
+                        int page = snapshot.getNextPage();
+                        if (page <= lastPage) {
+                            mRepository.append(snapshot, page,
+                                    createPage(snapshot.generation, page));
+                        }
+                    }
+                } else {
+                    // Every snapshot read at any time is a whole list.
+                    while (isRefreshing.get()) {
+                        assertPagesInOrder(mRepository.get("news"));
+                    }
+                }
+                return null;
+            }
+        }, THREAD_COUNT);
+
+        NewsRepository.Snapshot snapshot = mRepository.get("news");
+        assertEquals(2 * refreshCount + 1, snapshot.generation);
+        assertEquals(lastPage, snapshot.lastPage);
+        assertPagesInOrder(snapshot);
+    }
+
+    /**
+     * Run the given task on the given number of threads, all started at the same time, and
+     * rethrow the first failure.
+     */
+    private static void runConcurrently(final Callable<Void> task, int threadCount)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    return task.call();
+                }
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Check the list of the snapshot has its pages in order, each once, and the pages after
+     * the first one were loaded for the generation of the snapshot.
+     */
+    private static void assertPagesInOrder(NewsRepository.Snapshot snapshot) {
+        List<News> newsList = snapshot.newsList;
+        assertEquals(snapshot.lastPage * PAGE_SIZE, newsList.size());
+        for (int i = 0; i < newsList.size(); i++) {
+            int page = i / PAGE_SIZE + 1;
+            int generation = page == 1 ? 0 : snapshot.generation;
+            assertEquals(createNews(generation, page, i % PAGE_SIZE), newsList.get(i));
+        }
+    }
+
+    private static List<News> createPage(int generation, int page) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            newsList.add(createNews(generation, page, i));
+        }
+        return newsList;
+    }
+
+    private static News createNews(int generation, int page, int index) {
+        return new News("Headline " + index + " of page " + page,
+                "2018-01-31T10:" + (10 + index) + ":00Z",
+                "https://www.theguardian.com/news/" + generation + "/" + page + "/" + index);
+    }
+}
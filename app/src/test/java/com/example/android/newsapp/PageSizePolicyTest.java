@@ -0,0 +1,70 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests of {@link PageSizePolicy}.
+ */
+public class PageSizePolicyTest {
+
+    @Test
+    public void getPageSize_beforeAnyTransfer_dependsOnTheNetwork() {
+        PageSizePolicy policy = new PageSizePolicy();
+
+        assertEquals(10, policy.getPageSize(true));
+        assertEquals(20, policy.getPageSize(false));
+    }
+
+    @Test
+    public void getPageSize_growsWithTheThroughput_upToTheLimitOfTheApi() {
+        PageSizePolicy policy = new PageSizePolicy();
+
+        // 1000 bytes a news, 35 news a second.
+        policy.recordTransfer(10000, 285, 10);
+        assertEquals(30, policy.getPageSize(false));
+
+        PageSizePolicy fastPolicy = new PageSizePolicy();
+        fastPolicy.recordTransfer(10000, 10, 10);
+        assertEquals(GuardianRequest.MAX_PAGE_SIZE, fastPolicy.getPageSize(false));
+    }
+
+    @Test
+    public void getPageSize_staysSmall_onAMeteredNetwork() {
+        PageSizePolicy policy = new PageSizePolicy();
+
+        policy.recordTransfer(10000, 10, 10);
+
+        assertEquals(20, policy.getPageSize(true));
+    }
+
+    @Test
+    public void getPageSize_neverGoesUnderTheDefault_onASlowNetwork() {
+        PageSizePolicy policy = new PageSizePolicy();
+
+        policy.recordTransfer(10000, 5000, 10);
+
+        assertEquals(GuardianRequest.DEFAULT_PAGE_SIZE, policy.getPageSize(false));
+    }
+
+    @Test
+    public void recordTransfer_ignoresTheTime_ofSmallResponses() {
+        PageSizePolicy policy = new PageSizePolicy();
+
+        // Mostly latency, it says nothing about the throughput.
+        policy.recordTransfer(1000, 500, 1);
+
+        assertEquals(20, policy.getPageSize(false));
+    }
+
+    @Test
+    public void reset_forgetsTheMeasures() {
+        PageSizePolicy policy = new PageSizePolicy();
+        policy.recordTransfer(10000, 10, 10);
+
+        policy.reset();
+
+        assertEquals(20, policy.getPageSize(false));
+    }
+}
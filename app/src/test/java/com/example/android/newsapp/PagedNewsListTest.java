@@ -0,0 +1,165 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link PagedNewsList} and the {@link NewsPagePool} that spills its pages.
+ */
+public class PagedNewsListTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File mSpillFile;
+
+    private NewsPagePool mPool;
+
+    @Before
+    public void setUp() throws Exception {
+        mSpillFile = new File(folder.getRoot(), "news_list.spill");
+        mPool = new NewsPagePool(mSpillFile, 100);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.close();
+    }
+
+    @Test
+    public void append_sharesThePagesOfThePreviousList() {
+        PagedNewsList first = new PagedNewsList(mPool).append(createNewsList(0, 10));
+
+        PagedNewsList second = first.append(createNewsList(10, 25));
+
+        assertEquals(10, first.size());
+        assertEquals(25, second.size());
+        assertEquals(first.getPages().get(0), second.getPages().get(0));
+        for (int i = 0; i < 25; i++) {
+            assertEquals(createNews(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void append_splitsALongList_intoPages() {
+        PagedNewsList list = new PagedNewsList(mPool).append(createNewsList(0, 120));
+
+        assertEquals(3, list.getPages().size());
+        assertEquals(createNews(119), list.get(119));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_outOfTheList_throws() {
+        new PagedNewsList(mPool).append(createNewsList(0, 10)).get(10);
+    }
+
+    @Test
+    public void get_readsSpilledPagesBack_whenScrollingBack() {
+        PagedNewsList list = new PagedNewsList(mPool);
+        for (int page = 0; page < 50; page++) {
+            list = list.append(createNewsList(page * 10, page * 10 + 10));
+        }
+
+        // Only the latest pages stay in memory, the first ones are in the file.
+        assertEquals(100, mPool.getResidentNewsCount());
+        assertTrue(mSpillFile.length() > 0);
+        for (int i = list.size() - 1; i >= 0; i--) {
+            assertEquals(createNews(i), list.get(i));
+            assertTrue(mPool.getResidentNewsCount() <= 100);
+        }
+    }
+
+    @Test
+    public void peek_returnsNull_ofASpilledPage_untilItIsLoaded() {
+        PagedNewsList list = new PagedNewsList(mPool);
+        for (int page = 0; page < 50; page++) {
+            list = list.append(createNewsList(page * 10, page * 10 + 10));
+        }
+
+        assertFalse(list.isResident());
+        assertNull(list.peek(0));
+        // Peeking doesn't read the page back.
+        assertNull(list.peek(5));
+        assertEquals(createNews(499), list.peek(499));
+
+        assertTrue(list.load(0, 20));
+        assertEquals(createNews(5), list.peek(5));
+        assertEquals(createNews(19), list.peek(19));
+        // Already in memory, nothing was read.
+        assertFalse(list.load(0, 20));
+    }
+
+    @Test
+    public void retainAll_emptiesTheSpillFile_ofAReplacedList() {
+        PagedNewsList list = new PagedNewsList(mPool);
+        for (int page = 0; page < 50; page++) {
+            list = list.append(createNewsList(page * 10, page * 10 + 10));
+        }
+
+        PagedNewsList newList = new PagedNewsList(mPool).append(createNewsList(0, 10));
+        mPool.retainAll(newList);
+
+        assertEquals(10, mPool.getResidentNewsCount());
+        assertEquals(0, mSpillFile.length());
+        assertEquals(createNews(9), newList.get(9));
+    }
+
+    @Test
+    public void memoryStaysFlat_overThousandsOfNews() {
+        PagedNewsList list = new PagedNewsList(mPool);
+
+        // 20,000 news with long titles, tens of megabytes if they were all kept.
+        for (int page = 0; page < 2000; page++) {
+            list = list.append(createNewsList(page * 10, page * 10 + 10));
+            // Users scroll through each page as it is appended.
+            list.get(page * 10);
+            assertTrue(mPool.getResidentNewsCount() <= 100);
+        }
+        // Then scroll back up to the top.
+        for (int i = list.size() - 1; i >= 0; i -= 10) {
+            list.get(i);
+            assertTrue(mPool.getResidentNewsCount() <= 100);
+        }
+
+        assertEquals(20000, list.size());
+        // Every page went through the file and was written once, the ones read back keep
+        // their place in it.
+        assertEquals(2000, mPool.getSpilledPageCount());
+        long pagesLength = 0;
+        for (int page = 0; page < 2000; page++) {
+            pagesLength += NewsCodec.encode(createNewsList(page * 10, page * 10 + 10)).length;
+        }
+        assertEquals(pagesLength, mSpillFile.length());
+    }
+
+    private static List<News> createNewsList(int from, int to) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            newsList.add(createNews(i));
+        }
+        return newsList;
+    }
+
+    private static News createNews(int i) {
+        StringBuilder title = new StringBuilder("Headline " + i);
+        while (title.length() < 500) {
+            title.append(" and some more words of the headline");
+        }
+        String time = String.format(Locale.US, "2018-01-%02dT%02d:%02d:00Z",
+                1 + i / 1440 % 28, i / 60 % 24, i % 60);
+        return new News(title.toString(), time, "https://www.theguardian.com/news/" + i);
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the request layer of {@link QueryUtils} against a local web server.
+ */
+public class QueryUtilsHttpTest {
+
+    private MockWebServer mServer;
+    private String mJson;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mJson = read("guardian_overview_page1.json");
+        QueryUtils.getTransferStats().reset();
+        // Retry right away, and open the breaker after a few failures.
+        QueryUtils.setRetryPolicy(new RetryPolicy(3, 0, 1000));
+        QueryUtils.setCircuitBreaker(new CircuitBreaker(4, 60000));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryUtils.setRetryPolicy(RetryPolicy.createDefault());
+        QueryUtils.setCircuitBreaker(CircuitBreaker.createDefault());
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fetchNewsData_parsesPlainResponse() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mJson));
+
+        List<News> newsList = QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+
+        assertEquals(10, newsList.size());
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+        assertNull(request.getHeader("If-None-Match"));
+        TransferStats stats = QueryUtils.getTransferStats();
+        assertEquals(1, stats.getResponseCount());
+        assertEquals(0, stats.getBytesSaved());
+    }
+
+    @Test
+    public void fetchNewsData_decompressesGzipResponse() throws Exception {
+        Buffer body = new Buffer().write(gzip(mJson));
+        mServer.enqueue(new MockResponse().setBody(body).addHeader("Content-Encoding", "gzip"));
+
+        List<News> newsList = QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+
+        assertEquals(10, newsList.size());
+        assertEquals("Super blue blood moon: rare lunar event lights up skies around the world",
+                newsList.get(0).getTitle());
+        TransferStats stats = QueryUtils.getTransferStats();
+        assertTrue(stats.getBytesReceived() < stats.getBytesDecoded());
+        assertEquals(stats.getBytesDecoded() - stats.getBytesReceived(), stats.getBytesSaved());
+    }
+
+    @Test
+    public void fetchNewsData_reusesLastPage_onNotModified() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mJson)
+                .addHeader("ETag", "\"v1\"")
+                .addHeader("Last-Modified", "Wed, 31 Jan 2018 10:25:00 GMT"));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+        String url = mServer.url("/search?page=1").toString();
+
+        List<News> first = QueryUtils.fetchNewsData(url);
+        List<News> second = QueryUtils.fetchNewsData(url);
+
+        assertSame(first, second);
+        mServer.takeRequest();
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("\"v1\"", request.getHeader("If-None-Match"));
+        assertEquals("Wed, 31 Jan 2018 10:25:00 GMT", request.getHeader("If-Modified-Since"));
+        TransferStats stats = QueryUtils.getTransferStats();
+        assertEquals(1, stats.getNotModifiedCount());
+        assertEquals(stats.getBytesDecoded(), stats.getBytesSaved());
+    }
+
+    @Test
+    public void fetchNewsData_keepsNoValidators_ofABodyCutShort() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mJson)
+                .addHeader("ETag", "\"v1\"")
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        mServer.enqueue(new MockResponse().setBody(mJson).addHeader("ETag", "\"v2\""));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+        String url = mServer.url("/search?page=1").toString();
+
+        List<News> first = QueryUtils.fetchNewsData(url);
+        List<News> second = QueryUtils.fetchNewsData(url);
+
+        assertEquals(10, first.size());
+        assertSame(first, second);
+        // The retry of the cut off response is not conditional, the next request is.
+        mServer.takeRequest();
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v2\"", mServer.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void fetchNewsData_returnsNull_onServerError() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+
+        assertNull(QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString()));
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchNewsData_retries_afterTransientFailures() throws Exception {
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody(mJson));
+
+        List<News> newsList = QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+
+        assertEquals(10, newsList.size());
+        assertFalse(QueryUtils.getCircuitBreaker().isOpen());
+    }
+
+    @Test
+    public void fetchNewsData_doesNotRetry_onClientError() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+
+        assertNull(QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString()));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchNewsData_honorsRetryAfter_onTooManyRequests() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "1"));
+        mServer.enqueue(new MockResponse().setBody(mJson));
+
+        long start = System.nanoTime();
+        List<News> newsList = QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+
+        assertEquals(10, newsList.size());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+    }
+
+    @Test
+    public void fetchNewsData_givesUp_whenRetryAfterIsTooLong() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503).addHeader("Retry-After", "3600"));
+
+        assertNull(QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString()));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchNewsData_stopsRequests_whileCircuitIsOpen() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+        String url = mServer.url("/search?page=1").toString();
+
+        assertNull(QueryUtils.fetchNewsData(url));
+        assertNull(QueryUtils.fetchNewsData(url));
+
+        // The fourth failure opened the breaker, the second call only sent one request.
+        assertEquals(4, mServer.getRequestCount());
+        assertTrue(QueryUtils.getCircuitBreaker().isOpen());
+    }
+
+    @Test
+    public void fetchNewsData_returnsNull_whenBodyIsCutShort() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody(mJson)
+                    .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        }
+
+        // The news parsed before the connection dropped are not a page.
+        assertNull(QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString()));
+    }
+
+    @Test
+    public void fetchNewsData_retries_aBodyCutShort() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mJson)
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        mServer.enqueue(new MockResponse().setBody(mJson));
+
+        List<News> newsList = QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString());
+
+        assertEquals(10, newsList.size());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchNewsData_opensCircuit_afterBodiesCutShort() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            mServer.enqueue(new MockResponse().setBody(mJson)
+                    .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        }
+        String url = mServer.url("/search?page=1").toString();
+
+        assertNull(QueryUtils.fetchNewsData(url));
+        assertNull(QueryUtils.fetchNewsData(url));
+
+        // Each cut off body was a failure, not a success that resets the breaker.
+        assertEquals(4, mServer.getRequestCount());
+        assertTrue(QueryUtils.getCircuitBreaker().isOpen());
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsAndHttpDates() {
+        assertEquals(120000, QueryUtils.parseRetryAfter("120"));
+        assertEquals(0, QueryUtils.parseRetryAfter("Wed, 31 Jan 2018 10:25:00 GMT"));
+        assertEquals(-1, QueryUtils.parseRetryAfter("soon"));
+        assertEquals(-1, QueryUtils.parseRetryAfter(null));
+    }
+
+    @Test
+    public void fetchNewsData_abortsDownload_whenCancelled() throws Exception {
+        // A slow body that would take minutes to download.
+        mServer.enqueue(new MockResponse().setBody(mJson).throttleBody(64, 1, TimeUnit.SECONDS));
+        final CancellationToken cancellationToken = new CancellationToken();
+        new Timer().schedule(new TimerTask() {
+            @Override
+            public void run() {
+                cancellationToken.cancel();
+            }
+        }, 500);
+
+        long start = System.nanoTime();
+        List<News> newsList = QueryUtils.fetchNewsData(
+                mServer.url("/search?page=1").toString(), cancellationToken);
+
+        assertNull(newsList);
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    }
+
+    @Test
+    public void fetchNewsData_skipsRequest_whenAlreadyCancelled() throws Exception {
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+
+        assertNull(QueryUtils.fetchNewsData(mServer.url("/search?page=1").toString(),
+                cancellationToken));
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(text.getBytes(Charset.forName("UTF-8")));
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static String read(String resource) throws IOException {
+        InputStream inputStream = QueryUtilsHttpTest.class.getClassLoader().getResourceAsStream(resource);
+        try {
+            return QueryUtils.readFromStream(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
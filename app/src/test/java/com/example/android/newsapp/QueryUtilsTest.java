@@ -0,0 +1,112 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests comparing the streaming parser of {@link QueryUtils}
+ * with the JSONObject based one on recorded Guardian responses.
+ */
+public class QueryUtilsTest {
+
+    @Test
+    public void streamingParser_matchesJsonParser_onOverviewPage() throws Exception {
+        assertSameNews("guardian_overview_page1.json", 10);
+    }
+
+    @Test
+    public void streamingParser_skipsNestedFields_onSectionPage() throws Exception {
+        assertSameNews("guardian_sport_page2.json", 6);
+    }
+
+    @Test
+    public void streamingParser_readsThumbnails() throws Exception {
+        List<News> newsList = QueryUtils.extractFeatureFromStream(
+                open("guardian_sport_page2.json"));
+
+        assertEquals("https://media.guim.co.uk/1000/500.jpg", newsList.get(0).getThumbnailUrl());
+        // The overview page was requested without fields.
+        List<News> overview = QueryUtils.extractFeatureFromStream(
+                open("guardian_overview_page1.json"));
+        assertNull(overview.get(0).getThumbnailUrl());
+    }
+
+    @Test
+    public void streamingParser_returnsEmptyList_onErrorResponse() throws Exception {
+        List<News> expected = QueryUtils.extractFeatureFromJson(read("guardian_error.json"));
+        List<News> actual = QueryUtils.extractFeatureFromStream(open("guardian_error.json"));
+
+        assertTrue(expected.isEmpty());
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void streamingParser_throws_onTruncatedResponse() throws Exception {
+        String json = read("guardian_overview_page1.json");
+        // Cut the response in the middle of the fourth result.
+        int cut = json.indexOf("\"webTitle\"", json.indexOf("nhs-crisis-winter-decade"));
+        byte[] truncated = json.substring(0, cut).getBytes(Charset.forName("UTF-8"));
+
+        QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(truncated));
+    }
+
+    @Test(expected = IOException.class)
+    public void streamingParser_throws_withoutTheEndOfTheResponse() throws Exception {
+        String json = read("guardian_overview_page1.json").trim();
+        // Every result is there, only the closing brace of the response is missing.
+        byte[] truncated = json.substring(0, json.length() - 1).getBytes(Charset.forName("UTF-8"));
+
+        QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(truncated));
+    }
+
+    @Test(expected = IOException.class)
+    public void streamingParser_throws_onMalformedResult() throws Exception {
+        byte[] malformed = "{\"response\":{\"results\":[{\"webTitle\":\"Headline\"}]}}"
+                .getBytes(Charset.forName("UTF-8"));
+
+        QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(malformed));
+    }
+
+    @Test
+    public void streamingParser_returnsNull_withoutStream() throws Exception {
+        assertNull(QueryUtils.extractFeatureFromStream(null));
+    }
+
+    /**
+     * Parse the given recorded response with both parsers and check they return the same news.
+     */
+    private static void assertSameNews(String resource, int size) throws IOException {
+        List<News> expected = QueryUtils.extractFeatureFromJson(read(resource));
+        List<News> actual = QueryUtils.extractFeatureFromStream(open(resource));
+
+        assertEquals(size, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+            assertEquals(expected.get(i).getUrl(), actual.get(i).getUrl());
+        }
+    }
+
+    private static InputStream open(String resource) {
+        return QueryUtilsTest.class.getClassLoader().getResourceAsStream(resource);
+    }
+
+    private static String read(String resource) throws IOException {
+        InputStream inputStream = open(resource);
+        try {
+            return QueryUtils.readFromStream(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Local unit tests of {@link RequestCoalescer} against a local web server.
+ */
+public class RequestCoalescerTest {
+
+    private static final int CALLER_COUNT = 16;
+
+    private MockWebServer mServer;
+    private String mJson;
+    private RequestCoalescer mCoalescer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mJson = read("guardian_overview_page1.json");
+        mCoalescer = new RequestCoalescer(new RequestCoalescer.Fetcher() {
+            @Override
+            public List<News> fetch(String url, CancellationToken cancellationToken) {
+                return QueryUtils.fetchNewsData(url, cancellationToken);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fetch_sharesOneRequest_betweenConcurrentCallers() throws Exception {
+        // The slow body keeps the first request in flight while the other callers come.
+        mServer.enqueue(new MockResponse().setBody(mJson).setBodyDelay(1, TimeUnit.SECONDS));
+        String url = mServer.url("/search?page=1").toString();
+
+        List<List<News>> results = fetchConcurrently(url, CALLER_COUNT);
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, mCoalescer.getIssuedCount());
+        assertEquals(CALLER_COUNT - 1, mCoalescer.getCoalescedCount());
+        for (List<News> newsList : results) {
+            assertEquals(10, newsList.size());
+            assertSame(results.get(0), newsList);
+        }
+    }
+
+    @Test
+    public void fetch_requestsAgain_afterTheRequestFinished() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mJson));
+        mServer.enqueue(new MockResponse().setBody(mJson));
+        String url = mServer.url("/search?page=1").toString();
+
+        mCoalescer.fetch(url);
+        mCoalescer.fetch(url);
+
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(2, mCoalescer.getIssuedCount());
+        assertEquals(0, mCoalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void fetch_doesNotShare_betweenDifferentUrls() throws Exception {
+        for (int i = 0; i < CALLER_COUNT; i++) {
+            mServer.enqueue(new MockResponse().setBody(mJson).setBodyDelay(200, TimeUnit.MILLISECONDS));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLER_COUNT);
+        List<Future<List<News>>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLER_COUNT; i++) {
+            final String url = mServer.url("/search?page=" + (i + 1)).toString();
+            futures.add(executor.submit(new Callable<List<News>>() {
+                @Override
+                public List<News> call() {
+                    return mCoalescer.fetch(url);
+                }
+            }));
+        }
+        for (Future<List<News>> future : futures) {
+            assertEquals(10, future.get(10, TimeUnit.SECONDS).size());
+        }
+        executor.shutdown();
+
+        assertEquals(CALLER_COUNT, mServer.getRequestCount());
+        assertEquals(CALLER_COUNT, mCoalescer.getIssuedCount());
+        assertEquals(0, mCoalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void fetch_requestsAgain_whenTheSharedRequestIsCancelled() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mJson).throttleBody(64, 1, TimeUnit.SECONDS));
+        mServer.enqueue(new MockResponse().setBody(mJson));
+        final String url = mServer.url("/search?page=1").toString();
+        final CancellationToken cancellationToken = new CancellationToken();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<List<News>> cancelled = executor.submit(new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                return mCoalescer.fetch(url, cancellationToken);
+            }
+        });
+        // Wait for the first request to be in flight, then share it and cancel its owner.
+        mServer.takeRequest();
+        Future<List<News>> shared = executor.submit(new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                return mCoalescer.fetch(url);
+            }
+        });
+        Thread.sleep(200);
+        cancellationToken.cancel();
+
+        assertEquals(null, cancelled.get(5, TimeUnit.SECONDS));
+        assertEquals(10, shared.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(2, mCoalescer.getIssuedCount());
+        assertEquals(0, mCoalescer.getCoalescedCount());
+        executor.shutdown();
+    }
+
+    /**
+     * Start the given number of callers of the URL at the same time, and return their results.
+     */
+    private List<List<News>> fetchConcurrently(final String url, int callerCount)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callerCount);
+        List<Future<List<News>>> futures = new ArrayList<>();
+        for (int i = 0; i < callerCount; i++) {
+            futures.add(executor.submit(new Callable<List<News>>() {
+                @Override
+                public List<News> call() throws Exception {
+                    start.await();
+                    return mCoalescer.fetch(url);
+                }
+            }));
+        }
+        start.countDown();
+
+        List<List<News>> results = new ArrayList<>();
+        for (Future<List<News>> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static String read(String resource) throws IOException {
+        InputStream inputStream = RequestCoalescerTest.class.getClassLoader().getResourceAsStream(resource);
+        try {
+            return QueryUtils.readFromStream(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link RetryPolicy}.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void getDelay_growsExponentially_withJitter() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 100, 1000, new Random(42));
+
+        for (int attempt = 1; attempt < 10; attempt++) {
+            long delay = Math.min(1000, 100L << (attempt - 1));
+            long actual = retryPolicy.getDelay(attempt, -1);
+            assertTrue("attempt " + attempt + ": " + actual, actual >= delay / 2 && actual <= delay);
+        }
+    }
+
+    @Test
+    public void getDelay_stops_afterTheLastAttempt() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000);
+
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.getDelay(3, -1));
+    }
+
+    @Test
+    public void getDelay_honorsRetryAfter_upToTheMaxDelay() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000);
+
+        assertEquals(800, retryPolicy.getDelay(1, 800));
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.getDelay(1, 5000));
+    }
+
+    @Test
+    public void isRetryable_onlyForTransientErrors() {
+        RetryPolicy retryPolicy = RetryPolicy.createDefault();
+
+        assertTrue(retryPolicy.isRetryable(408));
+        assertTrue(retryPolicy.isRetryable(429));
+        assertTrue(retryPolicy.isRetryable(500));
+        assertTrue(retryPolicy.isRetryable(503));
+        assertFalse(retryPolicy.isRetryable(400));
+        assertFalse(retryPolicy.isRetryable(401));
+        assertFalse(retryPolicy.isRetryable(404));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link SectionPrefetcher}.
+ */
+public class SectionPrefetcherTest {
+
+    private static final List<String> SECTIONS = Arrays.asList(
+            null, "news", "commentisfree", "sport", "culture", "lifeandstyle");
+
+    @Test
+    public void prefetch_loadsEverySection_withBoundedConcurrency() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(SECTIONS.size());
+        SectionPrefetcher prefetcher = new SectionPrefetcher(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section,
+                                            CancellationToken cancellationToken) {
+                int now = running.incrementAndGet();
+                maxRunning.set(Math.max(maxRunning.get(), now));
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+                return createPage(section);
+            }
+        }, new LoadExecutor(4), 2, 60000);
+
+        prefetcher.prefetch(SECTIONS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertTrue(maxRunning.get() <= 2);
+        for (String section : SECTIONS) {
+            assertNotNull(section, prefetcher.get(section));
+        }
+        prefetcher.cancel();
+    }
+
+    @Test
+    public void prefetch_skipsLoadedSections() throws Exception {
+        final AtomicInteger loads = new AtomicInteger();
+        SectionPrefetcher prefetcher = new SectionPrefetcher(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section,
+                                            CancellationToken cancellationToken) {
+                loads.incrementAndGet();
+                return createPage(section);
+            }
+        }, new LoadExecutor(4), 2, 60000);
+
+        prefetcher.put("sport", createPage("sport"));
+        prefetcher.prefetch(Collections.singletonList("sport"));
+        prefetcher.cancel();
+
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void cancel_dropsPendingSections() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+        SectionPrefetcher prefetcher = new SectionPrefetcher(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section,
+                                            CancellationToken cancellationToken) {
+                started.countDown();
+                // Like a request, which the token aborts.
+                if (!cancellationToken.sleep(5000)) {
+                    aborted.countDown();
+                    return null;
+                }
+                return createPage(section);
+            }
+        }, new LoadExecutor(4), 1, 60000);
+
+        prefetcher.prefetch(SECTIONS);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        prefetcher.cancel();
+
+        // The running load stops at once, the waiting ones never start.
+        assertTrue(aborted.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        for (String section : SECTIONS) {
+            assertNull(section, prefetcher.get(section));
+        }
+    }
+
+    @Test
+    public void get_ignoresExpiredSections() {
+        SectionPrefetcher prefetcher = new SectionPrefetcher(null, new LoadExecutor(1), 1, 0);
+
+        prefetcher.put("culture", createPage("culture"));
+
+        assertNull(prefetcher.get("culture"));
+        prefetcher.cancel();
+    }
+
+    private static List<News> createPage(String section) {
+        return Collections.singletonList(new News("Headline of " + section,
+                "2018-01-31T10:00:00Z", "https://www.theguardian.com/" + section + "/1"));
+    }
+}
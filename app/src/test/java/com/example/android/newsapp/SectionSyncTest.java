@@ -0,0 +1,130 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the background {@link SectionSync}.
+ */
+public class SectionSyncTest {
+
+    private static final List<String> SECTIONS = Arrays.asList(null, "news", "sport");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sync_cachesFirstPageOfEverySection() throws Exception {
+        final NewsCache cache = new NewsCache(folder.newFolder(), 60000, 1024 * 1024);
+        final List<String> loadedSections = new ArrayList<>();
+        SectionSync sync = new SectionSync(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section, CancellationToken token) {
+                loadedSections.add(section);
+                List<News> newsList = createNewsList(section);
+                cache.put(section, 1, 10, newsList);
+                return newsList;
+            }
+        }, cache, 10);
+
+        assertEquals(3, sync.getReport(SECTIONS).sections.size());
+        assertEquals(-1, sync.getReport(SECTIONS).getOldestAgeMillis());
+
+        SectionSync.Report report = sync.sync(SECTIONS, new CancellationToken());
+
+        assertEquals(Arrays.asList(null, "news", "sport"), loadedSections);
+        for (SectionSync.SectionState state : report.sections) {
+            assertFalse(state.hasFailed);
+            assertTrue(state.ageMillis >= 0 && state.ageMillis < 60000);
+        }
+        assertTrue(report.getOldestAgeMillis() >= 0);
+    }
+
+    @Test
+    public void sync_fetchesTheFirstPage_evenWhenTheCachedOneIsFresh() throws Exception {
+        final NewsCache cache = new NewsCache(folder.newFolder(), 60 * 60000, 1024 * 1024);
+        for (String section : SECTIONS) {
+            cache.put(section, 1, 10, createNewsList(section));
+        }
+        final List<String> loadedSections = new ArrayList<>();
+        SectionSync sync = new SectionSync(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section, CancellationToken token) {
+                loadedSections.add(section);
+                List<News> newsList = createNewsList(section);
+                cache.put(section, 1, 10, newsList);
+                return newsList;
+            }
+        }, cache, 10);
+        // Like a sync that runs before a whole interval went by since the previous one.
+        Thread.sleep(1000);
+
+        SectionSync.Report report = sync.sync(SECTIONS, new CancellationToken());
+
+        assertEquals(SECTIONS, loadedSections);
+        assertTrue(report.getOldestAgeMillis() >= 0 && report.getOldestAgeMillis() < 1000);
+    }
+
+    @Test
+    public void sync_reportsFailedSections() throws Exception {
+        final NewsCache cache = new NewsCache(folder.newFolder(), 60000, 1024 * 1024);
+        SectionSync sync = new SectionSync(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section, CancellationToken token) {
+                if ("news".equals(section)) {
+                    return null;
+                }
+                List<News> newsList = createNewsList(section);
+                cache.put(section, 1, 10, newsList);
+                return newsList;
+            }
+        }, cache, 10);
+
+        SectionSync.Report report = sync.sync(SECTIONS, new CancellationToken());
+
+        assertFalse(report.sections.get(0).hasFailed);
+        assertTrue(report.sections.get(1).hasFailed);
+        assertEquals(-1, report.sections.get(1).ageMillis);
+        assertEquals(-1, report.getOldestAgeMillis());
+    }
+
+    @Test
+    public void sync_stopsWhenCancelled() throws Exception {
+        NewsCache cache = new NewsCache(folder.newFolder(), 60000, 1024 * 1024);
+        final CancellationToken cancellationToken = new CancellationToken();
+        final List<String> loadedSections = new ArrayList<>();
+        SectionSync sync = new SectionSync(new SectionPrefetcher.PageSource() {
+            @Override
+            public List<News> loadFirstPage(String section, CancellationToken token) {
+                loadedSections.add(section);
+                // Like the job being stopped while the first section loads, the request gets
+                // the token of the sync.
+                token.cancel();
+                return createNewsList(section);
+            }
+        }, cache, 10);
+
+        sync.sync(SECTIONS, cancellationToken);
+
+        assertEquals(1, loadedSections.size());
+    }
+
+    private static List<News> createNewsList(String section) {
+        List<News> newsList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            newsList.add(new News("Headline " + i + " about " + section,
+                    "2018-01-31T10:" + (10 + i) + ":00Z",
+                    "https://www.theguardian.com/" + section + "/2018/jan/31/story-" + i));
+        }
+        return newsList;
+    }
+}
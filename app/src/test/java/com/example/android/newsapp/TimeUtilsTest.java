@@ -0,0 +1,82 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests of {@link TimeUtils}, checked against {@link SimpleDateFormat}.
+ */
+public class TimeUtilsTest {
+
+    private static final String[] TIMES = {
+            "1970-01-01T00:00:00Z",
+            "1969-12-31T23:59:59Z",
+            "2000-02-29T12:30:45Z",
+            "2018-01-31T10:24:56Z",
+            "2018-12-31T23:59:59Z",
+            "2020-03-01T00:00:00Z",
+            "2100-02-28T08:05:09Z",
+    };
+
+    @Test
+    public void parseIsoTime_matchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        for (String time : TIMES) {
+            assertEquals(time, format.parse(time).getTime(), TimeUtils.parseIsoTime(time));
+        }
+    }
+
+    @Test
+    public void formatDisplayTime_matchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        for (String time : TIMES) {
+            long timeInMillis = TimeUtils.parseIsoTime(time);
+            assertEquals(format.format(timeInMillis), TimeUtils.formatDisplayTime(timeInMillis));
+        }
+    }
+
+    @Test
+    public void formatIsoTime_isTheInverseOfParseIsoTime() {
+        for (String time : TIMES) {
+            assertEquals(time, TimeUtils.formatIsoTime(TimeUtils.parseIsoTime(time)));
+        }
+    }
+
+    @Test
+    public void parseIsoTime_rejectsOtherFormats() {
+        assertEquals(-1, TimeUtils.parseIsoTime(null));
+        assertEquals(-1, TimeUtils.parseIsoTime(""));
+        assertEquals(-1, TimeUtils.parseIsoTime("2018-01-31 10:24:56"));
+        assertEquals(-1, TimeUtils.parseIsoTime("2018-01-31T10:24:56.000Z"));
+        assertEquals(-1, TimeUtils.parseIsoTime("2018-13-31T10:24:56Z"));
+        assertEquals(-1, TimeUtils.parseIsoTime("2018-0a-31T10:24:56Z"));
+    }
+
+    @Test
+    public void news_precomputesDisplayFields() {
+        News news = new News("Super blue blood moon", "2018-01-31T10:24:56Z",
+                "https://www.theguardian.com/science/2018/jan/31/super-blue-blood-moon");
+
+        assertEquals("S", news.getInitialLetter());
+        assertEquals("uper blue blood moon", news.getTitleWithoutInitial());
+        assertEquals("2018-01-31 10:24:56", news.getDisplayTime());
+        assertEquals(1517394296000L, news.getTimeInMillis());
+    }
+
+    @Test
+    public void news_keepsRawTime_whenItCantBeParsed() {
+        News news = new News("", "yesterday", "https://www.theguardian.com/");
+
+        assertEquals("", news.getInitialLetter());
+        assertEquals("", news.getTitleWithoutInitial());
+        assertEquals("yesterday", news.getDisplayTime());
+        assertEquals(-1, news.getTimeInMillis());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmarks of the text work done to bind every row of a page of 10, 50 and 200 results.
+ */
+@State(Scope.Benchmark)
+public class BindBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private List<News> mNewsList;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] bytes = ParseBenchmark.readResource("guardian_search_" + results + ".json");
+        mNewsList = QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * What onBindViewHolder used to do: two new SimpleDateFormat objects per row
+     * to reformat the time, and the title cut around its initial letter.
+     */
+    @Benchmark
+    public void simpleDateFormatBind(Blackhole blackhole) throws ParseException {
+        for (News news : mNewsList) {
+            blackhole.consume(String.valueOf(news.getTitle().charAt(0)));
+            blackhole.consume(news.getTitle().substring(1));
+            SimpleDateFormat inFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'",
+                    Locale.getDefault());
+            Date dateIn = inFormat.parse(news.getTime());
+            SimpleDateFormat outFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss",
+                    Locale.getDefault());
+            blackhole.consume(outFormat.format(dateIn));
+        }
+    }
+
+    /**
+     * What onBindViewHolder does now: read the fields computed at parse time.
+     */
+    @Benchmark
+    public void precomputedBind(Blackhole blackhole) {
+        for (News news : mNewsList) {
+            blackhole.consume(news.getInitialLetter());
+            blackhole.consume(news.getTitleWithoutInitial());
+            blackhole.consume(news.getDisplayTime());
+        }
+    }
+
+    /**
+     * The cost moved to the parse stage: computing the display fields of every row.
+     */
+    @Benchmark
+    public void precomputeDisplayFields(Blackhole blackhole) {
+        for (News news : mNewsList) {
+            blackhole.consume(new News(news.getTitle(), news.getTime(), news.getUrl()));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.android.newsapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of storing a page of news with {@link NewsCodec} against storing it as JSON
+ * of the three fields the app reads, for the recorded responses of 10, 50 and 200 results.
+ * <p>
+ * The sizes of both formats are printed once per run.
+ */
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private List<News> mNewsList;
+    private ByteBuffer mBinary;
+    private String mJson;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        byte[] bytes = ParseBenchmark.readResource("guardian_search_" + results + ".json");
+        mNewsList = QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(bytes));
+        mBinary = ByteBuffer.wrap(NewsCodec.encode(mNewsList));
+        mJson = encodeJson();
+        System.out.println("\n" + results + " news: binary " + mBinary.capacity()
+                + " bytes, JSON " + mJson.getBytes("UTF-8").length
+                + " bytes, response " + bytes.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return NewsCodec.encode(mNewsList);
+    }
+
+    @Benchmark
+    public List<News> decodeBinary() {
+        return NewsCodec.decode(mBinary);
+    }
+
+    /**
+     * Read a single news of the page, like a row bound from a spilled page.
+     */
+    @Benchmark
+    public News viewOneNews() {
+        NewsCodec.PageView view = NewsCodec.view(mBinary);
+        return view.get(view.size() / 2);
+    }
+
+    @Benchmark
+    public String encodeJson() throws JSONException {
+        JSONArray json = new JSONArray();
+        for (News news : mNewsList) {
+            json.put(new JSONObject()
+                    .put("webTitle", news.getTitle())
+                    .put("webPublicationDate", news.getTime())
+                    .put("webUrl", news.getUrl()));
+        }
+        return json.toString();
+    }
+
+    @Benchmark
+    public List<News> decodeJson() throws JSONException {
+        JSONArray json = new JSONArray(mJson);
+        List<News> newsList = new ArrayList<>(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            JSONObject object = json.getJSONObject(i);
+            newsList.add(new News(object.getString("webTitle"),
+                    object.getString("webPublicationDate"), object.getString("webUrl")));
+        }
+        return newsList;
+    }
+}
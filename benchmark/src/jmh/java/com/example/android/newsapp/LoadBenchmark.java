@@ -0,0 +1,297 @@
+package com.example.android.newsapp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * End to end benchmark of the loads users wait for, against the {@link ReplayServer}: the
+ * first page of the overview on a cold start, the first page of every other section of the
+ * navigation drawer, and a scroll through 20 pages of the overview.
+ * <p>
+ * The requests go through the same classes as in the app, {@link QueryUtils} on a new
+ * {@link NewsHttpClient} for every run, and the {@link NewsPaginator} with the prefetch
+ * settings of MainActivity for the scroll. The loader delivers the list once its
+ * page is parsed, so the time to the first item is the time to the parsed first page. The
+ * cache of the app is left out, the benchmark measures the network path.
+ * <p>
+ * Run it with, for example:
+ * <pre>
+ * ./gradlew :benchmark:loadBenchmark -PloadArgs="--runs 10 --latency 300 --bandwidth 50"
+ * </pre>
+ * Besides the options of the {@link ReplayServer}: --runs, --page-size and --scroll-rate in
+ * rows per second.
+ */
+public class LoadBenchmark {
+    /**
+     * Sections of the navigation drawer, null means the overview.
+     */
+    private static final List<String> SECTIONS = Arrays.asList(
+            null, "news", "commentisfree", "sport", "culture", "lifeandstyle");
+
+    /**
+     * Number of pages users scroll through.
+     */
+    private static final int SCROLL_PAGES = 20;
+
+    /**
+     * Number of rows on screen, the last visible one is this far from the first.
+     */
+    private static final int VISIBLE_ROWS = 8;
+
+    /**
+     * Same as MainActivity, which can't be loaded outside of Android.
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int PREFETCH_PAGES = 2;
+
+    /**
+     * Time in seconds a scroll may take before the run is given up.
+     */
+    private static final long SCROLL_TIMEOUT = 120;
+
+    private final ReplayServer mServer;
+    private final int mPageSize;
+    private final int mRowsPerSecond;
+
+    private final LatencyHistogram mColdStart = new LatencyHistogram();
+    private final LatencyHistogram mSectionSwitch = new LatencyHistogram();
+    private final LatencyHistogram mScrollStall = new LatencyHistogram();
+    private final LatencyHistogram mPageLoad = new LatencyHistogram();
+
+    /**
+     * Load time of every page of the scroll, by page.
+     */
+    private final LatencyHistogram[] mPageLoadByPage = new LatencyHistogram[SCROLL_PAGES + 1];
+
+    private int mFailedLoads;
+    private int mGivenUpScrolls;
+
+    LoadBenchmark(ReplayServer server, int pageSize, int rowsPerSecond) {
+        mServer = server;
+        mPageSize = pageSize;
+        mRowsPerSecond = rowsPerSecond;
+        for (int page = 1; page <= SCROLL_PAGES; page++) {
+            mPageLoadByPage[page] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Run the three scenarios once, with the failures of the server picked from the given
+     * seed.
+     */
+    void run(long seed) throws InterruptedException {
+        mServer.setSeed(seed);
+        // A new client has no open connection, like a process that just started.
+        NewsHttpClient.setDefault(new NewsHttpClient(NewsHttpClient.DEFAULT_CONNECT_TIMEOUT,
+                NewsHttpClient.DEFAULT_READ_TIMEOUT, NewsHttpClient.DEFAULT_MAX_IDLE_CONNECTIONS,
+                NewsHttpClient.DEFAULT_KEEP_ALIVE));
+        // Failures of a previous run don't keep the requests of this one from being sent.
+        QueryUtils.setCircuitBreaker(CircuitBreaker.createDefault());
+
+        loadFirstPage(SECTIONS.get(0), mColdStart);
+        for (String section : SECTIONS.subList(1, SECTIONS.size())) {
+            loadFirstPage(section, mSectionSwitch);
+        }
+        scroll(SECTIONS.get(0));
+    }
+
+    /**
+     * Load the first page of the section and record how long it took, unless it failed.
+     */
+    private void loadFirstPage(String section, LatencyHistogram histogram) {
+        long start = System.nanoTime();
+        List<News> newsList = QueryUtils.fetchNewsData(buildRequest(section, 1).toUrl());
+        synchronized (this) {
+            if (newsList == null || newsList.isEmpty()) {
+                mFailedLoads++;
+            } else {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Scroll through the pages of the section at the scroll rate, one row at a time, and
+     * record the load time of every page and how long users wait at the end of the list.
+     */
+    private void scroll(final String section) throws InterruptedException {
+        // Plays the main thread, the paginator and the simulated user only run on it.
+        final ScheduledExecutorService mainThread = Executors.newSingleThreadScheduledExecutor();
+        final CountDownLatch done = new CountDownLatch(1);
+        final int[] itemCount = {0};
+        final AtomicInteger loadsInFlight = new AtomicInteger();
+        final NewsPaginator paginator = new NewsPaginator(new NewsPaginator.PageSource() {
+            @Override
+            public List<News> loadPage(String section, int page) {
+                loadsInFlight.incrementAndGet();
+                try {
+                    long start = System.nanoTime();
+                    List<News> newsList = QueryUtils.fetchNewsData(
+                            buildRequest(section, page).toUrl());
+                    // The pages prefetched past the last one are not shown.
+                    if (page <= SCROLL_PAGES) {
+                        recordPageLoad(page, newsList, System.nanoTime() - start);
+                    }
+                    return newsList;
+                } finally {
+                    loadsInFlight.decrementAndGet();
+                }
+            }
+        }, new NewsPaginator.Callback() {
+            @Override
+            public void onPageReady(int page, List<News> newsList) {
+                // The list ends with the last page, so users stop there.
+                if (page <= SCROLL_PAGES) {
+                    itemCount[0] += newsList.size();
+                }
+            }
+        }, LoadExecutor.getDefault().asExecutor(LoadExecutor.PRIORITY_PREFETCH), mainThread,
+                PREFETCH_DISTANCE, PREFETCH_PAGES);
+
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                // The first page is on screen, loaded like on a section switch.
+                long start = System.nanoTime();
+                List<News> firstPage = QueryUtils.fetchNewsData(
+                        buildRequest(section, 1).toUrl());
+                recordPageLoad(1, firstPage, System.nanoTime() - start);
+                if (firstPage == null || firstPage.isEmpty()) {
+                    done.countDown();
+                    return;
+                }
+                itemCount[0] = firstPage.size();
+                paginator.reset(section, 1);
+                mainThread.scheduleAtFixedRate(new Runnable() {
+                    private int mLastVisiblePosition = Math.min(VISIBLE_ROWS, itemCount[0]) - 1;
+                    private long mStalledAt;
+
+                    @Override
+                    public void run() {
+                        if (mLastVisiblePosition < itemCount[0] - 1) {
+                            if (mStalledAt != 0) {
+                                mScrollStall.record(System.nanoTime() - mStalledAt);
+                                mStalledAt = 0;
+                            }
+                            mLastVisiblePosition++;
+                        } else if (paginator.getLastPage() >= SCROLL_PAGES) {
+                            done.countDown();
+                            return;
+                        } else if (mStalledAt == 0) {
+                            // Users reached the end of the list before the next page.
+                            mStalledAt = System.nanoTime();
+                        }
+                        paginator.onScrolled(mLastVisiblePosition, itemCount[0]);
+                    }
+                }, 0, 1000000 / mRowsPerSecond, TimeUnit.MICROSECONDS);
+            }
+        });
+
+        if (!done.await(SCROLL_TIMEOUT, TimeUnit.SECONDS)) {
+            mGivenUpScrolls++;
+        }
+        mainThread.shutdownNow();
+        mainThread.awaitTermination(SCROLL_TIMEOUT, TimeUnit.SECONDS);
+        // The pages prefetched past the last one would slow down the next run.
+        while (loadsInFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Record the load time of the given page of the scroll, or the failure.
+     */
+    private synchronized void recordPageLoad(int page, List<News> newsList, long nanos) {
+        if (newsList == null || newsList.isEmpty()) {
+            mFailedLoads++;
+        } else {
+            mPageLoad.record(nanos);
+            mPageLoadByPage[page].record(nanos);
+        }
+    }
+
+    private GuardianRequest buildRequest(String section, int page) {
+        return new GuardianRequest.Builder()
+                .baseUrl(mServer.getBaseUrl())
+                .section(section)
+                .page(page)
+                .pageSize(mPageSize)
+                .showFields(GuardianRequest.FIELD_THUMBNAIL)
+                .orderBy(GuardianRequest.ORDER_BY_NEWEST)
+                .build();
+    }
+
+    /**
+     * Print the percentiles of every scenario, then the load time of every page.
+     */
+    void report(int runs) {
+        System.out.println(String.format(Locale.US, "%-28s %8s %8s %8s %8s %8s",
+                "milliseconds", "count", "p50", "p90", "p99", "max"));
+        printRow("cold start, first item", mColdStart);
+        printRow("section switch, first item", mSectionSwitch);
+        printRow("scroll, page load", mPageLoad);
+        printRow("scroll, stall at the end", mScrollStall);
+        for (int page = 1; page <= SCROLL_PAGES; page++) {
+            printRow("  page " + page, mPageLoadByPage[page]);
+        }
+        System.out.println(runs + " runs, " + mServer.getRequestCount() + " requests, "
+                + mFailedLoads + " failed loads, " + mGivenUpScrolls + " scrolls given up");
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram) {
+        System.out.println(String.format(Locale.US, "%-28s %8d %8.1f %8.1f %8.1f %8.1f", name,
+                histogram.getCount(), histogram.getPercentileMicros(50) / 1000.0,
+                histogram.getPercentileMicros(90) / 1000.0,
+                histogram.getPercentileMicros(99) / 1000.0,
+                histogram.getMaxMicros() / 1000.0));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        int pageSize = GuardianRequest.DEFAULT_PAGE_SIZE;
+        int rowsPerSecond = 10;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--page-size":
+                    pageSize = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--scroll-rate":
+                    rowsPerSecond = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    // Options of the replay server.
+            }
+        }
+        // The server logs every request, which would bury the report.
+        Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+        ReplayServer.Options options = ReplayServer.Options.parse(args);
+        ReplayServer server = options.createServer();
+        server.start(options.port);
+        System.out.println("Replaying " + server.getBaseUrl() + " with " + options
+                + ", page size " + pageSize + ", " + rowsPerSecond + " rows per second");
+        try {
+            LoadBenchmark benchmark = new LoadBenchmark(server, pageSize, rowsPerSecond);
+            for (int run = 0; run < runs; run++) {
+                benchmark.run(run);
+            }
+            benchmark.report(runs);
+        } finally {
+            server.shutdown();
+        }
+        // The idle load threads would keep the process alive until they time out.
+        System.exit(0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the cost of timing a stage and counting, with the {@link Metrics} enabled
+ * and disabled. Disabled, it should be as cheap as the empty baseline.
+ */
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private Metrics mMetrics;
+
+    @Setup
+    public void setUp() {
+        mMetrics = new Metrics();
+        mMetrics.setEnabled(enabled);
+    }
+
+    /**
+     * Nothing at all, what a disabled timer is compared to.
+     */
+    @Benchmark
+    public void baseline() {
+    }
+
+    /**
+     * Time a stage that does nothing, like around every bind.
+     */
+    @Benchmark
+    public void timeStage() {
+        mMetrics.stopTimer(Metrics.STAGE_BIND, mMetrics.startTimer());
+    }
+
+    /**
+     * Add to a counter, like the bytes of every response.
+     */
+    @Benchmark
+    public void count() {
+        mMetrics.add(Metrics.COUNTER_BYTES_RECEIVED, 1024);
+    }
+}
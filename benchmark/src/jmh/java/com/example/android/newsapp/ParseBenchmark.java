@@ -0,0 +1,88 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Benchmarks of reading and parsing recorded Guardian responses of 10, 50 and 200 results.
+ */
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    /**
+     * The recorded response as it comes from the network.
+     */
+    private byte[] mBytes;
+
+    /**
+     * The recorded response as a String, like readFromStream returns it.
+     */
+    private String mJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBytes = readResource("guardian_search_" + results + ".json");
+        mJson = new String(mBytes, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Read the whole response into a String, the first stage of the old pipeline.
+     */
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return QueryUtils.readFromStream(new ByteArrayInputStream(mBytes));
+    }
+
+    /**
+     * Build the JSONObject tree of the response, the second stage of the old pipeline.
+     */
+    @Benchmark
+    public List<News> extractFeatureFromJson() {
+        return QueryUtils.extractFeatureFromJson(mJson);
+    }
+
+    /**
+     * The old pipeline as a whole, from the bytes to the list of news.
+     */
+    @Benchmark
+    public List<News> readAndExtractFeatureFromJson() throws IOException {
+        return QueryUtils.extractFeatureFromJson(
+                QueryUtils.readFromStream(new ByteArrayInputStream(mBytes)));
+    }
+
+    /**
+     * The streaming parser, from the bytes to the list of news in a single stage.
+     */
+    @Benchmark
+    public List<News> extractFeatureFromStream() throws IOException {
+        return QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(mBytes));
+    }
+
+    static byte[] readResource(String name) throws IOException {
+        InputStream in = ParseBenchmark.class.getClassLoader().getResourceAsStream(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+/**
+ * A local server of the search endpoint of the Guardian API that replays recorded
+ * responses, so the loads can be measured the same way every time.
+ * <p>
+ * A request is answered with the recording of its page size. The URLs of the news are
+ * made unique for every section and page, by a fragment that still opens the same story,
+ * so the pages are not dropped as repeats of each other. The latency, the bandwidth and
+ * the share of failed requests are set before the loads, a seeded random number
+ * generator picks the failed requests.
+ * <p>
+ * It can also run on its own, for the app built with a base URL that points at it:
+ * <pre>
+ * ./gradlew :benchmark:replayServer -PreplayArgs="--port 8080 --latency 150"
+ * ./gradlew :app:installDebug -PnewsApiBaseUrl=http://10.0.2.2:8080/search
+ * </pre>
+ */
+public class ReplayServer {
+    /**
+     * Number of news on a page when the request doesn't say, the default of the API.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
+    /**
+     * Matches the URL of a news in a recorded response.
+     */
+    private static final Pattern WEB_URL = Pattern.compile("(\"webUrl\"\\s*:\\s*\"[^\"#]*)\"");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MockWebServer mServer = new MockWebServer();
+
+    /**
+     * Recorded responses by page size.
+     */
+    private final Map<Integer, String> mRecordings = new HashMap<>();
+
+    private Random mRandom = new Random(0);
+    private volatile long mLatencyMillis;
+    private volatile long mBytesPerSecond;
+    private volatile double mServerErrorRate;
+    private volatile double mDisconnectRate;
+
+    /**
+     * Create a new {@link ReplayServer} object, started with {@link #start(int)}.
+     */
+    public ReplayServer() {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    /**
+     * Answer the requests of the given page size with the given recorded response.
+     */
+    public synchronized void addRecording(int pageSize, byte[] body) {
+        mRecordings.put(pageSize, new String(body, UTF_8));
+    }
+
+    /**
+     * Wait the given time before sending the headers of every response, like the round trip
+     * and the time the API takes to answer.
+     */
+    public void setLatency(long millis) {
+        mLatencyMillis = millis;
+    }
+
+    /**
+     * Send the bodies at the given rate, zero means as fast as possible.
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Answer the given share of the requests, between 0 and 1, with a 503 Service Unavailable.
+     */
+    public void setServerErrorRate(double rate) {
+        mServerErrorRate = rate;
+    }
+
+    /**
+     * Close the connection of the given share of the requests, between 0 and 1, without
+     * answering.
+     */
+    public void setDisconnectRate(double rate) {
+        mDisconnectRate = rate;
+    }
+
+    /**
+     * Pick the failed requests again from the given seed, so a run fails the same requests.
+     */
+    public synchronized void setSeed(long seed) {
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Start the server on the given port, zero picks a free one.
+     */
+    public void start(int port) throws IOException {
+        mServer.start(port);
+    }
+
+    public void shutdown() throws IOException {
+        mServer.shutdown();
+    }
+
+    /**
+     * Return the URL of the search endpoint, to give to {@link GuardianRequest.Builder#baseUrl}.
+     */
+    public String getBaseUrl() {
+        return mServer.url("/search").toString();
+    }
+
+    /**
+     * Return the number of requests received.
+     */
+    public int getRequestCount() {
+        return mServer.getRequestCount();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        double failure;
+        String recording;
+        HttpUrl url = request.getRequestUrl();
+        String pageSizeParameter = url.queryParameter("page-size");
+        int pageSize = pageSizeParameter == null
+                ? DEFAULT_PAGE_SIZE : Integer.parseInt(pageSizeParameter);
+        synchronized (this) {
+            failure = mRandom.nextDouble();
+            recording = mRecordings.get(pageSize);
+        }
+
+        MockResponse response = new MockResponse()
+                .setHeadersDelay(mLatencyMillis, TimeUnit.MILLISECONDS);
+        if (failure < mDisconnectRate) {
+            return response.setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+        }
+        if (failure < mDisconnectRate + mServerErrorRate) {
+            return response.setResponseCode(503);
+        }
+        if (recording == null) {
+            return response.setResponseCode(400)
+                    .setBody("{\"response\":{\"status\":\"error\",\"message\":\"No recording of"
+                            + " page-size " + pageSize + "\"}}");
+        }
+
+        String section = url.queryParameter("section");
+        String page = url.queryParameter("page");
+        Matcher matcher = WEB_URL.matcher(recording);
+        String body = matcher.replaceAll("$1#" + (section == null ? "overview" : section)
+                + "-" + (page == null ? "1" : page) + "\"");
+        Buffer buffer = new Buffer();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            // Like the API, so the bandwidth is spent on as many bytes.
+            try {
+                GZIPOutputStream gzip = new GZIPOutputStream(buffer.outputStream());
+                gzip.write(body.getBytes(UTF_8));
+                gzip.close();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            response.addHeader("Content-Encoding", "gzip");
+        } else {
+            buffer.writeString(body, UTF_8);
+        }
+        response.setHeader("Content-Type", "application/json")
+                .setBody(buffer);
+        long bytesPerSecond = mBytesPerSecond;
+        if (bytesPerSecond > 0) {
+            // Send the body in chunks of a tenth of a second.
+            response.throttleBody(Math.max(1, bytesPerSecond / 10), 100, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    /**
+     * Serve the recorded responses until the process is stopped.
+     * <p>
+     * Options: --port, --latency in milliseconds, --bandwidth in kilobytes per second,
+     * --server-errors and --disconnects as a share of the requests.
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ReplayServer server = options.createServer();
+        server.start(options.port);
+        System.out.println("Replaying " + server.getBaseUrl() + " with " + options);
+    }
+
+    /**
+     * Command line options of the replay server.
+     */
+    static class Options {
+        int port = 0;
+        long latencyMillis = 150;
+        long kilobytesPerSecond = 250;
+        double serverErrorRate = 0;
+        double disconnectRate = 0;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--port":
+                        options.port = Integer.parseInt(value);
+                        break;
+                    case "--latency":
+                        options.latencyMillis = Long.parseLong(value);
+                        break;
+                    case "--bandwidth":
+                        options.kilobytesPerSecond = Long.parseLong(value);
+                        break;
+                    case "--server-errors":
+                        options.serverErrorRate = Double.parseDouble(value);
+                        break;
+                    case "--disconnects":
+                        options.disconnectRate = Double.parseDouble(value);
+                        break;
+                    default:
+                        // Options of the benchmark, like the number of runs.
+                }
+            }
+            return options;
+        }
+
+        /**
+         * Return a server of the recordings of 10, 50 and 200 news, set up with these options.
+         */
+        ReplayServer createServer() throws IOException {
+            ReplayServer server = new ReplayServer();
+            for (int pageSize : new int[]{10, 50, 200}) {
+                server.addRecording(pageSize,
+                        ParseBenchmark.readResource("guardian_search_" + pageSize + ".json"));
+            }
+            server.setLatency(latencyMillis);
+            server.setBandwidth(kilobytesPerSecond * 1024);
+            server.setServerErrorRate(serverErrorRate);
+            server.setDisconnectRate(disconnectRate);
+            return server;
+        }
+
+        @Override
+        public String toString() {
+            return "latency " + latencyMillis + " ms, bandwidth " + kilobytesPerSecond
+                    + " KB/s, server errors " + serverErrorRate + ", disconnects "
+                    + disconnectRate;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmarks of searching the {@link HeadlineIndex} of 10k and 100k headlines, and of
+ * adding a page of news to it.
+ * <p>
+ * The headlines are made of the words of the recorded response of 200 results, picked
+ * at random, so the words are spread like in real titles.
+ */
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int headlines;
+
+    private HeadlineIndex mIndex;
+
+    /**
+     * Pages of news that are not in the index yet.
+     */
+    private List<List<News>> mNewPages;
+
+    private int mNextPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] bytes = ParseBenchmark.readResource("guardian_search_200.json");
+        List<String> words = new ArrayList<>();
+        for (News news : QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(bytes))) {
+            words.addAll(HeadlineIndex.tokenize(news.getTitle()));
+        }
+
+        Random random = new Random(42);
+        mIndex = new HeadlineIndex();
+        List<News> page = new ArrayList<>();
+        for (int i = 0; i < headlines; i++) {
+            page.add(createNews(words, random, i));
+            if (page.size() == 10) {
+                mIndex.addAll(page);
+                page = new ArrayList<>();
+            }
+        }
+        mIndex.addAll(page);
+
+        mNewPages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            page = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                page.add(createNews(words, random, headlines + i * 10 + j));
+            }
+            mNewPages.add(page);
+        }
+    }
+
+    /**
+     * A common whole word, which matches many headlines.
+     */
+    @Benchmark
+    public List<String> searchCommonWord() {
+        return mIndex.search("world", HeadlineIndex.DEFAULT_LIMIT);
+    }
+
+    /**
+     * The first letters of a word, like while users type.
+     */
+    @Benchmark
+    public List<String> searchPrefix() {
+        return mIndex.search("pr", HeadlineIndex.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Two words, the second one being typed.
+     */
+    @Benchmark
+    public List<String> searchTwoWords() {
+        return mIndex.search("blood moo", HeadlineIndex.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Add a page of ten news, what happens after every fetch.
+     */
+    @Benchmark
+    public void addPage() {
+        // Every page is only new once, the next rounds measure the skipping of known news.
+        mIndex.addAll(mNewPages.get(mNextPage++ % mNewPages.size()));
+    }
+
+    private static News createNews(List<String> words, Random random, int i) {
+        StringBuilder title = new StringBuilder();
+        int length = 6 + random.nextInt(8);
+        for (int j = 0; j < length; j++) {
+            if (j > 0) {
+                title.append(' ');
+            }
+            title.append(words.get(random.nextInt(words.size())));
+        }
+        String time = String.format(Locale.US, "2018-01-%02dT%02d:%02d:00Z",
+                1 + i / 1440 % 28, i / 60 % 24, i % 60);
+        return new News(title.toString(), time, "https://www.theguardian.com/news/" + i);
+    }
+}
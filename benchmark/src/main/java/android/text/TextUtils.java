@@ -0,0 +1,13 @@
+package android.text;
+
+/**
+ * Plain Java replacement of the Android TextUtils, so the app classes run on the JVM.
+ */
+public final class TextUtils {
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}